@@ -0,0 +1,79 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.service.AnalyticsService;
+import com.assxmblxr.cafe.service.AnalyticsService.ItemTotal;
+import com.assxmblxr.cafe.service.AnalyticsService.OrderAnalytics;
+import com.assxmblxr.cafe.type.Role;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Аналитика завершенных заказов за период ({@code /admin/analytics?from=2024-01-01&to=2024-01-31}),
+ * только для администратора, иначе 403. Даты включительно, по умолчанию - последние 30 дней.
+ * Ответ в текстовом формате, как у {@code /metrics}; суммы в рублях.
+ */
+@WebServlet("/admin/analytics")
+public class AnalyticsServlet extends HttpServlet {
+  public static final String ATTR_ANALYTICS = AnalyticsService.class.getName();
+  private static final int DEFAULT_DAYS = 30;
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    HttpSession session = req.getSession(false);
+    if (session == null || session.getAttribute(Command.ATTR_ROLE) != Role.ADMIN) {
+      resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+    LocalDate to;
+    LocalDate from;
+    try {
+      to = parse(req.getParameter("to"), LocalDate.now());
+      from = parse(req.getParameter("from"), to.minusDays(DEFAULT_DAYS - 1));
+    } catch (DateTimeParseException e) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "Dates must be in yyyy-MM-dd format");
+      return;
+    }
+    if (from.isAfter(to)) {
+      resp.sendError(HttpServletResponse.SC_BAD_REQUEST, "from must not be after to");
+      return;
+    }
+    if (!(getServletContext().getAttribute(ATTR_ANALYTICS) instanceof AnalyticsService analyticsService)) {
+      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+
+    OrderAnalytics analytics = analyticsService.analyze(from, to);
+    resp.setContentType("text/plain;charset=UTF-8");
+    resp.setHeader("Cache-Control", "no-store");
+    PrintWriter out = resp.getWriter();
+    out.println("period " + from + " " + to);
+    out.println("orders " + analytics.orders());
+    out.println("revenue " + analytics.revenue().toPlainString());
+    for (ItemTotal item : analytics.topSellers()) {
+      out.println("top_seller " + item.menuItemId() + " " + item.quantity() + " " + item.revenue().toPlainString());
+    }
+    long[] basketSizes = analytics.basketSizes();
+    for (int size = 0; size < basketSizes.length; size++) {
+      out.println("basket_size " + (size == basketSizes.length - 1 ? size + "+" : size) + " " + basketSizes[size]);
+    }
+    long[] revenuePerHour = analytics.revenuePerHour();
+    for (int hour = 0; hour < revenuePerHour.length; hour++) {
+      out.println("revenue_hour " + hour + " " + BigDecimal.valueOf(revenuePerHour[hour], 2).toPlainString());
+    }
+    out.println("elapsed_ms " + analytics.elapsedMillis());
+  }
+
+  private static LocalDate parse(String value, LocalDate defaultValue) {
+    return value == null || value.isBlank() ? defaultValue : LocalDate.parse(value);
+  }
+}
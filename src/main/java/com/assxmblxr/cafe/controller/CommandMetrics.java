@@ -0,0 +1,60 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.util.LatencyHistogram;
+import com.assxmblxr.cafe.util.Metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Метрики выполнения одной команды: гистограмма задержек (включая forward на JSP),
+ * количество ошибок, число запросов, выполняющихся в данный момент, и обращения к базе
+ * (всего и максимум за один запрос). Отношение {@code _statements_total} к {@code _latency_ms_count}
+ * дает среднее число обращений на запрос: его рост после изменения DAO означает лишние round trips.
+ * <p>
+ * Экземпляры создаются при инициализации {@link MainServlet}, поэтому запись
+ * на горячем пути не выделяет память.
+ * </p>
+ */
+public class CommandMetrics {
+  private final LatencyHistogram latency = new LatencyHistogram();
+  private final LongAdder errors = new LongAdder();
+  private final LongAdder inFlight = new LongAdder();
+  private final LongAdder statements = new LongAdder();
+  private final AtomicLong maxStatements = new AtomicLong();
+
+  public CommandMetrics(String commandName) {
+    String prefix = "command_" + commandName;
+    Metrics.histogram(prefix + "_latency", latency);
+    Metrics.gauge(prefix + "_errors_total", errors::sum);
+    Metrics.gauge(prefix + "_in_flight", inFlight::sum);
+    Metrics.gauge(prefix + "_statements_total", statements::sum);
+    Metrics.gauge(prefix + "_statements_max", maxStatements::get);
+  }
+
+  /**
+   * @return момент начала выполнения в наносекундах, который нужно передать в {@link #stop(long, boolean)}.
+   */
+  public long start() {
+    inFlight.increment();
+    return System.nanoTime();
+  }
+
+  /**
+   * Учитывает обращения к базе, сделанные при выполнении одного запроса.
+   */
+  public void recordStatements(long count) {
+    statements.add(count);
+    if (count > maxStatements.get()) {
+      maxStatements.accumulateAndGet(count, Math::max);
+    }
+  }
+
+  public void stop(long startNanos, boolean failed) {
+    latency.record(System.nanoTime() - startNanos);
+    if (failed) {
+      errors.increment();
+    }
+    inFlight.decrement();
+  }
+}
@@ -0,0 +1,170 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.entity.OrderEvent;
+import com.assxmblxr.cafe.service.OrderEventBus;
+import com.assxmblxr.cafe.type.Role;
+import com.assxmblxr.cafe.util.AppConfig;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Лента заказов для экрана кухни по Server-Sent Events ({@code /kitchen/feed}), доступна администраторам.
+ * <p>
+ * Клиент получает только новые события из {@link OrderEventBus}, а при переподключении
+ * (заголовок {@code Last-Event-ID}) - события, пропущенные с момента разрыва. Если их уже нет
+ * в буфере ленты, клиенту отправляется событие {@code reset}, и он перечитывает заказы целиком.
+ * </p>
+ * Каждый клиент обслуживается своим виртуальным потоком с ограниченной очередью, поэтому
+ * медленный клиент не задерживает публикацию: при переполнении очереди соединение закрывается,
+ * и браузер переподключается с догрузкой пропущенного.
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code kitchen.feed.clientQueue} - очередь событий одного клиента (по умолчанию 256)</li>
+ * <li>{@code kitchen.feed.heartbeatSeconds} - интервал пустых сообщений для поддержания соединения (по умолчанию 15)</li>
+ * </ul>
+ */
+@Slf4j
+@WebServlet(value = "/kitchen/feed", asyncSupported = true)
+public class KitchenFeedServlet extends HttpServlet {
+  public static final String ATTR_EVENT_BUS = OrderEventBus.class.getName();
+
+  private int clientQueue;
+  private long heartbeatSeconds;
+
+  @Override
+  public void init() {
+    clientQueue = AppConfig.getInt("kitchen.feed.clientQueue", 256);
+    heartbeatSeconds = AppConfig.getLong("kitchen.feed.heartbeatSeconds", 15);
+  }
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    HttpSession session = req.getSession(false);
+    if (session == null || session.getAttribute(Command.ATTR_ROLE) != Role.ADMIN) {
+      resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+      return;
+    }
+    if (!(getServletContext().getAttribute(ATTR_EVENT_BUS) instanceof OrderEventBus bus)) {
+      resp.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      return;
+    }
+
+    resp.setContentType("text/event-stream;charset=UTF-8");
+    resp.setHeader("Cache-Control", "no-store");
+    AsyncContext asyncContext = req.startAsync();
+    asyncContext.setTimeout(0);
+
+    FeedClient client = new FeedClient(bus, asyncContext, resp.getWriter(), lastEventId(req, bus));
+    bus.subscribe(client);
+    Thread.ofVirtual().name("kitchen-feed-client").start(client::run);
+  }
+
+  private static long lastEventId(HttpServletRequest req, OrderEventBus bus) {
+    String header = req.getHeader("Last-Event-ID");
+    if (header == null) {
+      return bus.getLastSequence();
+    }
+    try {
+      return Long.parseLong(header);
+    } catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  private class FeedClient implements Consumer<OrderEvent> {
+    private final OrderEventBus bus;
+    private final AsyncContext asyncContext;
+    private final PrintWriter out;
+    private final BlockingQueue<OrderEvent> queue = new ArrayBlockingQueue<>(clientQueue);
+    private volatile boolean overflowed;
+    private long lastSent;
+
+    FeedClient(OrderEventBus bus, AsyncContext asyncContext, PrintWriter out, long lastSent) {
+      this.bus = bus;
+      this.asyncContext = asyncContext;
+      this.out = out;
+      this.lastSent = lastSent;
+    }
+
+    @Override
+    public void accept(OrderEvent event) {
+      if (!queue.offer(event)) {
+        overflowed = true;
+      }
+    }
+
+    void run() {
+      try {
+        if (!replay()) {
+          return;
+        }
+        while (!overflowed) {
+          OrderEvent event = queue.poll(heartbeatSeconds, TimeUnit.SECONDS);
+          if (event == null) {
+            out.write(": ping\n\n");
+          } else if (event.sequence() > lastSent) {
+            write(event);
+          }
+          out.flush();
+          if (out.checkError()) {
+            return;
+          }
+        }
+        log.debug("Kitchen feed client is too slow, closing connection");
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } finally {
+        bus.unsubscribe(this);
+        asyncContext.complete();
+      }
+    }
+
+    /**
+     * Отправляет события, пропущенные с {@code Last-Event-ID}. Клиент уже подписан,
+     * поэтому события, пришедшие во время догрузки, попадут в очередь и будут отброшены по номеру.
+     */
+    private boolean replay() {
+      if (lastSent < 0) {
+        return reset();
+      }
+      Optional<List<OrderEvent>> missed = bus.eventsAfter(lastSent);
+      if (missed.isEmpty()) {
+        return reset();
+      }
+      missed.get().forEach(this::write);
+      out.flush();
+      return !out.checkError();
+    }
+
+    private boolean reset() {
+      lastSent = bus.getLastSequence();
+      out.write("id: " + lastSent + "\nevent: reset\ndata: {}\n\n");
+      out.flush();
+      return !out.checkError();
+    }
+
+    private void write(OrderEvent event) {
+      lastSent = event.sequence();
+      out.write("id: " + event.sequence() + "\nevent: order\ndata: {\"orderId\":" + event.orderId()
+              + ",\"status\":\"" + event.status() + "\""
+              + (event.pickupTime() == null ? "" : ",\"pickupTime\":\"" + event.pickupTime() + "\"")
+              + ",\"items\":" + event.items() + "}\n\n");
+    }
+  }
+}
@@ -1,36 +1,129 @@
 package com.assxmblxr.cafe.controller;
 
+import com.assxmblxr.cafe.controller.command.AsyncCommand;
 import com.assxmblxr.cafe.controller.command.Command;
 import com.assxmblxr.cafe.controller.command.impl.*;
+import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.dao.SalesReportDao;
+import com.assxmblxr.cafe.dao.TransactionManager;
+import com.assxmblxr.cafe.dao.impl.CachedMenuItemDao;
+import com.assxmblxr.cafe.dao.impl.CachedUserDao;
+import com.assxmblxr.cafe.dao.impl.GroupCommitOrderDao;
+import com.assxmblxr.cafe.dao.impl.LoyaltyDaoImpl;
+import com.assxmblxr.cafe.dao.impl.MenuItemDaoImpl;
 import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.dao.impl.PgOrderEventRelay;
+import com.assxmblxr.cafe.dao.impl.SalesReportDaoImpl;
 import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.entity.UserPrincipal;
 import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.service.LoyaltyService;
+import com.assxmblxr.cafe.service.OrderEventBus;
+import com.assxmblxr.cafe.service.PickupSlotScheduler;
 import com.assxmblxr.cafe.service.UserService;
+import com.assxmblxr.cafe.service.impl.AnalyticsServiceImpl;
+import com.assxmblxr.cafe.service.impl.LoyaltyServiceImpl;
 import com.assxmblxr.cafe.service.impl.UserServiceImpl;
+import com.assxmblxr.cafe.util.AppConfig;
+import com.assxmblxr.cafe.util.BloomFilter;
+import com.assxmblxr.cafe.util.LoginRateLimiter;
+import com.assxmblxr.cafe.util.Metrics;
+import com.assxmblxr.cafe.util.PasswordHasher;
+import com.assxmblxr.cafe.util.StatementStats;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.annotation.WebServlet;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 
 import java.io.IOException;
+import java.math.BigDecimal;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
 
 // TODO: Локализация EN, пагинация, разобраться с ролями и логами
 
 @Slf4j
-@WebServlet("/controller")
+@WebServlet(value = "/controller", asyncSupported = true, loadOnStartup = 1)
 public class MainServlet extends HttpServlet {
 
   private final Map<String, Command> commands = new HashMap<>();
+  private final Map<String, CommandMetrics> commandMetrics = new HashMap<>();
+  private CommandMetrics unknownCommandMetrics;
+  private UserService userService;
+  private PasswordHasher passwordHasher;
+  private GroupCommitOrderDao groupCommitOrderDao;
+  private PgOrderEventRelay orderEventRelay;
+  private AnalyticsServiceImpl analyticsService;
+  private ExecutorService commandExecutor;
+  private ScheduledExecutorService scheduler;
+  private Semaphore admission;
+  private int maxConcurrentCommands;
+  private long admissionTimeoutMillis;
+  private long asyncTimeoutMillis;
+  private boolean countStatements;
 
   @Override
   public void init() {
-    UserService userService = new UserServiceImpl(new UserDaoImpl(), new OrderDaoImpl());
+    passwordHasher = PasswordHasher.fromConfig();
+    CachedMenuItemDao menuItemDao = new CachedMenuItemDao(new MenuItemDaoImpl());
+    OrderDaoImpl orderDaoImpl = new OrderDaoImpl(menuItemDao);
+    OrderDao orderDao = orderDaoImpl;
+    if (AppConfig.getBoolean("orders.groupCommit.enabled", false)) {
+      groupCommitOrderDao = GroupCommitOrderDao.fromConfig(orderDaoImpl);
+      orderDao = groupCommitOrderDao;
+    }
+    CachedUserDao userDao = CachedUserDao.fromConfig(new UserDaoImpl());
+    PickupSlotScheduler pickupSlots = PickupSlotScheduler.fromConfig(orderDao);
+    if (pickupSlots.isEnabled()) {
+      try {
+        pickupSlots.rebuild();
+      } catch (CafeException e) {
+        log.error("Pickup slots could not be restored, starting with an empty calendar", e);
+      }
+    }
+    OrderEventBus orderEvents = OrderEventBus.fromConfig();
+    if (AppConfig.getBoolean("kitchen.feed.pgNotify.enabled", false)) {
+      orderEventRelay = new PgOrderEventRelay(orderEvents);
+      orderEventRelay.start();
+    }
+    getServletContext().setAttribute(KitchenFeedServlet.ATTR_EVENT_BUS, orderEvents);
+    analyticsService = AnalyticsServiceImpl.fromConfig(orderDao);
+    getServletContext().setAttribute(AnalyticsServlet.ATTR_ANALYTICS, analyticsService);
+    SalesReportDao salesReportDao = new SalesReportDaoImpl();
+    if (AppConfig.getBoolean("sales.rebuildOnStartup", false)) {
+      salesReportDao.rebuild();
+    }
+    BloomFilter knownEmails = BloomFilter.create(
+            AppConfig.getLong("users.emailFilter.expectedInsertions", 1_000_000),
+            Double.parseDouble(AppConfig.get("users.emailFilter.falsePositiveRate", "0.01")));
+    try {
+      userDao.forEachEmail(email -> knownEmails.put(UserServiceImpl.emailKey(email)));
+    } catch (CafeException e) {
+      // без фильтра регистрация остается корректной: дубликат отклонит уникальный индекс
+      log.error("Known emails filter could not be filled", e);
+    }
+    userService = new UserServiceImpl(userDao, orderDao, passwordHasher, new TransactionManager(),
+            pickupSlots, orderEvents, salesReportDao, knownEmails);
 
-    commands.put("login", new LoginCommand(userService));
+    LoginRateLimiter loginRateLimiter = LoginRateLimiter.fromConfig();
+    commands.put("login", new LoginCommand(userService, loginRateLimiter));
     commands.put("logout", new LogoutCommand());
     commands.put("register", new RegisterCommand(userService));
 
@@ -38,9 +131,82 @@ public class MainServlet extends HttpServlet {
     commands.put("go_to_register", (req, resp) -> Command.PATH_REGISTER);
     commands.put("go_to_main", (req, resp) -> Command.PATH_MAIN);
 
+    commands.keySet().forEach(name -> commandMetrics.put(name, new CommandMetrics(name)));
+    unknownCommandMetrics = new CommandMetrics("unknown");
+
+    Metrics.gauge("password_hasher_queue_depth", passwordHasher::getQueueDepth);
+    Metrics.gauge("password_hasher_active", passwordHasher::getActiveCount);
+    Metrics.gauge("password_hasher_completed_total", passwordHasher::getCompletedCount);
+    Metrics.gauge("password_hasher_rejected_total", passwordHasher::getRejectedCount);
+    Metrics.gauge("password_hasher_rehash_queue_depth", passwordHasher::getRehashQueueDepth);
+    Metrics.gauge("password_hasher_rehash_dropped_total", passwordHasher::getRehashDroppedCount);
+    Metrics.gauge("password_hasher_latency_ms_avg", passwordHasher::getAverageLatencyMillis);
+    Metrics.gauge("password_hasher_latency_ms_max", passwordHasher::getMaxLatencyMillis);
+    Metrics.gauge("menu_cache_hits_total", menuItemDao::getHits);
+    Metrics.gauge("menu_cache_misses_total", menuItemDao::getMisses);
+    Metrics.gauge("user_cache_hits_total", userDao::getHits);
+    Metrics.gauge("user_cache_misses_total", userDao::getMisses);
+    Metrics.gauge("user_cache_size", userDao::getSize);
+    Metrics.gauge("pickup_slots_admitted_total", pickupSlots::getAdmittedCount);
+    Metrics.gauge("pickup_slots_rejected_total", pickupSlots::getRejectedCount);
+    Metrics.gauge("pickup_slots_tracked", pickupSlots::getTrackedSlots);
+    Metrics.gauge("kitchen_feed_events_total", orderEvents::getPublishedCount);
+    Metrics.gauge("kitchen_feed_clients", orderEvents::getSubscriberCount);
+    Metrics.gauge("login_rate_limit_allowed_total", loginRateLimiter::getAllowedCount);
+    Metrics.gauge("login_rate_limit_rejected_total", loginRateLimiter::getRejectedCount);
+    Metrics.gauge("login_rate_limit_keys", loginRateLimiter::getSize);
+
+    long accrualIntervalMinutes = AppConfig.getLong("loyalty.accrual.intervalMinutes", 1440);
+    if (accrualIntervalMinutes > 0) {
+      LoyaltyService loyaltyService = new LoyaltyServiceImpl(new LoyaltyDaoImpl(),
+              AppConfig.getInt("loyalty.accrual.chunkSize", 1000),
+              new BigDecimal(AppConfig.get("loyalty.pointsPerCurrencyUnit", "0.05")), userDao::invalidate);
+      scheduler = Executors.newSingleThreadScheduledExecutor();
+      scheduler.scheduleWithFixedDelay(() -> {
+        try {
+          loyaltyService.accrue();
+        } catch (RuntimeException e) {
+          log.error("Loyalty accrual failed, will resume on next run", e);
+        }
+      }, accrualIntervalMinutes, accrualIntervalMinutes, TimeUnit.MINUTES);
+    }
+
+    countStatements = AppConfig.getBoolean("db.statementStats.enabled", false);
+    asyncTimeoutMillis = AppConfig.getLong("controller.asyncTimeoutMillis", 30000);
+    if (AppConfig.getBoolean("controller.virtualThreads.enabled", false)) {
+      maxConcurrentCommands = AppConfig.getInt("controller.maxConcurrentCommands", 200);
+      admissionTimeoutMillis = AppConfig.getLong("controller.admissionTimeoutMillis", 2000);
+      admission = new Semaphore(maxConcurrentCommands);
+      commandExecutor = Executors.newVirtualThreadPerTaskExecutor();
+      Metrics.gauge("controller_commands_waiting", admission::getQueueLength);
+      log.info("Commands run on virtual threads, maxConcurrentCommands={}", maxConcurrentCommands);
+    }
+
     log.info("MainServlet initialized with {} commands", commands.size());
   }
 
+  @Override
+  public void destroy() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+    }
+    if (commandExecutor != null) {
+      commandExecutor.shutdown();
+    }
+    if (groupCommitOrderDao != null) {
+      groupCommitOrderDao.close();
+    }
+    if (orderEventRelay != null) {
+      orderEventRelay.close();
+    }
+    if (analyticsService != null) {
+      analyticsService.close();
+    }
+    if (passwordHasher != null) {
+      passwordHasher.close();
+    }
+  }
+
   @Override
   protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     processRequest(req, resp);
@@ -53,11 +219,47 @@ public class MainServlet extends HttpServlet {
 
   private void processRequest(HttpServletRequest req, HttpServletResponse resp) throws IOException {
     String commandName = req.getParameter("command");
+    refreshSessionUser(req);
 
     Command command = commands.getOrDefault(commandName, (request, response) -> Command.PATH_INDEX);
+    CommandMetrics metrics = commandMetrics.getOrDefault(commandName, unknownCommandMetrics);
+
+    if (command instanceof AsyncCommand asyncCommand) {
+      processAsync(req, resp, metrics, () -> asyncCommand.executeAsync(req, resp));
+    } else if (commandExecutor != null) {
+      processAsync(req, resp, metrics,
+              () -> CompletableFuture.supplyAsync(() -> executeAdmitted(command, req, resp, metrics), commandExecutor));
+    } else {
+      processSync(req, resp, command, metrics);
+    }
+  }
+
+  /**
+   * Сверяет снимок пользователя в сессии с кэшем пользователей: обновляет роль, если данные
+   * изменились, и завершает сессию, если пользователь заблокирован или удален.
+   */
+  private void refreshSessionUser(HttpServletRequest req) {
+    HttpSession session = req.getSession(false);
+    if (session == null || !(session.getAttribute(Command.ATTR_USER) instanceof UserPrincipal principal)) {
+      return;
+    }
+    Optional<UserPrincipal> refreshed = userService.refreshPrincipal(principal);
+    if (refreshed.isEmpty()) {
+      log.info("Session of user {} invalidated: user is blocked or deleted", principal.id());
+      session.invalidate();
+    } else if (refreshed.get() != principal) {
+      session.setAttribute(Command.ATTR_USER, refreshed.get());
+      session.setAttribute(Command.ATTR_ROLE, refreshed.get().role());
+    }
+  }
+
+  private void processSync(HttpServletRequest req, HttpServletResponse resp, Command command,
+                           CommandMetrics metrics) throws IOException {
+    long start = metrics.start();
+    boolean failed = true;
 
     try {
-      String resultPath = command.execute(req, resp);
+      String resultPath = executeCounted(command, req, resp, metrics);
 
       if (resultPath.startsWith("redirect:")) {
         String redirectPath = req.getContextPath() + resultPath.substring(9);
@@ -65,9 +267,155 @@ public class MainServlet extends HttpServlet {
       } else {
         req.getRequestDispatcher(resultPath).forward(req, resp);
       }
+      failed = false;
     } catch (ServletException e) {
       log.error(e.getMessage(), e);
       throw new CafeException(e.getMessage(), e);
+    } finally {
+      metrics.stop(start, failed);
+    }
+  }
+
+  /**
+   * Освобождает поток контейнера и завершает запрос, когда команда вернет путь:
+   * redirect отправляется сразу, а forward выполняется через {@link AsyncContext#dispatch(String)}.
+   * <p>
+   * Запрос завершает ровно один участник: команда или {@link AsyncListener} контейнера.
+   * Если первым сработал таймаут или ошибка соединения, клиент получает страницу ошибки,
+   * а результат команды, завершившейся позже, отбрасывается без обращения к уже закрытому контексту.
+   * </p>
+   */
+  private void processAsync(HttpServletRequest req, HttpServletResponse resp, CommandMetrics metrics,
+                            Supplier<CompletionStage<String>> execution) {
+    AsyncContext asyncContext = req.startAsync();
+    asyncContext.setTimeout(asyncTimeoutMillis);
+    long start = metrics.start();
+    AtomicBoolean finished = new AtomicBoolean();
+
+    asyncContext.addListener(new AsyncListener() {
+      @Override
+      public void onTimeout(AsyncEvent event) {
+        if (finished.compareAndSet(false, true)) {
+          log.warn("Command {} timed out after {} ms", req.getParameter("command"), asyncTimeoutMillis);
+          metrics.stop(start, true);
+          sendErrorAndComplete(resp, asyncContext, HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        }
+      }
+
+      @Override
+      public void onError(AsyncEvent event) {
+        if (finished.compareAndSet(false, true)) {
+          log.warn("Async request failed: {}", String.valueOf(event.getThrowable()));
+          metrics.stop(start, true);
+          sendErrorAndComplete(resp, asyncContext, HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+        }
+      }
+
+      @Override
+      public void onComplete(AsyncEvent event) {}
+
+      @Override
+      public void onStartAsync(AsyncEvent event) {}
+    });
+
+    CompletionStage<String> stage;
+    try {
+      stage = execution.get();
+    } catch (RuntimeException e) {
+      stage = CompletableFuture.failedFuture(e);
+    }
+
+    stage.whenComplete((resultPath, error) -> {
+      if (!finished.compareAndSet(false, true)) {
+        log.debug("Result of command {} dropped: request already completed", req.getParameter("command"));
+        return;
+      }
+      boolean failed = true;
+      try {
+        if (error != null) {
+          completeWithError(resp, asyncContext, error instanceof CompletionException ? error.getCause() : error);
+        } else if (resultPath.startsWith("redirect:")) {
+          resp.sendRedirect(req.getContextPath() + resultPath.substring(9));
+          asyncContext.complete();
+          failed = false;
+        } else {
+          asyncContext.dispatch(resultPath);
+          failed = false;
+        }
+      } catch (IOException | RuntimeException e) {
+        completeWithError(resp, asyncContext, e);
+      } finally {
+        metrics.stop(start, failed);
+      }
+    });
+  }
+
+  /**
+   * Выполняет синхронную команду на виртуальном потоке. Число одновременно выполняемых команд
+   * ограничено семафором: лишние запросы паркуются на нем (это дешево для виртуального потока),
+   * а по истечении {@code controller.admissionTimeoutMillis} получают 503, не доходя до пула соединений.
+   */
+  private String executeAdmitted(Command command, HttpServletRequest req, HttpServletResponse resp,
+                                 CommandMetrics metrics) {
+    try {
+      if (!admission.tryAcquire(admissionTimeoutMillis, TimeUnit.MILLISECONDS)) {
+        throw new CommandRejectedException(maxConcurrentCommands);
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CafeException("Interrupted while waiting for admission", e);
+    }
+    try {
+      return executeCounted(command, req, resp, metrics);
+    } finally {
+      admission.release();
+    }
+  }
+
+  /**
+   * Выполняет команду, считая обращения к базе в текущем потоке, если включен
+   * {@code db.statementStats.enabled}. Обращения, сделанные в других потоках, в счет команды не попадают.
+   */
+  private String executeCounted(Command command, HttpServletRequest req, HttpServletResponse resp,
+                                CommandMetrics metrics) {
+    if (!countStatements) {
+      return command.execute(req, resp);
+    }
+    try (StatementStats.Scope scope = StatementStats.begin()) {
+      try {
+        return command.execute(req, resp);
+      } finally {
+        metrics.recordStatements(scope.getStatements());
+      }
+    }
+  }
+
+  private void completeWithError(HttpServletResponse resp, AsyncContext asyncContext, Throwable error) {
+    int status = HttpServletResponse.SC_INTERNAL_SERVER_ERROR;
+    if (error instanceof CommandRejectedException) {
+      log.warn(error.getMessage());
+      status = HttpServletResponse.SC_SERVICE_UNAVAILABLE;
+    } else {
+      log.error(error.getMessage(), error);
+    }
+    sendErrorAndComplete(resp, asyncContext, status);
+  }
+
+  private void sendErrorAndComplete(HttpServletResponse resp, AsyncContext asyncContext, int status) {
+    try {
+      if (!resp.isCommitted()) {
+        resp.sendError(status);
+      }
+    } catch (IOException | IllegalStateException e) {
+      log.warn("Failed to send error response", e);
+    } finally {
+      asyncContext.complete();
+    }
+  }
+
+  private static class CommandRejectedException extends CafeException {
+    CommandRejectedException(int maxConcurrentCommands) {
+      super("Command rejected: " + maxConcurrentCommands + " commands already in progress");
     }
   }
-}
\ No newline at end of file
+}
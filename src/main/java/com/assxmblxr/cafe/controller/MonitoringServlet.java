@@ -0,0 +1,50 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.type.Role;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import com.assxmblxr.cafe.util.Metrics;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Служебные endpoints для мониторинга.
+ * <ul>
+ * <li>{@code /health} - 200 UP, если пул выдает рабочее соединение, иначе 503 DOWN</li>
+ * <li>{@code /metrics} - все метрики из {@link Metrics} в текстовом формате, только для администратора
+ * (как и {@link KitchenFeedServlet}), иначе 403</li>
+ * </ul>
+ */
+@WebServlet(urlPatterns = {"/health", "/metrics"})
+public class MonitoringServlet extends HttpServlet {
+
+  @Override
+  protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+    boolean health = "/health".equals(req.getServletPath());
+    if (!health) {
+      HttpSession session = req.getSession(false);
+      if (session == null || session.getAttribute(Command.ATTR_ROLE) != Role.ADMIN) {
+        resp.sendError(HttpServletResponse.SC_FORBIDDEN);
+        return;
+      }
+    }
+
+    resp.setContentType("text/plain;charset=UTF-8");
+    resp.setHeader("Cache-Control", "no-store");
+    PrintWriter out = resp.getWriter();
+
+    if (health) {
+      boolean healthy = DatabaseUtil.isHealthy();
+      resp.setStatus(healthy ? HttpServletResponse.SC_OK : HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+      out.println(healthy ? "UP" : "DOWN");
+    } else {
+      Metrics.writeTo(out);
+    }
+  }
+}
@@ -0,0 +1,34 @@
+package com.assxmblxr.cafe.controller.command;
+
+import com.assxmblxr.cafe.exception.CafeException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Асинхронная команда. Возвращает путь к странице (или {@code redirect:...}) через {@link CompletionStage},
+ * поэтому может выполнять несколько независимых обращений к DAO параллельно.
+ * {@code MainServlet} запускает такие команды через {@link jakarta.servlet.AsyncContext} и не держит
+ * поток контейнера, пока они ждут базу данных.
+ */
+public interface AsyncCommand extends Command {
+
+  CompletionStage<String> executeAsync(HttpServletRequest request, HttpServletResponse response);
+
+  /**
+   * Синхронный вариант для вызова вне асинхронного контекста: ждет завершения {@link #executeAsync}.
+   */
+  @Override
+  default String execute(HttpServletRequest request, HttpServletResponse response) throws CafeException {
+    try {
+      return executeAsync(request, response).toCompletableFuture().join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof CafeException cafeException) {
+        throw cafeException;
+      }
+      throw new CafeException(e.getMessage(), e.getCause());
+    }
+  }
+}
@@ -1,49 +1,78 @@
 package com.assxmblxr.cafe.controller.command.impl;
 
-import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.controller.command.AsyncCommand;
 import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserPrincipal;
 import com.assxmblxr.cafe.exception.CafeException;
 import com.assxmblxr.cafe.service.UserService;
+import com.assxmblxr.cafe.util.LoginRateLimiter;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import jakarta.servlet.http.HttpSession;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
 
+/**
+ * Вход по email и паролю. Выполняется асинхронно ({@link AsyncCommand}): пользователь читается
+ * из базы в потоке запроса, а проверка BCrypt идет в пуле хеширования, и поток контейнера
+ * освобождается на время самой долгой части входа.
+ */
 @Slf4j
-public class LoginCommand implements Command {
+public class LoginCommand implements AsyncCommand {
   private final UserService userService;
+  private final LoginRateLimiter rateLimiter;
 
-  public LoginCommand(UserService userService) {
+  public LoginCommand(UserService userService, LoginRateLimiter rateLimiter) {
     this.userService = userService;
+    this.rateLimiter = rateLimiter;
   }
 
   @Override
-  public String execute(HttpServletRequest request, HttpServletResponse response) {
+  public CompletionStage<String> executeAsync(HttpServletRequest request, HttpServletResponse response) {
     String email = request.getParameter("email");
     String password = request.getParameter("password");
 
-    try {
-      Optional<User> optionalUser = userService.login(email, password);
+    if (!rateLimiter.tryAcquire(email, request.getRemoteAddr())) {
+      log.warn("Login attempt for {} from {} rejected by rate limiter", email, request.getRemoteAddr());
+      response.setStatus(429);
+      request.setAttribute(ATTR_ERROR, "Too many login attempts. Please try again later.");
+      return CompletableFuture.completedFuture(PATH_LOGIN);
+    }
 
+    CompletionStage<Optional<User>> login;
+    try {
+      login = userService.loginAsync(email, password);
+    } catch (CafeException e) {
+      login = CompletableFuture.failedFuture(e);
+    }
+    return login.handle((optionalUser, error) -> {
+      if (error != null) {
+        Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+        if (!(cause instanceof CafeException)) {
+          throw new CompletionException(cause);
+        }
+        log.warn("Login attempt failed: {}", cause.getMessage());
+        request.setAttribute(ATTR_ERROR, cause.getMessage());
+        return PATH_LOGIN;
+      }
       if (optionalUser.isPresent()) {
         User user = optionalUser.get();
+        rateLimiter.onSuccess(email);
 
         HttpSession session = request.getSession();
-        session.setAttribute(ATTR_USER, user);
+        session.setAttribute(ATTR_USER, UserPrincipal.of(user));
         session.setAttribute(ATTR_ROLE, user.getRole());
 
         log.info("User {} successfully logged in with role: {}", email, user.getRole());
         return "redirect:/controller?command=go_to_main";
       } else {
-        request.setAttribute(ATTR_ERROR, "Invalid password. Please try again.");
+        request.setAttribute(ATTR_ERROR, "Invalid email or password. Please try again.");
         return PATH_LOGIN;
       }
-    } catch (CafeException e) {
-      log.warn("Login attempt failed: {}", e.getMessage());
-      request.setAttribute(ATTR_ERROR, e.getMessage());
-      return PATH_LOGIN;
-    }
+    });
   }
-}
\ No newline at end of file
+}
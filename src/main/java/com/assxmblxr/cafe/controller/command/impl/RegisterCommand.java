@@ -2,6 +2,7 @@ package com.assxmblxr.cafe.controller.command.impl;
 
 import com.assxmblxr.cafe.controller.command.Command;
 import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.exception.CafeException;
 import com.assxmblxr.cafe.service.UserService;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -28,12 +29,18 @@ public class RegisterCommand implements Command {
     user.setPassword(password);
     user.setName(name);
 
-    if (userService.register(user)) {
-      log.info("New user registered: {}", email);
-      return "redirect:/controller?command=go_to_login";
-    } else {
-      log.warn("Registration failed: email {} already exists", email);
-      request.setAttribute(ATTR_ERROR, "User with this email already exists");
+    try {
+      if (userService.register(user)) {
+        log.info("New user registered: {}", email);
+        return "redirect:/controller?command=go_to_login";
+      } else {
+        log.warn("Registration failed: email {} already exists", email);
+        request.setAttribute(ATTR_ERROR, "User with this email already exists");
+        return PATH_REGISTER;
+      }
+    } catch (CafeException e) {
+      log.warn("Registration attempt failed: {}", e.getMessage());
+      request.setAttribute(ATTR_ERROR, e.getMessage());
       return PATH_REGISTER;
     }
   }
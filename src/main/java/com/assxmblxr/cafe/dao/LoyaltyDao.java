@@ -0,0 +1,25 @@
+package com.assxmblxr.cafe.dao;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface LoyaltyDao {
+
+  /**
+   * Начисляет баллы лояльности за очередную порцию завершенных и еще не учтенных заказов.
+   * Отметка заказов и начисление баллов выполняются одной транзакцией, поэтому
+   * повторный запуск после сбоя не начисляет баллы за один заказ дважды.
+   *
+   * @param chunkSize     максимальное количество заказов в порции.
+   * @param pointsPerUnit количество баллов за единицу суммы заказа.
+   * @return количество учтенных заказов и id пользователей, получивших баллы.
+   */
+  ChunkResult accrueChunk(int chunkSize, BigDecimal pointsPerUnit);
+
+  record ChunkResult(int orders, List<Long> userIds) {
+
+    public int users() {
+      return userIds.size();
+    }
+  }
+}
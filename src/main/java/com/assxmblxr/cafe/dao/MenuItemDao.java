@@ -1,15 +1,28 @@
 package com.assxmblxr.cafe.dao;
 
+import com.assxmblxr.cafe.entity.MenuCard;
 import com.assxmblxr.cafe.entity.MenuItem;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
 public interface MenuItemDao {
   void create(MenuItem menuItem);
   Optional<MenuItem> findById(Long id);
+
+  /**
+   * Возвращает позиции меню с указанными ID одним запросом. Несуществующие ID пропускаются,
+   * порядок результата не определен.
+   */
+  List<MenuItem> findByIds(Collection<Long> ids);
   Optional<MenuItem> findByName(String name);
   List<MenuItem> findAll();
+
+  /**
+   * Возвращает карточки доступных позиций меню, отсортированные по названию, без описаний.
+   */
+  List<MenuCard> findCards();
   void update(MenuItem menuItem);
   void delete(MenuItem menuItem);
 }
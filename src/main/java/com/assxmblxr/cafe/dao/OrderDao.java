@@ -1,14 +1,85 @@
 package com.assxmblxr.cafe.dao;
 
 import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderStatusChange;
+import com.assxmblxr.cafe.type.OrderStatus;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface OrderDao {
   void create(Order order);
+
+  /**
+   * Сохраняет заказ и его позиции на переданном соединении, не управляя транзакцией.
+   * Используется внутри {@link TransactionManager#execute(TransactionManager.Work)}.
+   */
+  void create(Connection conn, Order order) throws SQLException;
   Optional<Order> findById(long id);
   List<Order> findAll();
+
+  /**
+   * Возвращает страницу истории заказов (сначала новые) методом keyset-пагинации.
+   *
+   * @param after последний заказ предыдущей страницы или {@code null} для первой страницы.
+   * @param limit максимальное количество заказов на странице.
+   */
+  List<Order> findPage(Order after, int limit);
+
+  /**
+   * Последовательно передает все заказы потребителю, читая их серверным курсором,
+   * так что в памяти одновременно находится только текущий заказ.
+   */
+  void forEach(Consumer<Order> consumer);
+
+  /**
+   * Читает серверным курсором позиции завершенных заказов, созданных в {@code [from, to)}, без сборки
+   * сущностей: по одной строке на позицию, суммы в копейках считает база. Строки одного заказа идут подряд.
+   */
+  void forEachCompleted(LocalDateTime from, LocalDateTime to, CompletedItemVisitor visitor);
   void update(Order order);
+
+  /**
+   * Возвращает нагрузку на кухню по времени получения: суммарное количество позиций
+   * в активных заказах (NEW, PAID) с временем получения не раньше {@code from}.
+   */
+  Map<LocalDateTime, Integer> findPickupLoad(LocalDateTime from);
+
+  /**
+   * Переводит заказ в новый статус одним условным UPDATE, если текущий статус
+   * допускает такой переход (см. {@link OrderStatus#allowedSources()}). Позиции заказа не затрагиваются.
+   *
+   * @return true, если статус изменен; false, если заказ не найден или переход недопустим.
+   */
+  boolean updateStatus(long orderId, OrderStatus target);
+
+  /**
+   * Переводит группу заказов в новый статус одним UPDATE. Заказы, для которых переход
+   * недопустим, пропускаются.
+   *
+   * @return измененные заказы с временем получения и количеством позиций из того же UPDATE ... RETURNING.
+   */
+  List<OrderStatusChange> updateStatus(Collection<Long> orderIds, OrderStatus target);
+
+  /**
+   * То же, что {@link #updateStatus(Collection, OrderStatus)}, на переданном соединении без управления транзакцией.
+   */
+  List<OrderStatusChange> updateStatus(Connection conn, Collection<Long> orderIds, OrderStatus target)
+          throws SQLException;
   void delete(Order order);
+
+  /**
+   * Получатель строк {@link #forEachCompleted}. Заказ без позиций передается одной строкой
+   * с {@code menuItemId = 0} и {@code quantity = 0}.
+   */
+  @FunctionalInterface
+  interface CompletedItemVisitor {
+    void visit(long orderId, int hour, long totalMinor, long menuItemId, int quantity, long priceMinor);
+  }
 }
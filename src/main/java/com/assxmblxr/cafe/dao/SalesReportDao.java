@@ -0,0 +1,48 @@
+package com.assxmblxr.cafe.dao;
+
+import com.assxmblxr.cafe.type.PaymentMethod;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Агрегаты продаж по дням, часам и позициям меню, которые поддерживаются инкрементально
+ * при завершении и отмене заказов. Заказ относится к дню и часу своего создания.
+ */
+public interface SalesReportDao {
+
+  /**
+   * Добавляет в агрегаты заказы, только что переведенные в COMPLETED или CANCELLED,
+   * на переданном соединении, чтобы учет шел в одной транзакции со сменой статуса.
+   *
+   * @param orderIds ID заказов, статус которых изменен в этой транзакции.
+   */
+  void record(Connection conn, Collection<Long> orderIds) throws SQLException;
+
+  /**
+   * Пересчитывает все агрегаты заново по таблицам orders и order_items.
+   *
+   * @return количество учтенных заказов.
+   */
+  long rebuild();
+
+  List<DailySales> findDaily(LocalDate from, LocalDate to);
+
+  List<HourlySales> findHourly(LocalDate day);
+
+  /**
+   * @return позиции меню, отсортированные по выручке за период.
+   */
+  List<ItemSales> findTopItems(LocalDate from, LocalDate to, int limit);
+
+  record DailySales(LocalDate day, PaymentMethod paymentMethod, long completed, BigDecimal revenue, long cancelled) {}
+
+  record HourlySales(LocalDateTime hour, long completed, BigDecimal revenue, long cancelled) {}
+
+  record ItemSales(long menuItemId, String name, long quantity, BigDecimal revenue) {}
+}
@@ -0,0 +1,84 @@
+package com.assxmblxr.cafe.dao;
+
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Выполняет несколько операций DAO на одном соединении из пула в рамках одной транзакции.
+ * <p>
+ * Операции получают соединение через {@link Work#execute(Connection)} и передают его
+ * в методы DAO, принимающие {@link Connection}. Транзакция фиксируется, если работа завершилась
+ * без исключения, и откатывается при любом {@link SQLException} или {@link RuntimeException}.
+ * </p>
+ * Действия, зарегистрированные через {@link #afterCommit(Runnable)} внутри работы, выполняются
+ * только после фиксации транзакции, например сброс кэша, который иначе успел бы заново
+ * прочитать еще не зафиксированные данные.
+ */
+@Slf4j
+public class TransactionManager {
+  private static final ThreadLocal<List<Runnable>> afterCommit = new ThreadLocal<>();
+
+  /**
+   * Единица работы, выполняемая внутри транзакции.
+   *
+   * @param <T> тип результата.
+   */
+  @FunctionalInterface
+  public interface Work<T> {
+    T execute(Connection conn) throws SQLException;
+  }
+
+  public <T> T execute(Work<T> work) {
+    List<Runnable> outer = afterCommit.get();
+    List<Runnable> actions = new ArrayList<>();
+    afterCommit.set(actions);
+    T result;
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        result = work.execute(conn);
+        conn.commit();
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        log.debug("Transaction rolled back: {}", e.getMessage());
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error("Transaction failed", e);
+      throw new CafeException("Transaction failed", e);
+    } finally {
+      if (outer == null) {
+        afterCommit.remove();
+      } else {
+        afterCommit.set(outer);
+      }
+    }
+    for (Runnable action : actions) {
+      try {
+        action.run();
+      } catch (RuntimeException e) {
+        log.error("After-commit action failed", e);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Выполняет действие после фиксации текущей транзакции {@link #execute(Work)} в этом потоке.
+   * При откате транзакции действие не выполняется. Вне транзакции выполняется сразу.
+   */
+  public static void afterCommit(Runnable action) {
+    List<Runnable> actions = afterCommit.get();
+    if (actions == null) {
+      action.run();
+    } else {
+      actions.add(action);
+    }
+  }
+}
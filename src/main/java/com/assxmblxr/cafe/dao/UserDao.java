@@ -1,18 +1,77 @@
 package com.assxmblxr.cafe.dao;
 
 import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserSummary;
+import com.assxmblxr.cafe.type.Role;
 
 import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface UserDao {
   void create(User entity);
+
+  /**
+   * Создает пользователя, если email еще не занят, полагаясь на уникальный индекс по email.
+   * При успехе присваивает пользователю сгенерированный id.
+   *
+   * @return true, если пользователь создан; false, если email уже занят.
+   */
+  boolean createIfAbsent(User entity);
+
+  /**
+   * Проверяет, занят ли email, не читая данные пользователя.
+   */
+  boolean existsByEmail(String email);
+
+  /**
+   * Последовательно передает потребителю email всех пользователей, читая их серверным курсором.
+   */
+  void forEachEmail(Consumer<String> consumer);
   Optional<User> findById(long id);
   Optional<User> findByEmail(String email);
   List<User> findAll();
+
+  /**
+   * Возвращает страницу пользователей, упорядоченных по id, методом keyset-пагинации.
+   *
+   * @param afterId id последнего пользователя предыдущей страницы (0 для первой страницы).
+   * @param limit   максимальное количество пользователей на странице.
+   */
+  List<User> findPage(long afterId, int limit);
+
+  /**
+   * То же, что {@link #findPage(long, int)}, но читает только поля для списков пользователей,
+   * без хеша пароля и баланса.
+   */
+  List<UserSummary> findSummaryPage(long afterId, int limit);
+
+  /**
+   * Последовательно передает всех пользователей потребителю, читая их серверным курсором.
+   */
+  void forEach(Consumer<User> consumer);
   void update(User entity);
   void delete(User entity);
   void updateBlockedStatus(long userId, boolean blocked);
   void updateLoyaltyPoints(long userId, BigDecimal points);
+  void updateRole(long userId, Role role);
+
+  /**
+   * Заменяет хеш пароля, только если в базе все еще хранится {@code expectedHash}: пароль,
+   * смененный после проверки старого хеша, не перезаписывается.
+   *
+   * @return true, если хеш заменен; false, если хеш уже изменился или пользователь не найден.
+   */
+  boolean updatePassword(long userId, String expectedHash, String passwordHash);
+
+  /**
+   * Атомарно списывает сумму со счета пользователя, если на нем достаточно средств.
+   * Выполняется на переданном соединении, не управляя транзакцией.
+   *
+   * @return true, если средства списаны; false, если баланса недостаточно или пользователь не найден.
+   */
+  boolean debitBalance(Connection conn, long userId, BigDecimal amount) throws SQLException;
 }
@@ -0,0 +1,196 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.MenuItemDao;
+import com.assxmblxr.cafe.entity.MenuCard;
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.exception.CafeException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Read-through кэш меню поверх {@link MenuItemDao}.
+ * <p>
+ * Хранит неизменяемый снимок всего меню (id → позиция, название → позиция, список по названию)
+ * и подменяет его целиком. Любая запись через {@code create/update/delete} увеличивает версию,
+ * и следующий запрос перечитывает меню из базы. Снимок, загруженный до записи, не публикуется.
+ * </p>
+ * Наружу отдаются копии позиций, чтобы вызывающий код не мог изменить закэшированные объекты.
+ */
+@Slf4j
+public class CachedMenuItemDao implements MenuItemDao {
+  private final MenuItemDao delegate;
+  private final AtomicLong version = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private volatile Snapshot snapshot;
+
+  public CachedMenuItemDao(MenuItemDao delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public void create(MenuItem menuItem) {
+    delegate.create(menuItem);
+    invalidate();
+  }
+
+  @Override
+  public Optional<MenuItem> findById(Long id) {
+    return Optional.ofNullable(snapshot().byId().get(id)).map(CachedMenuItemDao::copyOf);
+  }
+
+  @Override
+  public List<MenuItem> findByIds(Collection<Long> ids) {
+    return lookup(ids).values().stream().map(CachedMenuItemDao::copyOf).toList();
+  }
+
+  @Override
+  public Optional<MenuItem> findByName(String name) {
+    return Optional.ofNullable(snapshot().byName().get(name)).map(CachedMenuItemDao::copyOf);
+  }
+
+  @Override
+  public List<MenuItem> findAll() {
+    return snapshot().items().stream().map(CachedMenuItemDao::copyOf).toList();
+  }
+
+  /**
+   * Карточки неизменяемы и строятся один раз на снимок, поэтому отдаются без копирования.
+   */
+  @Override
+  public List<MenuCard> findCards() {
+    return snapshot().cards();
+  }
+
+  @Override
+  public void update(MenuItem menuItem) {
+    delegate.update(menuItem);
+    invalidate();
+  }
+
+  @Override
+  public void delete(MenuItem menuItem) {
+    delegate.delete(menuItem);
+    invalidate();
+  }
+
+  /**
+   * Возвращает позиции меню из текущего снимка без копирования. Предназначен для DAO,
+   * которые собирают позиции заказов и не изменяют полученные объекты.
+   * Снимок берется один раз на вызов, а позиции, которых в нем нет (например, уже удаленные
+   * из меню), читаются из базы одним запросом.
+   *
+   * @param ids различные идентификаторы позиций меню.
+   * @return позиции меню по ID.
+   * @throws CafeException если какая-либо позиция не найдена.
+   */
+  public Map<Long, MenuItem> resolveAll(Collection<Long> ids) {
+    Map<Long, MenuItem> resolved = lookup(ids);
+    if (resolved.size() < ids.size()) {
+      for (Long id : ids) {
+        if (!resolved.containsKey(id)) {
+          throw new CafeException("Menu item not found: " + id);
+        }
+      }
+    }
+    return resolved;
+  }
+
+  private Map<Long, MenuItem> lookup(Collection<Long> ids) {
+    Map<Long, MenuItem> byId = snapshot().byId();
+    Map<Long, MenuItem> found = new HashMap<>();
+    List<Long> missing = new ArrayList<>();
+    for (Long id : ids) {
+      MenuItem menuItem = byId.get(id);
+      if (menuItem != null) {
+        found.put(id, menuItem);
+      } else {
+        missing.add(id);
+      }
+    }
+    if (!missing.isEmpty()) {
+      for (MenuItem menuItem : delegate.findByIds(missing)) {
+        found.put(menuItem.getMenuItemId(), menuItem);
+      }
+    }
+    return found;
+  }
+
+  public void invalidate() {
+    long newVersion = version.incrementAndGet();
+    log.debug("Menu cache invalidated, version: {}", newVersion);
+  }
+
+  /** @return количество обращений к снимку, обслуженных без загрузки меню. */
+  public long getHits() { return hits.sum(); }
+
+  /** @return количество обращений к снимку, потребовавших загрузки меню из базы. */
+  public long getMisses() { return misses.sum(); }
+
+  /** @return текущая версия меню. */
+  public long getVersion() { return version.get(); }
+
+  private Snapshot snapshot() {
+    Snapshot current = snapshot;
+    if (current != null && current.version() == version.get()) {
+      hits.increment();
+      return current;
+    }
+    misses.increment();
+    return load();
+  }
+
+  private synchronized Snapshot load() {
+    long loadVersion = version.get();
+    Snapshot current = snapshot;
+    if (current != null && current.version() == loadVersion) {
+      return current;
+    }
+
+    Snapshot loaded = Snapshot.of(loadVersion, delegate.findAll());
+    if (version.get() == loadVersion) {
+      snapshot = loaded;
+      log.debug("Menu cache loaded {} items, version: {}", loaded.items().size(), loadVersion);
+    }
+    return loaded;
+  }
+
+  private static MenuItem copyOf(MenuItem menuItem) {
+    return MenuItem.builder()
+            .id(menuItem.getMenuItemId())
+            .name(menuItem.getName())
+            .description(menuItem.getDescription())
+            .price(menuItem.getPrice())
+            .isAvailable(menuItem.isAvailable())
+            .build();
+  }
+
+  private record Snapshot(long version, Map<Long, MenuItem> byId, Map<String, MenuItem> byName,
+                          List<MenuItem> items, List<MenuCard> cards) {
+    static Snapshot of(long version, List<MenuItem> menuItems) {
+      Map<Long, MenuItem> byId = new HashMap<>();
+      Map<String, MenuItem> byName = new HashMap<>();
+      for (MenuItem menuItem : menuItems) {
+        byId.put(menuItem.getMenuItemId(), menuItem);
+        byName.put(menuItem.getName(), menuItem);
+      }
+      List<MenuItem> sorted = menuItems.stream()
+              .sorted(Comparator.comparing(MenuItem::getName))
+              .toList();
+      List<MenuCard> cards = sorted.stream()
+              .filter(MenuItem::isAvailable)
+              .map(MenuCard::of)
+              .toList();
+      return new Snapshot(version, Map.copyOf(byId), Map.copyOf(byName), sorted, cards);
+    }
+  }
+}
@@ -0,0 +1,286 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.TransactionManager;
+import com.assxmblxr.cafe.dao.UserDao;
+import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserSummary;
+import com.assxmblxr.cafe.type.Role;
+import com.assxmblxr.cafe.util.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Ограниченный по размеру кэш пользователей по id поверх {@link UserDao}.
+ * <p>
+ * Запись через этот DAO заменяет пользователя в кэше отметкой о записи с новым значением
+ * счетчика записей. Загрузка запоминает счетчик до чтения из базы и попадает в кэш, только если
+ * по этому пользователю с тех пор не было записей; записи других пользователей ей не мешают.
+ * Запись на соединении транзакции ({@link #debitBalance(Connection, long, BigDecimal)}) сбрасывает кэш
+ * после фиксации ({@link TransactionManager#afterCommit(Runnable)}), чтобы параллельное чтение
+ * не закэшировало строку до ее фиксации.
+ * </p>
+ * <p>
+ * Версия пользователя ({@link User#getVersion()}) меняется, только когда данные действительно
+ * изменились: перезагрузка по истечении {@code ttlSeconds} с теми же данными сохраняет версию.
+ * Записи в обход DAO (массовые SQL-обновления) становятся видны не позже чем через {@code ttlSeconds}.
+ * </p>
+ * Наружу отдаются копии пользователей, чтобы вызывающий код не мог изменить закэшированные объекты.
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code users.cache.maxEntries} - максимальное число пользователей в кэше (по умолчанию 10000)</li>
+ * <li>{@code users.cache.ttlSeconds} - время жизни записи (по умолчанию 60)</li>
+ * </ul>
+ */
+@Slf4j
+public class CachedUserDao implements UserDao {
+  private final UserDao delegate;
+  private final int maxEntries;
+  private final long ttlNanos;
+  private final Map<Long, Entry> cache = new ConcurrentHashMap<>();
+  private final AtomicLong versions = new AtomicLong();
+  private final AtomicLong stamps = new AtomicLong();
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+
+  public CachedUserDao(UserDao delegate, int maxEntries, long ttlSeconds) {
+    this.delegate = delegate;
+    this.maxEntries = maxEntries;
+    this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+  }
+
+  public static CachedUserDao fromConfig(UserDao delegate) {
+    return new CachedUserDao(delegate,
+            AppConfig.getInt("users.cache.maxEntries", 10_000),
+            AppConfig.getLong("users.cache.ttlSeconds", 60));
+  }
+
+  @Override
+  public void create(User user) {
+    delegate.create(user);
+  }
+
+  @Override
+  public boolean createIfAbsent(User user) {
+    return delegate.createIfAbsent(user);
+  }
+
+  @Override
+  public boolean existsByEmail(String email) {
+    return delegate.existsByEmail(email);
+  }
+
+  @Override
+  public void forEachEmail(Consumer<String> consumer) {
+    delegate.forEachEmail(consumer);
+  }
+
+  @Override
+  public Optional<User> findById(long id) {
+    Entry entry = cache.get(id);
+    if (entry != null && entry.user() != null && System.nanoTime() - entry.loadedAt() < ttlNanos) {
+      hits.increment();
+      return Optional.of(copyOf(entry.user()));
+    }
+    misses.increment();
+    long loadStamp = stamps.get();
+    Optional<User> user = delegate.findById(id);
+    return user.map(u -> copyOf(cacheIfUnchanged(u, loadStamp)));
+  }
+
+  /**
+   * Читает пользователя из базы (кэш по email не ведется) и заодно кэширует его по id,
+   * чтобы последующие проверки этой сессии не обращались к базе.
+   */
+  @Override
+  public Optional<User> findByEmail(String email) {
+    long loadStamp = stamps.get();
+    Optional<User> user = delegate.findByEmail(email);
+    return user.map(u -> copyOf(cacheIfUnchanged(u, loadStamp)));
+  }
+
+  @Override
+  public List<User> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public List<User> findPage(long afterId, int limit) {
+    return delegate.findPage(afterId, limit);
+  }
+
+  @Override
+  public List<UserSummary> findSummaryPage(long afterId, int limit) {
+    return delegate.findSummaryPage(afterId, limit);
+  }
+
+  @Override
+  public void forEach(Consumer<User> consumer) {
+    delegate.forEach(consumer);
+  }
+
+  @Override
+  public void update(User user) {
+    try {
+      delegate.update(user);
+    } finally {
+      invalidate(user.getId());
+    }
+  }
+
+  @Override
+  public void delete(User user) {
+    try {
+      delegate.delete(user);
+    } finally {
+      invalidate(user.getId());
+    }
+  }
+
+  @Override
+  public void updateBlockedStatus(long userId, boolean blocked) {
+    try {
+      delegate.updateBlockedStatus(userId, blocked);
+    } finally {
+      invalidate(userId);
+    }
+  }
+
+  @Override
+  public void updateLoyaltyPoints(long userId, BigDecimal points) {
+    try {
+      delegate.updateLoyaltyPoints(userId, points);
+    } finally {
+      invalidate(userId);
+    }
+  }
+
+  @Override
+  public void updateRole(long userId, Role role) {
+    try {
+      delegate.updateRole(userId, role);
+    } finally {
+      invalidate(userId);
+    }
+  }
+
+  @Override
+  public boolean updatePassword(long userId, String expectedHash, String passwordHash) {
+    try {
+      return delegate.updatePassword(userId, expectedHash, passwordHash);
+    } finally {
+      invalidate(userId);
+    }
+  }
+
+  @Override
+  public boolean debitBalance(Connection conn, long userId, BigDecimal amount) throws SQLException {
+    try {
+      return delegate.debitBalance(conn, userId, amount);
+    } finally {
+      TransactionManager.afterCommit(() -> invalidate(userId));
+    }
+  }
+
+  public void invalidate(long userId) {
+    cache.put(userId, new Entry(null, System.nanoTime(), stamps.incrementAndGet()));
+  }
+
+  /** @return количество чтений, обслуженных из кэша. */
+  public long getHits() { return hits.sum(); }
+
+  /** @return количество чтений, потребовавших обращения к базе. */
+  public long getMisses() { return misses.sum(); }
+
+  /** @return текущее количество записей в кэше, включая отметки о записи. */
+  public int getSize() { return cache.size(); }
+
+  /**
+   * Кэширует загруженного пользователя, если после {@code loadStamp} по нему не было записей,
+   * и назначает версию: прежнюю, если данные не изменились, иначе новую.
+   */
+  private User cacheIfUnchanged(User user, long loadStamp) {
+    if (cache.size() >= maxEntries) {
+      evict();
+    }
+    cache.compute(user.getId(), (id, current) -> {
+      if (current != null && current.user() != null && sameData(current.user(), user)) {
+        user.setVersion(current.user().getVersion());
+      } else {
+        user.setVersion(versions.incrementAndGet());
+      }
+      // запись или более поздняя загрузка после начала этой загрузки: ее результат устарел
+      if (current != null && current.stamp() > loadStamp) {
+        return current;
+      }
+      return new Entry(user, System.nanoTime(), stamps.incrementAndGet());
+    });
+    return user;
+  }
+
+  private static boolean sameData(User a, User b) {
+    return a.isBlocked() == b.isBlocked()
+            && a.getRole() == b.getRole()
+            && Objects.equals(a.getName(), b.getName())
+            && Objects.equals(a.getEmail(), b.getEmail())
+            && Objects.equals(a.getPassword(), b.getPassword())
+            && sameAmount(a.getAccountBalance(), b.getAccountBalance())
+            && sameAmount(a.getLoyaltyPoints(), b.getLoyaltyPoints());
+  }
+
+  private static boolean sameAmount(BigDecimal a, BigDecimal b) {
+    return a == null ? b == null : b != null && a.compareTo(b) == 0;
+  }
+
+  /**
+   * Удаляет устаревшие записи, а если их недостаточно - примерно десятую часть пользователей.
+   * Свежие отметки о записи не удаляются, пока не устареют: они отклоняют загрузки, начатые до записи.
+   */
+  private void evict() {
+    long now = System.nanoTime();
+    cache.values().removeIf(entry -> now - entry.loadedAt() >= ttlNanos);
+    int toRemove = cache.size() - maxEntries + Math.max(1, maxEntries / 10);
+    Iterator<Entry> iterator = cache.values().iterator();
+    while (toRemove > 0 && iterator.hasNext()) {
+      if (iterator.next().user() != null) {
+        iterator.remove();
+        toRemove--;
+      }
+    }
+    log.debug("User cache evicted, size: {}", cache.size());
+  }
+
+  private static User copyOf(User user) {
+    return User.builder()
+            .id(user.getId())
+            .name(user.getName())
+            .email(user.getEmail())
+            .password(user.getPassword())
+            .accountBalance(user.getAccountBalance())
+            .loyaltyPoints(user.getLoyaltyPoints())
+            .blocked(user.isBlocked())
+            .role(user.getRole())
+            .version(user.getVersion())
+            .build();
+  }
+
+  /**
+   * @param user     пользователь или {@code null} для отметки о записи.
+   * @param loadedAt время загрузки или записи ({@link System#nanoTime()}).
+   * @param stamp    значение счетчика записей на момент создания записи кэша.
+   */
+  private record Entry(User user, long loadedAt, long stamp) {}
+}
@@ -0,0 +1,254 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderStatusChange;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.type.OrderStatus;
+import com.assxmblxr.cafe.util.AppConfig;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Декоратор {@link OrderDaoImpl}, объединяющий одиночные вызовы {@link #create(Order)} в групповые коммиты.
+ * <p>
+ * Заказ помещается в ограниченную очередь, а отдельный поток-писатель собирает до {@code maxBatchSize}
+ * заказов, ожидая новые не дольше {@code maxLingerMillis}, и сохраняет их одним многострочным INSERT
+ * в одной транзакции. Вызывающий поток ждет завершения своего future, поэтому семантика
+ * {@code create} не меняется: после возврата у заказа есть id, и он зафиксирован в базе.
+ * Если групповая запись не удалась (в том числе из-за непроверенного исключения на некорректном заказе),
+ * заказы группы сохраняются по одному, чтобы ошибка одного заказа не отклоняла остальные; поток-писатель
+ * при этом продолжает работу.
+ * </p>
+ * Чтение и запись на переданном соединении делегируются без изменений.
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code orders.groupCommit.enabled} - включает режим (по умолчанию false)</li>
+ * <li>{@code orders.groupCommit.queueCapacity} - максимальная длина очереди (по умолчанию 1000)</li>
+ * <li>{@code orders.groupCommit.maxBatchSize} - максимальный размер группы (по умолчанию 64)</li>
+ * <li>{@code orders.groupCommit.maxLingerMillis} - максимальное ожидание добора группы (по умолчанию 5)</li>
+ * </ul>
+ */
+@Slf4j
+public class GroupCommitOrderDao implements OrderDao, AutoCloseable {
+  private final OrderDaoImpl delegate;
+  private final BlockingQueue<PendingOrder> queue;
+  private final int maxBatchSize;
+  private final long maxLingerNanos;
+  private final Thread writer;
+  private volatile boolean running = true;
+
+  public GroupCommitOrderDao(OrderDaoImpl delegate, int queueCapacity, int maxBatchSize, long maxLingerMillis) {
+    this.delegate = delegate;
+    this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    this.maxBatchSize = maxBatchSize;
+    this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+    this.writer = new Thread(this::runWriter, "order-group-commit");
+    this.writer.setDaemon(true);
+    this.writer.start();
+    log.info("Order group commit started: queueCapacity={}, maxBatchSize={}, maxLingerMillis={}",
+            queueCapacity, maxBatchSize, maxLingerMillis);
+  }
+
+  public static GroupCommitOrderDao fromConfig(OrderDaoImpl delegate) {
+    return new GroupCommitOrderDao(delegate,
+            AppConfig.getInt("orders.groupCommit.queueCapacity", 1000),
+            AppConfig.getInt("orders.groupCommit.maxBatchSize", 64),
+            AppConfig.getLong("orders.groupCommit.maxLingerMillis", 5));
+  }
+
+  @Override
+  public void create(Order order) {
+    try {
+      submit(order).join();
+    } catch (CompletionException e) {
+      if (e.getCause() instanceof CafeException cafeException) {
+        throw cafeException;
+      }
+      throw new CafeException("Error during order creation", e.getCause());
+    }
+  }
+
+  /**
+   * Ставит заказ в очередь на групповую запись.
+   *
+   * @param order новый заказ.
+   * @return future, завершающийся сохраненным заказом после фиксации транзакции.
+   * @throws CafeException если очередь заполнена.
+   */
+  public CompletableFuture<Order> submit(Order order) {
+    if (!running) {
+      throw new CafeException("Order writer is stopped");
+    }
+    PendingOrder pending = new PendingOrder(order, new CompletableFuture<>());
+    if (!queue.offer(pending)) {
+      log.warn("Order queue is full, rejecting order for user {}", order.getUserId());
+      throw new CafeException("Too many orders right now, please try again in a moment");
+    }
+    return pending.future();
+  }
+
+  @Override
+  public void create(Connection conn, Order order) throws SQLException {
+    delegate.create(conn, order);
+  }
+
+  @Override
+  public Optional<Order> findById(long id) {
+    return delegate.findById(id);
+  }
+
+  @Override
+  public List<Order> findAll() {
+    return delegate.findAll();
+  }
+
+  @Override
+  public List<Order> findPage(Order after, int limit) {
+    return delegate.findPage(after, limit);
+  }
+
+  @Override
+  public void forEach(Consumer<Order> consumer) {
+    delegate.forEach(consumer);
+  }
+
+  @Override
+  public void forEachCompleted(LocalDateTime from, LocalDateTime to, CompletedItemVisitor visitor) {
+    delegate.forEachCompleted(from, to, visitor);
+  }
+
+  @Override
+  public void update(Order order) {
+    delegate.update(order);
+  }
+
+  @Override
+  public Map<LocalDateTime, Integer> findPickupLoad(LocalDateTime from) {
+    return delegate.findPickupLoad(from);
+  }
+
+  @Override
+  public boolean updateStatus(long orderId, OrderStatus target) {
+    return delegate.updateStatus(orderId, target);
+  }
+
+  @Override
+  public List<OrderStatusChange> updateStatus(Collection<Long> orderIds, OrderStatus target) {
+    return delegate.updateStatus(orderIds, target);
+  }
+
+  @Override
+  public List<OrderStatusChange> updateStatus(Connection conn, Collection<Long> orderIds, OrderStatus target)
+          throws SQLException {
+    return delegate.updateStatus(conn, orderIds, target);
+  }
+
+  @Override
+  public void delete(Order order) {
+    delegate.delete(order);
+  }
+
+  /**
+   * Останавливает прием заказов, дописывает уже поставленные в очередь и завершает поток-писатель.
+   */
+  @Override
+  public void close() {
+    running = false;
+    try {
+      writer.join(TimeUnit.SECONDS.toMillis(10));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    PendingOrder pending;
+    while ((pending = queue.poll()) != null) {
+      pending.future().completeExceptionally(new CafeException("Order writer is stopped"));
+    }
+  }
+
+  private void runWriter() {
+    List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+    while (running || !queue.isEmpty()) {
+      try {
+        PendingOrder first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+          continue;
+        }
+        batch.add(first);
+        long deadline = System.nanoTime() + maxLingerNanos;
+        while (batch.size() < maxBatchSize) {
+          queue.drainTo(batch, maxBatchSize - batch.size());
+          long remaining = deadline - System.nanoTime();
+          if (batch.size() >= maxBatchSize || remaining <= 0) {
+            break;
+          }
+          PendingOrder next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          batch.add(next);
+        }
+        write(batch);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        batch.forEach(p -> p.future().completeExceptionally(new CafeException("Order writer interrupted")));
+        return;
+      } catch (RuntimeException e) {
+        log.error("Order writer failed on a group of {} orders", batch.size(), e);
+      } finally {
+        // заказы группы, оставшиеся без результата, не должны ждать вечно; завершенные не меняются
+        batch.forEach(p -> p.future().completeExceptionally(new CafeException("Order was not saved")));
+        batch.clear();
+      }
+    }
+  }
+
+  private void write(List<PendingOrder> batch) {
+    List<Order> orders = batch.stream().map(PendingOrder::order).toList();
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      conn.setAutoCommit(false);
+      try {
+        delegate.createAll(conn, orders);
+        conn.commit();
+      } catch (SQLException | RuntimeException e) {
+        conn.rollback();
+        throw e;
+      }
+      log.debug("Group commit of {} orders", orders.size());
+      batch.forEach(p -> p.future().complete(p.order()));
+    } catch (SQLException | RuntimeException e) {
+      log.warn("Group commit of {} orders failed, writing them one by one", orders.size(), e);
+      writeOneByOne(batch);
+    }
+  }
+
+  private void writeOneByOne(List<PendingOrder> batch) {
+    for (PendingOrder pending : batch) {
+      try {
+        pending.order().setOrderId(null);
+        delegate.create(pending.order());
+        pending.future().complete(pending.order());
+      } catch (RuntimeException e) {
+        pending.future().completeExceptionally(e);
+      }
+    }
+  }
+
+  private record PendingOrder(Order order, CompletableFuture<Order> future) {}
+}
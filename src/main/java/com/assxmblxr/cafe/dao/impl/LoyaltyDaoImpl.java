@@ -0,0 +1,67 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.LoyaltyDao;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+/**
+ * Начисление баллов лояльности одним SQL-выражением на порцию заказов.
+ * Учтенные заказы помечаются флагом {@code orders.loyalty_accrued}; блокировка
+ * {@code FOR UPDATE SKIP LOCKED} позволяет безопасно запускать задачу на нескольких узлах.
+ * Флаг и частичный индекс по неучтенным заказам создает миграция {@code V4__loyalty_accrual.sql}.
+ * Баллы пишутся в {@code users} в обход {@code CachedUserDao}, поэтому возвращаются id пользователей,
+ * чьи записи в кэше нужно сбросить.
+ */
+@Slf4j
+public class LoyaltyDaoImpl implements LoyaltyDao {
+  private static final String ACCRUE_CHUNK = """
+          WITH chunk AS (
+              SELECT order_id, user_id, total_price
+              FROM orders
+              WHERE status = 'COMPLETED' AND loyalty_accrued = FALSE
+              ORDER BY order_id
+              LIMIT ?
+              FOR UPDATE SKIP LOCKED
+          ), marked AS (
+              UPDATE orders o
+              SET loyalty_accrued = TRUE
+              FROM chunk c
+              WHERE o.order_id = c.order_id
+              RETURNING c.user_id, c.total_price
+          ), credited AS (
+              UPDATE users u
+              SET loyalty_points = u.loyalty_points + p.points
+              FROM (SELECT user_id, ROUND(SUM(total_price) * ?, 2) AS points
+                    FROM marked
+                    GROUP BY user_id) p
+              WHERE u.user_id = p.user_id
+              RETURNING u.user_id
+          )
+          SELECT (SELECT COUNT(*) FROM marked) AS orders,
+                 ARRAY(SELECT user_id FROM credited) AS users
+          """;
+
+  @Override
+  public ChunkResult accrueChunk(int chunkSize, BigDecimal pointsPerUnit) {
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(ACCRUE_CHUNK)) {
+      ps.setInt(1, chunkSize);
+      ps.setBigDecimal(2, pointsPerUnit);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return new ChunkResult(rs.getInt("orders"), List.of((Long[]) rs.getArray("users").getArray()));
+      }
+    } catch (SQLException e) {
+      log.error("Error accruing loyalty points", e);
+      throw new CafeException(e);
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package com.assxmblxr.cafe.dao.impl;
 
 import com.assxmblxr.cafe.dao.MenuItemDao;
+import com.assxmblxr.cafe.entity.MenuCard;
 import com.assxmblxr.cafe.entity.MenuItem;
 import com.assxmblxr.cafe.exception.CafeException;
 import com.assxmblxr.cafe.util.DatabaseUtil;
@@ -11,6 +12,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,9 +22,17 @@ public class MenuItemDaoImpl implements MenuItemDao {
             INSERT INTO menu_items (name, description, price, is_available)
             VALUES (?, ?, ?, ?);
             """;
-  private static final String SELECT_BY_ID = "SELECT * FROM menu_items WHERE id = ?;";
-  private static final String SELECT_BY_NAME = "SELECT * FROM menu_items WHERE name = ?;";
-  private static final String SELECT_ALL = "SELECT * FROM menu_items;";
+  private static final String ITEM_COLUMNS = "menu_item_id, name, description, price, is_available";
+  private static final String SELECT_BY_ID = "SELECT " + ITEM_COLUMNS + " FROM menu_items WHERE menu_item_id = ?;";
+  private static final String SELECT_BY_IDS = "SELECT " + ITEM_COLUMNS + " FROM menu_items WHERE menu_item_id = ANY(?);";
+  private static final String SELECT_BY_NAME = "SELECT " + ITEM_COLUMNS + " FROM menu_items WHERE name = ?;";
+  private static final String SELECT_ALL = "SELECT " + ITEM_COLUMNS + " FROM menu_items;";
+  private static final String SELECT_CARDS = """
+          SELECT menu_item_id, name, price, is_available
+          FROM menu_items
+          WHERE is_available
+          ORDER BY name;
+          """;
   private static final String UPDATE_ITEM = """
           UPDATE menu_items
           SET name = ?,
@@ -31,7 +41,7 @@ public class MenuItemDaoImpl implements MenuItemDao {
               is_available = ?
           WHERE menu_item_id = ?;
           """;
-  private static final String DELETE_ITEM = "DELETE FROM menu_items WHERE id = ?;";
+  private static final String DELETE_ITEM = "DELETE FROM menu_items WHERE menu_item_id = ?;";
 
   @Override
   public void create(MenuItem menuItem) {
@@ -66,6 +76,24 @@ public class MenuItemDaoImpl implements MenuItemDao {
     return Optional.empty();
   }
 
+  @Override
+  public List<MenuItem> findByIds(Collection<Long> ids) {
+    List<MenuItem> menuItems = new ArrayList<>(ids.size());
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_BY_IDS)) {
+      ps.setArray(1, conn.createArrayOf("bigint", ids.toArray()));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          menuItems.add(extractItemFromResultSet(rs));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error finding menu items by ids {}", ids, e);
+      throw new CafeException(e);
+    }
+    return menuItems;
+  }
+
   @Override
   public Optional<MenuItem> findByName(String name) {
     try (Connection conn = DatabaseUtil.getConnection();
@@ -99,6 +127,26 @@ public class MenuItemDaoImpl implements MenuItemDao {
     return menuItems;
   }
 
+  @Override
+  public List<MenuCard> findCards() {
+    List<MenuCard> cards = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_CARDS);
+         ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        cards.add(new MenuCard(
+                rs.getLong("menu_item_id"),
+                rs.getString("name"),
+                rs.getBigDecimal("price"),
+                rs.getBoolean("is_available")));
+      }
+    } catch (SQLException e) {
+      log.error("Error finding menu cards", e);
+      throw new CafeException(e);
+    }
+    return cards;
+  }
+
   @Override
   public void update(MenuItem menuItem) {
     try (Connection conn = DatabaseUtil.getConnection();
@@ -132,11 +180,11 @@ public class MenuItemDaoImpl implements MenuItemDao {
 
   private MenuItem extractItemFromResultSet(ResultSet rs) throws SQLException {
     return MenuItem.builder()
-            .id(rs.getLong(1))
-            .name(rs.getString(2))
-            .description(rs.getString(3))
-            .price(rs.getBigDecimal(4))
-            .isAvailable(rs.getBoolean(5))
+            .id(rs.getLong("menu_item_id"))
+            .name(rs.getString("name"))
+            .description(rs.getString("description"))
+            .price(rs.getBigDecimal("price"))
+            .isAvailable(rs.getBoolean("is_available"))
             .build();
   }
 }
@@ -3,6 +3,7 @@ package com.assxmblxr.cafe.dao.impl;
 import com.assxmblxr.cafe.dao.OrderDao;
 import com.assxmblxr.cafe.entity.Order;
 import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.entity.OrderStatusChange;
 import com.assxmblxr.cafe.entity.MenuItem;
 import com.assxmblxr.cafe.type.OrderStatus;
 import com.assxmblxr.cafe.type.PaymentMethod;
@@ -10,40 +11,122 @@ import com.assxmblxr.cafe.exception.CafeException;
 import com.assxmblxr.cafe.util.DatabaseUtil;
 import lombok.extern.slf4j.Slf4j;
 
+import java.math.BigDecimal;
 import java.sql.*;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 public class OrderDaoImpl implements OrderDao {
   String INSERT_ORDER = "INSERT INTO orders (user_id, total_price, pickup_time, payment_method, status, created_at) VALUES (?, ?, ?, ?, ?, ?)";
-  String INSERT_ITEM = "INSERT INTO order_items (order_id, menu_item_id, quantity) VALUES (?, ?, ?)";
+  String INSERT_ORDERS_BULK = """
+          WITH input AS (
+              SELECT nextval(pg_get_serial_sequence('orders', 'order_id')) AS order_id, t.*
+              FROM unnest(?::bigint[], ?::numeric[], ?::timestamp[], ?::varchar[], ?::varchar[], ?::timestamp[])
+                   WITH ORDINALITY AS t(user_id, total_price, pickup_time, payment_method, status, created_at, ord)
+          ), inserted AS (
+              INSERT INTO orders (order_id, user_id, total_price, pickup_time, payment_method, status, created_at)
+              SELECT order_id, user_id, total_price, pickup_time, payment_method, status, created_at
+              FROM input
+          )
+          SELECT order_id FROM input ORDER BY ord""";
+  String INSERT_ITEM = "INSERT INTO order_items (order_id, menu_item_id, quantity, unit_price) VALUES (?, ?, ?, ?)";
   String UPDATE_ORDER = "UPDATE orders SET user_id=?, total_price=?, pickup_time=?, payment_method=?, status=? WHERE order_id=?";
-  String DELETE_ITEMS = "DELETE FROM order_items WHERE order_id = ?";
-  String SELECT_BY_ID = "SELECT * FROM orders WHERE order_id = ?";
-  String SELECT_ALL = "SELECT * FROM orders ORDER BY created_at DESC";
+  String UPDATE_STATUS = "UPDATE orders SET status = ? WHERE order_id = ? AND status = ANY(?)";
+  String UPDATE_STATUS_BATCH = """
+          UPDATE orders o SET status = ?
+          WHERE o.order_id = ANY(?) AND o.status = ANY(?)
+          RETURNING o.order_id, o.pickup_time,
+                    (SELECT COALESCE(SUM(oi.quantity), 0) FROM order_items oi WHERE oi.order_id = o.order_id) AS units""";
+  String SELECT_ITEM_QUANTITIES = "SELECT menu_item_id, quantity FROM order_items WHERE order_id = ?";
+  String UPSERT_ITEM = """
+          INSERT INTO order_items (order_id, menu_item_id, quantity, unit_price) VALUES (?, ?, ?, ?)
+          ON CONFLICT (order_id, menu_item_id) DO UPDATE SET quantity = EXCLUDED.quantity""";
+  String DELETE_REMOVED_ITEMS = "DELETE FROM order_items WHERE order_id = ? AND menu_item_id = ANY(?)";
+  String SELECT_PICKUP_LOAD = """
+          SELECT o.pickup_time, SUM(oi.quantity) AS units
+          FROM orders o
+          JOIN order_items oi ON oi.order_id = o.order_id
+          WHERE o.pickup_time >= ? AND o.status IN ('NEW', 'PAID')
+          GROUP BY o.pickup_time""";
+  String DELETE_ORDER = "DELETE FROM orders WHERE order_id = ?";
+  String SELECT_COMPLETED_ITEMS = """
+          SELECT o.order_id, EXTRACT(HOUR FROM o.created_at)::int AS hour, (o.total_price * 100)::bigint AS total_minor,
+                 COALESCE(oi.menu_item_id, 0) AS menu_item_id, COALESCE(oi.quantity, 0) AS quantity,
+                 COALESCE((mi.price * 100)::bigint, 0) AS price_minor
+          FROM orders o
+          LEFT JOIN order_items oi ON oi.order_id = o.order_id
+          LEFT JOIN menu_items mi ON mi.menu_item_id = oi.menu_item_id
+          WHERE o.status = 'COMPLETED' AND o.created_at >= ? AND o.created_at < ?
+          ORDER BY o.created_at, o.order_id""";
+  String ORDER_COLUMNS = "o.order_id, o.user_id, o.total_price, o.pickup_time, o.payment_method, o.status, o.created_at";
+  String JOINED_ITEM_COLUMNS = "mi.menu_item_id, mi.name, mi.description, mi.price, mi.is_available, oi.quantity";
+  String JOINED_ITEMS = """
+          LEFT JOIN order_items oi ON oi.order_id = o.order_id
+          LEFT JOIN menu_items mi ON mi.menu_item_id = oi.menu_item_id""";
+  String CATALOG_ITEM_COLUMNS = "oi.menu_item_id, oi.quantity";
+  String CATALOG_ITEMS = "LEFT JOIN order_items oi ON oi.order_id = o.order_id";
+  String ORDERS_BY_ID = """
+          (SELECT order_id, user_id, total_price, pickup_time, payment_method, status, created_at
+           FROM orders
+           WHERE order_id = ?)""";
+  String ORDERS_FIRST_PAGE = """
+          (SELECT order_id, user_id, total_price, pickup_time, payment_method, status, created_at
+           FROM orders
+           ORDER BY created_at DESC, order_id DESC
+           LIMIT ?)""";
+  String ORDERS_PAGE_AFTER = """
+          (SELECT order_id, user_id, total_price, pickup_time, payment_method, status, created_at
+           FROM orders
+           WHERE (created_at, order_id) < (?, ?)
+           ORDER BY created_at DESC, order_id DESC
+           LIMIT ?)""";
+  int STREAM_FETCH_SIZE = 500;
+
+  private final CachedMenuItemDao menuCatalog;
+  private final String selectById;
+  private final String selectAll;
+  private final String selectFirstPage;
+  private final String selectPageAfter;
+
+  public OrderDaoImpl() {
+    this(null);
+  }
+
+  /**
+   * @param menuCatalog кэш меню, из снимка которого разрешаются позиции заказов по menu_item_id;
+   *                    при {@code null} позиции читаются JOIN-ом с таблицей menu_items.
+   */
+  public OrderDaoImpl(CachedMenuItemDao menuCatalog) {
+    this.menuCatalog = menuCatalog;
+    this.selectById = selectWithItems(ORDERS_BY_ID);
+    this.selectAll = selectWithItems("orders");
+    this.selectFirstPage = selectWithItems(ORDERS_FIRST_PAGE);
+    this.selectPageAfter = selectWithItems(ORDERS_PAGE_AFTER);
+  }
+
+  private String selectWithItems(String source) {
+    String itemColumns = menuCatalog == null ? JOINED_ITEM_COLUMNS : CATALOG_ITEM_COLUMNS;
+    String itemJoins = menuCatalog == null ? JOINED_ITEMS : CATALOG_ITEMS;
+    return "SELECT " + ORDER_COLUMNS + ", " + itemColumns + "\n"
+            + "FROM " + source + " o\n"
+            + itemJoins + "\n"
+            + "ORDER BY o.created_at DESC, o.order_id DESC";
+  }
 
   @Override
   public void create(Order order) {
     try (Connection conn = DatabaseUtil.getConnection()) {
       conn.setAutoCommit(false);
-      try (PreparedStatement psOrder = conn.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS)) {
-        psOrder.setLong(1, order.getUserId());
-        psOrder.setBigDecimal(2, order.getTotalPrice());
-        psOrder.setTimestamp(3, Timestamp.valueOf(order.getPickupTime()));
-        psOrder.setString(4, order.getPaymentMethod().name());
-        psOrder.setString(5, order.getStatus().name());
-        psOrder.setTimestamp(6, Timestamp.valueOf(order.getCreatedAt()));
-
-        psOrder.executeUpdate();
-        try (ResultSet rs = psOrder.getGeneratedKeys()) {
-          if (rs.next()) {
-            order.setOrderId(rs.getLong(1));
-          }
-        }
-        insertOrderItems(conn, order);
-
+      try {
+        create(conn, order);
         conn.commit();
         log.info("Order created successfully, ID: {}", order.getOrderId());
       } catch (SQLException e) {
@@ -56,6 +139,26 @@ public class OrderDaoImpl implements OrderDao {
     }
   }
 
+  @Override
+  public void create(Connection conn, Order order) throws SQLException {
+    try (PreparedStatement psOrder = conn.prepareStatement(INSERT_ORDER, Statement.RETURN_GENERATED_KEYS)) {
+      psOrder.setLong(1, order.getUserId());
+      psOrder.setBigDecimal(2, order.getTotalPrice());
+      psOrder.setTimestamp(3, toTimestamp(order.getPickupTime()));
+      psOrder.setString(4, order.getPaymentMethod().name());
+      psOrder.setString(5, order.getStatus().name());
+      psOrder.setTimestamp(6, Timestamp.valueOf(order.getCreatedAt()));
+
+      psOrder.executeUpdate();
+      try (ResultSet rs = psOrder.getGeneratedKeys()) {
+        if (rs.next()) {
+          order.setOrderId(rs.getLong(1));
+        }
+      }
+    }
+    insertOrderItems(conn, order);
+  }
+
   @Override
   public void update(Order order) {
     try (Connection conn = DatabaseUtil.getConnection()) {
@@ -64,19 +167,14 @@ public class OrderDaoImpl implements OrderDao {
         try (PreparedStatement ps = conn.prepareStatement(UPDATE_ORDER)) {
           ps.setLong(1, order.getUserId());
           ps.setBigDecimal(2, order.getTotalPrice());
-          ps.setTimestamp(3, Timestamp.valueOf(order.getPickupTime()));
+          ps.setTimestamp(3, toTimestamp(order.getPickupTime()));
           ps.setString(4, order.getPaymentMethod().name());
           ps.setString(5, order.getStatus().name());
           ps.setLong(6, order.getOrderId());
           ps.executeUpdate();
         }
 
-        try (PreparedStatement psDel = conn.prepareStatement(DELETE_ITEMS)) {
-          psDel.setLong(1, order.getOrderId());
-          psDel.executeUpdate();
-        }
-
-        insertOrderItems(conn, order);
+        updateOrderItems(conn, order);
 
         conn.commit();
         log.info("Order {} updated successfully", order.getOrderId());
@@ -90,15 +188,187 @@ public class OrderDaoImpl implements OrderDao {
     }
   }
 
+  /**
+   * Приводит позиции заказа в базе к {@link Order#getItems()}, изменяя только отличающиеся строки:
+   * удаляет убранные позиции, вставляет новые и обновляет изменившееся количество одним upsert-батчем.
+   * Позиции с одинаковым menu_item_id складываются; позиция с итоговым количеством 0 или меньше
+   * считается удаленной. Строку заказа к этому моменту уже блокирует UPDATE orders, поэтому
+   * параллельное редактирование того же заказа ждет конца транзакции. Upsert опирается на ключ
+   * {@code (order_id, menu_item_id)} из миграции {@code V5__order_items_key.sql}. Цена новой позиции
+   * берется из заказа, у существующей позиции сохраняется цена на момент ее добавления.
+   */
+  private void updateOrderItems(Connection conn, Order order) throws SQLException {
+    Map<Long, Integer> current = new HashMap<>();
+    try (PreparedStatement ps = conn.prepareStatement(SELECT_ITEM_QUANTITIES)) {
+      ps.setLong(1, order.getOrderId());
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          current.put(rs.getLong("menu_item_id"), rs.getInt("quantity"));
+        }
+      }
+    }
+
+    Map<Long, Integer> target = new LinkedHashMap<>();
+    Map<Long, BigDecimal> prices = new HashMap<>();
+    if (order.getItems() != null) {
+      for (OrderItem item : order.getItems()) {
+        target.merge(item.getMenuItem().getMenuItemId(), item.getQuantity(), Integer::sum);
+        prices.putIfAbsent(item.getMenuItem().getMenuItemId(), item.getMenuItem().getPrice());
+      }
+      target.values().removeIf(quantity -> quantity <= 0);
+    }
+
+    Long[] removed = current.keySet().stream()
+            .filter(menuItemId -> !target.containsKey(menuItemId))
+            .toArray(Long[]::new);
+    if (removed.length > 0) {
+      try (PreparedStatement ps = conn.prepareStatement(DELETE_REMOVED_ITEMS)) {
+        ps.setLong(1, order.getOrderId());
+        ps.setArray(2, conn.createArrayOf("bigint", removed));
+        ps.executeUpdate();
+      }
+    }
+
+    int changed = 0;
+    try (PreparedStatement ps = conn.prepareStatement(UPSERT_ITEM)) {
+      for (Map.Entry<Long, Integer> entry : target.entrySet()) {
+        if (entry.getValue().equals(current.get(entry.getKey()))) {
+          continue;
+        }
+        ps.setLong(1, order.getOrderId());
+        ps.setLong(2, entry.getKey());
+        ps.setInt(3, entry.getValue());
+        ps.setBigDecimal(4, prices.get(entry.getKey()));
+        ps.addBatch();
+        changed++;
+      }
+      if (changed > 0) {
+        ps.executeBatch();
+      }
+    }
+    log.debug("Order {} items: {} removed, {} inserted or updated, {} untouched",
+            order.getOrderId(), removed.length, changed, target.size() - changed);
+  }
+
+  @Override
+  public boolean updateStatus(long orderId, OrderStatus target) {
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(UPDATE_STATUS)) {
+      ps.setString(1, target.name());
+      ps.setLong(2, orderId);
+      ps.setArray(3, conn.createArrayOf("varchar", sourceStatuses(target)));
+      boolean updated = ps.executeUpdate() == 1;
+      log.info("Order {} status change to {}: {}", orderId, target, updated ? "done" : "rejected");
+      return updated;
+    } catch (SQLException e) {
+      log.error("Error updating status of order: {}", orderId, e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public List<OrderStatusChange> updateStatus(Collection<Long> orderIds, OrderStatus target) {
+    if (orderIds.isEmpty()) {
+      return List.of();
+    }
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      return updateStatus(conn, orderIds, target);
+    } catch (SQLException e) {
+      log.error("Error updating status of {} orders", orderIds.size(), e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public List<OrderStatusChange> updateStatus(Connection conn, Collection<Long> orderIds, OrderStatus target)
+          throws SQLException {
+    if (orderIds.isEmpty()) {
+      return List.of();
+    }
+    try (PreparedStatement ps = conn.prepareStatement(UPDATE_STATUS_BATCH)) {
+      ps.setString(1, target.name());
+      ps.setArray(2, conn.createArrayOf("bigint", orderIds.toArray()));
+      ps.setArray(3, conn.createArrayOf("varchar", sourceStatuses(target)));
+      List<OrderStatusChange> updated = new ArrayList<>(orderIds.size());
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          updated.add(new OrderStatusChange(rs.getLong("order_id"),
+                  toLocalDateTime(rs.getTimestamp("pickup_time")), rs.getInt("units")));
+        }
+      }
+      log.info("{} of {} orders moved to {}", updated.size(), orderIds.size(), target);
+      return updated;
+    }
+  }
+
+  private String[] sourceStatuses(OrderStatus target) {
+    return target.allowedSources().stream().map(OrderStatus::name).toArray(String[]::new);
+  }
+
+  /**
+   * Сохраняет группу заказов одним многострочным INSERT и их позиции одним батчем
+   * на переданном соединении, не управляя транзакцией. Идентификаторы берутся из последовательности
+   * до вставки и возвращаются упорядоченными по номеру строки во входных массивах (WITH ORDINALITY),
+   * поэтому сопоставление с заказами не зависит от порядка строк в RETURNING.
+   */
+  void createAll(Connection conn, List<Order> orders) throws SQLException {
+    int size = orders.size();
+    Long[] userIds = new Long[size];
+    BigDecimal[] totals = new BigDecimal[size];
+    Timestamp[] pickupTimes = new Timestamp[size];
+    String[] paymentMethods = new String[size];
+    String[] statuses = new String[size];
+    Timestamp[] createdAts = new Timestamp[size];
+    for (int i = 0; i < size; i++) {
+      Order order = orders.get(i);
+      userIds[i] = order.getUserId();
+      totals[i] = order.getTotalPrice();
+      pickupTimes[i] = toTimestamp(order.getPickupTime());
+      paymentMethods[i] = order.getPaymentMethod().name();
+      statuses[i] = order.getStatus().name();
+      createdAts[i] = Timestamp.valueOf(order.getCreatedAt());
+    }
+
+    try (PreparedStatement ps = conn.prepareStatement(INSERT_ORDERS_BULK)) {
+      ps.setArray(1, conn.createArrayOf("bigint", userIds));
+      ps.setArray(2, conn.createArrayOf("numeric", totals));
+      ps.setArray(3, conn.createArrayOf("timestamp", pickupTimes));
+      ps.setArray(4, conn.createArrayOf("varchar", paymentMethods));
+      ps.setArray(5, conn.createArrayOf("varchar", statuses));
+      ps.setArray(6, conn.createArrayOf("timestamp", createdAts));
+      try (ResultSet rs = ps.executeQuery()) {
+        for (Order order : orders) {
+          if (!rs.next()) {
+            throw new SQLException("Bulk insert returned fewer ids than orders");
+          }
+          order.setOrderId(rs.getLong(1));
+        }
+      }
+    }
+    insertOrderItems(conn, orders);
+  }
+
   private void insertOrderItems(Connection conn, Order order) throws SQLException {
-    if (order.getItems() != null && !order.getItems().isEmpty()) {
-      try (PreparedStatement psItems = conn.prepareStatement(INSERT_ITEM)) {
+    insertOrderItems(conn, List.of(order));
+  }
+
+  private void insertOrderItems(Connection conn, List<Order> orders) throws SQLException {
+    boolean hasItems = false;
+    try (PreparedStatement psItems = conn.prepareStatement(INSERT_ITEM)) {
+      for (Order order : orders) {
+        if (order.getItems() == null) {
+          continue;
+        }
         for (OrderItem item : order.getItems()) {
           psItems.setLong(1, order.getOrderId());
           psItems.setLong(2, item.getMenuItem().getMenuItemId());
           psItems.setInt(3, item.getQuantity());
+          psItems.setBigDecimal(4, item.getMenuItem().getPrice());
           psItems.addBatch();
+          hasItems = true;
         }
+      }
+      if (hasItems) {
         psItems.executeBatch();
       }
     }
@@ -106,34 +376,27 @@ public class OrderDaoImpl implements OrderDao {
 
   @Override
   public Optional<Order> findById(long id) {
+    List<Order> orders = new ArrayList<>(1);
     try (Connection conn = DatabaseUtil.getConnection();
-         PreparedStatement ps = conn.prepareStatement(SELECT_BY_ID)) {
+         PreparedStatement ps = conn.prepareStatement(selectById)) {
       ps.setLong(1, id);
       try (ResultSet rs = ps.executeQuery()) {
-        if (rs.next()) {
-          Order order = extractOrderFromResultSet(rs);
-          order.setItems(fetchOrderItems(conn, id));
-          return Optional.of(order);
-        }
+        extractOrdersWithItems(rs, orders::add);
       }
     } catch (SQLException e) {
       log.error("Error finding order by id: {}", id, e);
       throw new CafeException(e);
     }
-    return Optional.empty();
+    return orders.stream().findFirst();
   }
 
   @Override
   public List<Order> findAll() {
     List<Order> orders = new ArrayList<>();
     try (Connection conn = DatabaseUtil.getConnection();
-         PreparedStatement ps = conn.prepareStatement(SELECT_ALL);
+         PreparedStatement ps = conn.prepareStatement(selectAll);
          ResultSet rs = ps.executeQuery()) {
-      while (rs.next()) {
-        Order order = extractOrderFromResultSet(rs);
-        order.setItems(fetchOrderItems(conn, order.getOrderId()));
-        orders.add(order);
-      }
+      extractOrdersWithItems(rs, orders::add);
     } catch (SQLException e) {
       log.error("Error fetching all orders", e);
       throw new CafeException(e);
@@ -141,11 +404,95 @@ public class OrderDaoImpl implements OrderDao {
     return orders;
   }
 
+  @Override
+  public List<Order> findPage(Order after, int limit) {
+    List<Order> orders = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(after == null ? selectFirstPage : selectPageAfter)) {
+      if (after == null) {
+        ps.setInt(1, limit);
+      } else {
+        ps.setTimestamp(1, Timestamp.valueOf(after.getCreatedAt()));
+        ps.setLong(2, after.getOrderId());
+        ps.setInt(3, limit);
+      }
+      try (ResultSet rs = ps.executeQuery()) {
+        extractOrdersWithItems(rs, orders::add);
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching orders page", e);
+      throw new CafeException(e);
+    }
+    return orders;
+  }
+
+  @Override
+  public void forEach(Consumer<Order> consumer) {
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      // PgJDBC использует серверный курсор только вне autocommit
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(selectAll)) {
+        ps.setFetchSize(STREAM_FETCH_SIZE);
+        try (ResultSet rs = ps.executeQuery()) {
+          extractOrdersWithItems(rs, consumer);
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error("Error streaming orders", e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public void forEachCompleted(LocalDateTime from, LocalDateTime to, CompletedItemVisitor visitor) {
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(SELECT_COMPLETED_ITEMS)) {
+        ps.setTimestamp(1, Timestamp.valueOf(from));
+        ps.setTimestamp(2, Timestamp.valueOf(to));
+        ps.setFetchSize(STREAM_FETCH_SIZE);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            visitor.visit(rs.getLong(1), rs.getInt(2), rs.getLong(3), rs.getLong(4), rs.getInt(5), rs.getLong(6));
+          }
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error("Error streaming completed orders from {} to {}", from, to, e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public Map<LocalDateTime, Integer> findPickupLoad(LocalDateTime from) {
+    Map<LocalDateTime, Integer> load = new HashMap<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_PICKUP_LOAD)) {
+      ps.setTimestamp(1, Timestamp.valueOf(from));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          load.put(rs.getTimestamp("pickup_time").toLocalDateTime(), rs.getInt("units"));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching pickup load from {}", from, e);
+      throw new CafeException(e);
+    }
+    return load;
+  }
+
   @Override
   public void delete(Order order) {
-    String sql = "DELETE FROM orders WHERE order_id = ?";
     try (Connection conn = DatabaseUtil.getConnection();
-         PreparedStatement ps = conn.prepareStatement(sql)) {
+         PreparedStatement ps = conn.prepareStatement(DELETE_ORDER)) {
       ps.setLong(1, order.getOrderId());
       ps.executeUpdate();
       log.info("Order deleted, ID: {}", order.getOrderId());
@@ -160,35 +507,84 @@ public class OrderDaoImpl implements OrderDao {
             .orderId(rs.getLong("order_id"))
             .userId(rs.getLong("user_id"))
             .totalPrice(rs.getBigDecimal("total_price"))
-            .pickupTime(rs.getTimestamp("pickup_time").toLocalDateTime())
+            .pickupTime(toLocalDateTime(rs.getTimestamp("pickup_time")))
             .paymentMethod(PaymentMethod.valueOf(rs.getString("payment_method")))
             .status(OrderStatus.valueOf(rs.getString("status")))
             .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
             .build();
   }
 
-  private List<OrderItem> fetchOrderItems(Connection conn, long orderId) throws SQLException {
-    String sql = """
-                SELECT mi.menu_item_id, mi.name, mi.description, mi.price, mi.is_available, oi.quantity
-                FROM menu_items mi
-                JOIN order_items oi ON mi.menu_item_id = oi.menu_item_id
-                WHERE oi.order_id = ?""";
-    List<OrderItem> items = new ArrayList<>();
-    try (PreparedStatement ps = conn.prepareStatement(sql)) {
-      ps.setLong(1, orderId);
-      try (ResultSet rs = ps.executeQuery()) {
-        while (rs.next()) {
-          MenuItem menuItem = MenuItem.builder()
-                  .id(rs.getLong("menu_item_id"))
-                  .name(rs.getString("name"))
-                  .description(rs.getString("description"))
-                  .price(rs.getBigDecimal("price"))
-                  .isAvailable(rs.getBoolean("is_available"))
-                  .build();
-          items.add(new OrderItem(menuItem, rs.getInt("quantity")));
+  /** Время получения не обязательно, NULL передается как NULL. */
+  private static Timestamp toTimestamp(LocalDateTime time) {
+    return time == null ? null : Timestamp.valueOf(time);
+  }
+
+  private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+    return timestamp == null ? null : timestamp.toLocalDateTime();
+  }
+
+  /**
+   * Собирает граф заказов за один проход по результату JOIN-запроса и отдает
+   * каждый заказ потребителю, как только встречена строка следующего заказа.
+   * Строки одного заказа должны идти подряд; заказ без позиций приходит
+   * одной строкой с NULL в колонках order_items/menu_items.
+   * <p>
+   * Если позиции разрешаются через кэш меню, заказы копятся пачками по {@link #STREAM_FETCH_SIZE},
+   * и позиции всей пачки разрешаются одним обращением к кэшу.
+   * </p>
+   */
+  private void extractOrdersWithItems(ResultSet rs, Consumer<Order> consumer) throws SQLException {
+    int batchSize = menuCatalog == null ? 1 : STREAM_FETCH_SIZE;
+    List<Order> batch = new ArrayList<>(batchSize);
+    Map<Long, List<OrderItem>> unresolved = new HashMap<>();
+    Order current = null;
+    while (rs.next()) {
+      long orderId = rs.getLong("order_id");
+      if (current == null || current.getOrderId() != orderId) {
+        if (current != null) {
+          batch.add(current);
+          if (batch.size() >= batchSize) {
+            flush(batch, unresolved, consumer);
+          }
         }
+        current = extractOrderFromResultSet(rs);
+        current.setItems(new ArrayList<>());
       }
+      long menuItemId = rs.getLong("menu_item_id");
+      if (rs.wasNull()) {
+        continue;
+      }
+      if (menuCatalog == null) {
+        current.getItems().add(new OrderItem(extractMenuItem(rs), rs.getInt("quantity")));
+      } else {
+        OrderItem item = new OrderItem(null, rs.getInt("quantity"));
+        current.getItems().add(item);
+        unresolved.computeIfAbsent(menuItemId, id -> new ArrayList<>()).add(item);
+      }
+    }
+    if (current != null) {
+      batch.add(current);
     }
-    return items;
+    flush(batch, unresolved, consumer);
+  }
+
+  private void flush(List<Order> batch, Map<Long, List<OrderItem>> unresolved, Consumer<Order> consumer) {
+    if (!unresolved.isEmpty()) {
+      Map<Long, MenuItem> menuItems = menuCatalog.resolveAll(unresolved.keySet());
+      unresolved.forEach((id, items) -> items.forEach(item -> item.setMenuItem(menuItems.get(id))));
+      unresolved.clear();
+    }
+    batch.forEach(consumer);
+    batch.clear();
+  }
+
+  private MenuItem extractMenuItem(ResultSet rs) throws SQLException {
+    return MenuItem.builder()
+            .id(rs.getLong("menu_item_id"))
+            .name(rs.getString("name"))
+            .description(rs.getString("description"))
+            .price(rs.getBigDecimal("price"))
+            .isAvailable(rs.getBoolean("is_available"))
+            .build();
   }
-}
\ No newline at end of file
+}
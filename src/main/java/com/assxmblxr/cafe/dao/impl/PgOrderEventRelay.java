@@ -0,0 +1,169 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.OrderEvent;
+import com.assxmblxr.cafe.service.OrderEventBus;
+import com.assxmblxr.cafe.type.OrderStatus;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ретранслятор событий заказов через PostgreSQL LISTEN/NOTIFY для нескольких узлов приложения.
+ * <p>
+ * Публикация в {@link OrderEventBus} сразу добавляет событие в локальную ленту и ставит его
+ * в очередь на рассылку. Один поток владеет выделенным соединением в обход пула
+ * ({@link DatabaseUtil#getDedicatedConnection()}), поэтому ретранслятор не занимает соединений пула:
+ * на этом соединении поток слушает канал и отправляет накопленные события одним
+ * {@code pg_notify} на группу. Уведомления других узлов добавляются в локальную ленту,
+ * собственные (с PID своего соединения) пропускаются, так как уже добавлены.
+ * </p>
+ * Пока соединение восстанавливается, локальная лента продолжает получать события, а неотправленные
+ * ждут в очереди и уходят после переподключения. Если очередь переполнена, событие остается только
+ * в локальной ленте.
+ */
+@Slf4j
+public class PgOrderEventRelay implements AutoCloseable {
+  private static final String CHANNEL = "order_events";
+  private static final String NOTIFY_ALL = "SELECT pg_notify(?, p) FROM unnest(?::text[]) p";
+  private static final int OUTBOX_CAPACITY = 1024;
+  private static final int MAX_BATCH_SIZE = 256;
+  private static final long POLL_MILLIS = 50;
+  private static final long RECONNECT_DELAY_MILLIS = 1000;
+
+  private final OrderEventBus bus;
+  private final BlockingQueue<OrderEvent> outbox = new ArrayBlockingQueue<>(OUTBOX_CAPACITY);
+  private final List<OrderEvent> unsent = new ArrayList<>(MAX_BATCH_SIZE);
+  private final Thread worker;
+  private volatile boolean running = true;
+  private volatile int backendPid;
+
+  public PgOrderEventRelay(OrderEventBus bus) {
+    this.bus = bus;
+    this.worker = new Thread(this::run, "order-events-relay");
+    this.worker.setDaemon(true);
+  }
+
+  public void start() {
+    bus.setRelay(this::send);
+    worker.start();
+    log.info("Order events are relayed through PostgreSQL channel {}", CHANNEL);
+  }
+
+  @Override
+  public void close() {
+    running = false;
+    bus.setRelay(bus::append);
+    worker.interrupt();
+    try {
+      worker.join(TimeUnit.SECONDS.toMillis(5));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** @return PID серверного процесса текущего соединения или 0, если соединения еще не было. */
+  int getBackendPid() {
+    return backendPid;
+  }
+
+  private void send(OrderEvent event) {
+    bus.append(event);
+    if (!outbox.offer(event)) {
+      log.warn("Order events outbox is full, event for order {} kept local", event.orderId());
+    }
+  }
+
+  private void run() {
+    while (running) {
+      try (Connection conn = DatabaseUtil.getDedicatedConnection()) {
+        conn.setAutoCommit(true);
+        try (Statement st = conn.createStatement()) {
+          st.execute("LISTEN " + CHANNEL);
+        }
+        PGConnection pgConn = conn.unwrap(PGConnection.class);
+        int ownPid = pgConn.getBackendPID();
+        backendPid = ownPid;
+        log.info("Order events relay connected, backend PID {}", ownPid);
+        while (running) {
+          OrderEvent next = outbox.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+          if (next != null) {
+            unsent.add(next);
+          }
+          outbox.drainTo(unsent, MAX_BATCH_SIZE - unsent.size());
+          if (!unsent.isEmpty()) {
+            flush(conn);
+          }
+          receive(pgConn.getNotifications(), ownPid);
+        }
+      } catch (InterruptedException e) {
+        return;
+      } catch (SQLException | RuntimeException e) {
+        if (!running) {
+          return;
+        }
+        log.warn("Order events relay failed, reconnecting with {} unsent events", unsent.size() + outbox.size(), e);
+        try {
+          TimeUnit.MILLISECONDS.sleep(RECONNECT_DELAY_MILLIS);
+        } catch (InterruptedException ie) {
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * Отправляет накопленные события одним выражением. При ошибке события остаются в {@link #unsent}
+   * и отправляются после переподключения.
+   */
+  private void flush(Connection conn) throws SQLException {
+    String[] payloads = unsent.stream().map(PgOrderEventRelay::encode).toArray(String[]::new);
+    try (PreparedStatement ps = conn.prepareStatement(NOTIFY_ALL)) {
+      ps.setString(1, CHANNEL);
+      ps.setArray(2, conn.createArrayOf("text", payloads));
+      ps.execute();
+    }
+    unsent.clear();
+  }
+
+  private void receive(PGNotification[] notifications, int ownPid) {
+    if (notifications == null) {
+      return;
+    }
+    for (PGNotification notification : notifications) {
+      if (notification.getPID() == ownPid) {
+        continue;
+      }
+      try {
+        bus.append(decode(notification.getParameter()));
+      } catch (RuntimeException e) {
+        log.warn("Skipping malformed order event: {}", notification.getParameter(), e);
+      }
+    }
+  }
+
+  private static String encode(OrderEvent event) {
+    return event.orderId() + "|" + event.status() + "|"
+            + (event.pickupTime() == null ? "" : event.pickupTime()) + "|" + event.items();
+  }
+
+  private static OrderEvent decode(String payload) {
+    String[] parts = payload.split("\\|", -1);
+    return new OrderEvent(0,
+            Long.parseLong(parts[0]),
+            OrderStatus.valueOf(parts[1]),
+            parts[2].isEmpty() ? null : LocalDateTime.parse(parts[2]),
+            Integer.parseInt(parts[3]));
+  }
+}
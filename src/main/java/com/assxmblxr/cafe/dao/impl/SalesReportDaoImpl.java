@@ -0,0 +1,217 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.SalesReportDao;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.type.PaymentMethod;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Агрегаты продаж в таблицах {@code sales_daily}, {@code sales_hourly} и {@code sales_item_daily}
+ * (миграция {@code V3__sales_aggregates.sql}).
+ * <p>
+ * Учет группы заказов - одно SQL-выражение: выборка заказов в CTE и три upsert-а, прибавляющие
+ * счетчики к существующим строкам. Пересчет очищает таблицы через TRUNCATE и заполняет их тем же
+ * выражением по всей истории в одной транзакции. TRUNCATE блокирует таблицы агрегатов, поэтому
+ * параллельное завершение заказа дождется конца пересчета и будет учтено ровно один раз.
+ * </p>
+ * Выручка по позициям считается по цене на момент заказа ({@code order_items.unit_price},
+ * миграция {@code V7__order_items_unit_price.sql}), поэтому смена цены в меню не меняет ни накопленные
+ * агрегаты, ни результат пересчета.
+ */
+@Slf4j
+public class SalesReportDaoImpl implements SalesReportDao {
+  private static final String AGGREGATE = """
+          , daily AS (
+              INSERT INTO sales_daily AS s (day, payment_method, completed, revenue, cancelled)
+              SELECT created_at::date, payment_method,
+                     COUNT(*) FILTER (WHERE status = 'COMPLETED'),
+                     COALESCE(SUM(total_price) FILTER (WHERE status = 'COMPLETED'), 0),
+                     COUNT(*) FILTER (WHERE status = 'CANCELLED')
+              FROM batch
+              GROUP BY 1, 2
+              ON CONFLICT (day, payment_method) DO UPDATE
+              SET completed = s.completed + EXCLUDED.completed,
+                  revenue = s.revenue + EXCLUDED.revenue,
+                  cancelled = s.cancelled + EXCLUDED.cancelled
+              RETURNING 1
+          ), hourly AS (
+              INSERT INTO sales_hourly AS s (hour, completed, revenue, cancelled)
+              SELECT date_trunc('hour', created_at),
+                     COUNT(*) FILTER (WHERE status = 'COMPLETED'),
+                     COALESCE(SUM(total_price) FILTER (WHERE status = 'COMPLETED'), 0),
+                     COUNT(*) FILTER (WHERE status = 'CANCELLED')
+              FROM batch
+              GROUP BY 1
+              ON CONFLICT (hour) DO UPDATE
+              SET completed = s.completed + EXCLUDED.completed,
+                  revenue = s.revenue + EXCLUDED.revenue,
+                  cancelled = s.cancelled + EXCLUDED.cancelled
+              RETURNING 1
+          ), items AS (
+              INSERT INTO sales_item_daily AS s (day, menu_item_id, quantity, revenue)
+              SELECT b.created_at::date, oi.menu_item_id, SUM(oi.quantity), SUM(oi.quantity * oi.unit_price)
+              FROM batch b
+              JOIN order_items oi ON oi.order_id = b.order_id
+              WHERE b.status = 'COMPLETED'
+              GROUP BY 1, 2
+              ON CONFLICT (day, menu_item_id) DO UPDATE
+              SET quantity = s.quantity + EXCLUDED.quantity,
+                  revenue = s.revenue + EXCLUDED.revenue
+              RETURNING 1
+          )
+          SELECT COUNT(*) AS orders FROM batch
+          """;
+  private static final String RECORD = """
+          WITH batch AS (
+              SELECT order_id, created_at, payment_method, status, total_price
+              FROM orders
+              WHERE order_id = ANY(?) AND status IN ('COMPLETED', 'CANCELLED')
+          )""" + AGGREGATE;
+  private static final String REBUILD = """
+          WITH batch AS (
+              SELECT order_id, created_at, payment_method, status, total_price
+              FROM orders
+              WHERE status IN ('COMPLETED', 'CANCELLED')
+          )""" + AGGREGATE;
+  private static final String TRUNCATE = "TRUNCATE sales_daily, sales_hourly, sales_item_daily";
+  private static final String SELECT_DAILY = """
+          SELECT day, payment_method, completed, revenue, cancelled
+          FROM sales_daily
+          WHERE day BETWEEN ? AND ?
+          ORDER BY day, payment_method""";
+  private static final String SELECT_HOURLY = """
+          SELECT hour, completed, revenue, cancelled
+          FROM sales_hourly
+          WHERE hour >= ? AND hour < ?
+          ORDER BY hour""";
+  private static final String SELECT_TOP_ITEMS = """
+          SELECT s.menu_item_id, mi.name, s.quantity, s.revenue
+          FROM (SELECT menu_item_id, SUM(quantity) AS quantity, SUM(revenue) AS revenue
+                FROM sales_item_daily
+                WHERE day BETWEEN ? AND ?
+                GROUP BY menu_item_id) s
+          JOIN menu_items mi ON mi.menu_item_id = s.menu_item_id
+          ORDER BY s.revenue DESC
+          LIMIT ?""";
+
+  @Override
+  public void record(Connection conn, Collection<Long> orderIds) throws SQLException {
+    if (orderIds.isEmpty()) {
+      return;
+    }
+    try (PreparedStatement ps = conn.prepareStatement(RECORD)) {
+      ps.setArray(1, conn.createArrayOf("bigint", orderIds.toArray()));
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        log.debug("Sales aggregates updated with {} orders", rs.getLong("orders"));
+      }
+    }
+  }
+
+  @Override
+  public long rebuild() {
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      conn.setAutoCommit(false);
+      try (Statement st = conn.createStatement()) {
+        st.execute(TRUNCATE);
+        long orders;
+        try (ResultSet rs = st.executeQuery(REBUILD)) {
+          rs.next();
+          orders = rs.getLong("orders");
+        }
+        conn.commit();
+        log.info("Sales aggregates rebuilt from {} orders", orders);
+        return orders;
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error("Error rebuilding sales aggregates", e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public List<DailySales> findDaily(LocalDate from, LocalDate to) {
+    List<DailySales> sales = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_DAILY)) {
+      ps.setDate(1, Date.valueOf(from));
+      ps.setDate(2, Date.valueOf(to));
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          sales.add(new DailySales(
+                  rs.getDate("day").toLocalDate(),
+                  PaymentMethod.valueOf(rs.getString("payment_method")),
+                  rs.getLong("completed"),
+                  rs.getBigDecimal("revenue"),
+                  rs.getLong("cancelled")));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching daily sales from {} to {}", from, to, e);
+      throw new CafeException(e);
+    }
+    return sales;
+  }
+
+  @Override
+  public List<HourlySales> findHourly(LocalDate day) {
+    List<HourlySales> sales = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_HOURLY)) {
+      ps.setObject(1, day.atStartOfDay());
+      ps.setObject(2, day.plusDays(1).atStartOfDay());
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          sales.add(new HourlySales(
+                  rs.getTimestamp("hour").toLocalDateTime(),
+                  rs.getLong("completed"),
+                  rs.getBigDecimal("revenue"),
+                  rs.getLong("cancelled")));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching hourly sales for {}", day, e);
+      throw new CafeException(e);
+    }
+    return sales;
+  }
+
+  @Override
+  public List<ItemSales> findTopItems(LocalDate from, LocalDate to, int limit) {
+    List<ItemSales> sales = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_TOP_ITEMS)) {
+      ps.setDate(1, Date.valueOf(from));
+      ps.setDate(2, Date.valueOf(to));
+      ps.setInt(3, limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          sales.add(new ItemSales(
+                  rs.getLong("menu_item_id"),
+                  rs.getString("name"),
+                  rs.getLong("quantity"),
+                  rs.getBigDecimal("revenue")));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching top items from {} to {}", from, to, e);
+      throw new CafeException(e);
+    }
+    return sales;
+  }
+}
@@ -3,6 +3,7 @@ package com.assxmblxr.cafe.dao.impl;
 import com.assxmblxr.cafe.dao.UserDao;
 import com.assxmblxr.cafe.type.Role;
 import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserSummary;
 import com.assxmblxr.cafe.exception.CafeException;
 import com.assxmblxr.cafe.util.DatabaseUtil;
 import lombok.extern.slf4j.Slf4j;
@@ -15,6 +16,7 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Slf4j
 public class UserDaoImpl implements UserDao {
@@ -22,8 +24,26 @@ public class UserDaoImpl implements UserDao {
                 INSERT INTO users (name, email, account_balance, loyalty_points, blocked, role, password)
                 VALUES (?, ?, ?, ?, ?, ?, ?);
                 """;
-  private static final String SELECT_BY_ID = "SELECT * FROM users WHERE user_id = ?;";
-  private static final String SELECT_ALL = "SELECT * FROM users;";
+  // ON CONFLICT и поиск по email без учета регистра опираются на индекс users_lower_email_key
+  // (миграция V6__users_email_key.sql)
+  private static final String INSERT_USER_IF_ABSENT = """
+                INSERT INTO users (name, email, account_balance, loyalty_points, blocked, role, password)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON CONFLICT DO NOTHING
+                RETURNING user_id;
+                """;
+  private static final String EXISTS_BY_EMAIL = "SELECT 1 FROM users WHERE lower(email) = lower(?);";
+  private static final String SELECT_EMAILS = "SELECT email FROM users;";
+  private static final String USER_COLUMNS =
+          "user_id, name, email, account_balance, loyalty_points, blocked, role, password";
+  private static final String SELECT_BY_ID = "SELECT " + USER_COLUMNS + " FROM users WHERE user_id = ?;";
+  private static final String SELECT_ALL = "SELECT " + USER_COLUMNS + " FROM users;";
+  private static final String SELECT_ALL_ORDERED = "SELECT " + USER_COLUMNS + " FROM users ORDER BY user_id;";
+  private static final String SELECT_PAGE =
+          "SELECT " + USER_COLUMNS + " FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?;";
+  private static final String SELECT_SUMMARY_PAGE =
+          "SELECT user_id, name, email, role, blocked FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?;";
+  private static final int STREAM_FETCH_SIZE = 500;
   private static final String UPDATE_USER = """
                UPDATE users
                SET name = ?,
@@ -36,9 +56,16 @@ public class UserDaoImpl implements UserDao {
                WHERE user_id = ?;
                """;
   private static final String DELETE_USER = "DELETE FROM users WHERE user_id = ?;";
-  private static final String SELECT_BY_EMAIL = "SELECT * FROM users WHERE email = ?;";
+  private static final String SELECT_BY_EMAIL = "SELECT " + USER_COLUMNS + " FROM users WHERE lower(email) = lower(?);";
   private static final String UPDATE_BLOCKED_STATUS = "UPDATE users SET blocked = ? WHERE user_id = ?;";
   private static final String UPDATE_LOYALTY_POINTS = "UPDATE users SET loyalty_points = ? WHERE user_id = ?; ";
+  private static final String UPDATE_ROLE = "UPDATE users SET role = ? WHERE user_id = ?;";
+  private static final String UPDATE_PASSWORD = "UPDATE users SET password = ? WHERE user_id = ? AND password = ?;";
+  private static final String DEBIT_BALANCE = """
+               UPDATE users
+               SET account_balance = account_balance - ?
+               WHERE user_id = ? AND account_balance >= ?;
+               """;
 
   @Override
   public void create(User user) {
@@ -60,6 +87,70 @@ public class UserDaoImpl implements UserDao {
     }
   }
 
+  @Override
+  public boolean createIfAbsent(User user) {
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(INSERT_USER_IF_ABSENT)) {
+      ps.setString(1, user.getName());
+      ps.setString(2, user.getEmail());
+      ps.setBigDecimal(3, user.getAccountBalance());
+      ps.setBigDecimal(4, user.getLoyaltyPoints());
+      ps.setBoolean(5, user.isBlocked());
+      ps.setString(6, user.getRole().name());
+      ps.setString(7, user.getPassword());
+
+      try (ResultSet rs = ps.executeQuery()) {
+        if (!rs.next()) {
+          log.info("User not created, email already taken: {}", user.getEmail());
+          return false;
+        }
+        user.setId(rs.getLong("user_id"));
+      }
+      log.info("User created: {}", user.getEmail());
+      return true;
+    } catch (SQLException e) {
+      log.error("Error creating user: {}", user.getEmail(), e);
+      throw new CafeException("Database error during user creation", e);
+    }
+  }
+
+  @Override
+  public boolean existsByEmail(String email) {
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(EXISTS_BY_EMAIL)) {
+      ps.setString(1, email);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next();
+      }
+    } catch (SQLException e) {
+      log.error("Error checking email: {}", email, e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public void forEachEmail(Consumer<String> consumer) {
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      // PgJDBC использует серверный курсор только вне autocommit
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(SELECT_EMAILS)) {
+        ps.setFetchSize(STREAM_FETCH_SIZE);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            consumer.accept(rs.getString("email"));
+          }
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error("Error streaming user emails", e);
+      throw new CafeException(e);
+    }
+  }
+
   @Override
   public Optional<User> findById(long id) {
     try (Connection conn = DatabaseUtil.getConnection();
@@ -94,6 +185,72 @@ public class UserDaoImpl implements UserDao {
     return users;
   }
 
+  @Override
+  public List<User> findPage(long afterId, int limit) {
+    List<User> users = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_PAGE)) {
+      ps.setLong(1, afterId);
+      ps.setInt(2, limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          users.add(extractUserFromResultSet(rs));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching users page after id: {}", afterId, e);
+      throw new CafeException(e);
+    }
+    return users;
+  }
+
+  @Override
+  public List<UserSummary> findSummaryPage(long afterId, int limit) {
+    List<UserSummary> users = new ArrayList<>(limit);
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(SELECT_SUMMARY_PAGE)) {
+      ps.setLong(1, afterId);
+      ps.setInt(2, limit);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          users.add(new UserSummary(
+                  rs.getLong("user_id"),
+                  rs.getString("name"),
+                  rs.getString("email"),
+                  Role.fromString(rs.getString("role")),
+                  rs.getBoolean("blocked")));
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Error fetching user summaries page after id: {}", afterId, e);
+      throw new CafeException(e);
+    }
+    return users;
+  }
+
+  @Override
+  public void forEach(Consumer<User> consumer) {
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      // PgJDBC использует серверный курсор только вне autocommit
+      conn.setAutoCommit(false);
+      try (PreparedStatement ps = conn.prepareStatement(SELECT_ALL_ORDERED)) {
+        ps.setFetchSize(STREAM_FETCH_SIZE);
+        try (ResultSet rs = ps.executeQuery()) {
+          while (rs.next()) {
+            consumer.accept(extractUserFromResultSet(rs));
+          }
+        }
+        conn.commit();
+      } catch (SQLException e) {
+        conn.rollback();
+        throw e;
+      }
+    } catch (SQLException e) {
+      log.error("Error streaming users", e);
+      throw new CafeException(e);
+    }
+  }
+
   @Override
   public void update(User user) {
     try (Connection conn = DatabaseUtil.getConnection();
@@ -173,6 +330,50 @@ public class UserDaoImpl implements UserDao {
     }
   }
 
+  @Override
+  public void updateRole(long userId, Role role) {
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(UPDATE_ROLE)) {
+      ps.setString(1, role.name());
+      ps.setLong(2, userId);
+      ps.executeUpdate();
+      log.info("User {} role updated to: {}", userId, role);
+    } catch (SQLException e) {
+      log.error("Error updating role for user: {}", userId, e);
+      throw new RuntimeException(e);
+    }
+  }
+
+  @Override
+  public boolean updatePassword(long userId, String expectedHash, String passwordHash) {
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement(UPDATE_PASSWORD)) {
+      ps.setString(1, passwordHash);
+      ps.setLong(2, userId);
+      ps.setString(3, expectedHash);
+      boolean updated = ps.executeUpdate() == 1;
+      if (updated) {
+        log.info("User {} password hash updated", userId);
+      } else {
+        log.info("User {} password hash not updated: password changed concurrently", userId);
+      }
+      return updated;
+    } catch (SQLException e) {
+      log.error("Error updating password for user: {}", userId, e);
+      throw new CafeException(e);
+    }
+  }
+
+  @Override
+  public boolean debitBalance(Connection conn, long userId, BigDecimal amount) throws SQLException {
+    try (PreparedStatement ps = conn.prepareStatement(DEBIT_BALANCE)) {
+      ps.setBigDecimal(1, amount);
+      ps.setLong(2, userId);
+      ps.setBigDecimal(3, amount);
+      return ps.executeUpdate() == 1;
+    }
+  }
+
   private User extractUserFromResultSet(ResultSet rs) throws SQLException {
     return User.builder()
             .id(rs.getLong("user_id"))
@@ -0,0 +1,19 @@
+package com.assxmblxr.cafe.entity;
+
+import java.math.BigDecimal;
+
+/**
+ * Карточка позиции меню для витрины: без подробного описания.
+ *
+ * @param menuItemId уникальный ID позиции меню.
+ * @param name       название блюда или напитка.
+ * @param price      стоимость позиции.
+ * @param available  доступна ли позиция для заказа.
+ * @author assxmblxr
+ */
+public record MenuCard(long menuItemId, String name, BigDecimal price, boolean available) {
+
+  public static MenuCard of(MenuItem menuItem) {
+    return new MenuCard(menuItem.getMenuItemId(), menuItem.getName(), menuItem.getPrice(), menuItem.isAvailable());
+  }
+}
@@ -0,0 +1,22 @@
+package com.assxmblxr.cafe.entity;
+
+import com.assxmblxr.cafe.type.OrderStatus;
+
+import java.time.LocalDateTime;
+
+/**
+ * Событие ленты заказов для кухни: новый заказ или смена статуса заказа.
+ *
+ * @param sequence   порядковый номер события в ленте (0, пока событие не добавлено в ленту).
+ * @param orderId    ID заказа.
+ * @param status     новый статус заказа.
+ * @param pickupTime время получения; {@code null} для смены статуса.
+ * @param items      количество позиций в заказе; 0 для смены статуса.
+ * @author assxmblxr
+ */
+public record OrderEvent(long sequence, long orderId, OrderStatus status, LocalDateTime pickupTime, int items) {
+
+  public OrderEvent withSequence(long sequence) {
+    return new OrderEvent(sequence, orderId, status, pickupTime, items);
+  }
+}
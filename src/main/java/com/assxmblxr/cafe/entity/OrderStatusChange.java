@@ -0,0 +1,13 @@
+package com.assxmblxr.cafe.entity;
+
+import java.time.LocalDateTime;
+
+/**
+ * Результат смены статуса заказа: то, что нужно вызывающему коду без повторного чтения заказа.
+ *
+ * @param orderId    ID заказа.
+ * @param pickupTime время получения заказа или {@code null}.
+ * @param units      суммарное количество позиций в заказе.
+ * @author assxmblxr
+ */
+public record OrderStatusChange(long orderId, LocalDateTime pickupTime, int units) {}
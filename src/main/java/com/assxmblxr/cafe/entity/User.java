@@ -38,6 +38,9 @@ public class User {
   /** Права доступа пользователя (например, {@link Role#CLIENT} или {@link Role#ADMIN}). */
   private Role role;
 
+  /** Версия снимка пользователя в кэше; меняется при каждой перезагрузке после изменения данных. */
+  private long version;
+
   /**
    * Конструктор без параметров. Требуется для работы JPA и механизмов рефлексии.
    */
@@ -75,6 +78,7 @@ public class User {
     this.loyaltyPoints = builder.loyaltyPoints;
     this.blocked = builder.blocked;
     this.role = builder.role;
+    this.version = builder.version;
   }
 
   /** @return уникальный ID пользователя. */
@@ -125,6 +129,12 @@ public class User {
   /** @param blocked статус блокировки. */
   public void setBlocked(boolean blocked) { this.blocked = blocked; }
 
+  /** @return версия снимка пользователя в кэше (0, если пользователь прочитан напрямую из БД). */
+  public long getVersion() { return version; }
+
+  /** @param version версия снимка пользователя в кэше. */
+  public void setVersion(long version) { this.version = version; }
+
   /**
    * Создает новый экземпляр строителя.
    * @return {@link Builder}
@@ -160,6 +170,7 @@ public class User {
     private BigDecimal loyaltyPoints;
     private boolean blocked;
     private Role role;
+    private long version;
 
     /**
      *  @param id ID пользователя.
@@ -208,6 +219,12 @@ public class User {
      */
     public Builder role(Role role) { this.role = role; return this; }
 
+    /**
+     * @param version версия снимка в кэше.
+     * @return объект {@link Builder}.
+     */
+    public Builder version(long version) { this.version = version; return this; }
+
     /**
      * Собирает и возвращает объект {@link User}.
      * @return новый экземпляр {@link User}.
@@ -0,0 +1,23 @@
+package com.assxmblxr.cafe.entity;
+
+import com.assxmblxr.cafe.type.Role;
+
+/**
+ * Компактный неизменяемый снимок вошедшего пользователя, который хранится в HTTP-сессии вместо {@link User}.
+ * <p>
+ * Не содержит хеш пароля, баланс и другие изменяемые данные: их актуальные значения
+ * берутся из кэша пользователей по {@code id}. По {@code version} видно, менялись ли
+ * данные пользователя с момента создания снимка.
+ * </p>
+ *
+ * @param id      уникальный ID пользователя.
+ * @param role    роль пользователя.
+ * @param version версия данных пользователя, с которой создан снимок.
+ * @author assxmblxr
+ */
+public record UserPrincipal(long id, Role role, long version) {
+
+  public static UserPrincipal of(User user) {
+    return new UserPrincipal(user.getId(), user.getRole(), user.getVersion());
+  }
+}
@@ -0,0 +1,15 @@
+package com.assxmblxr.cafe.entity;
+
+import com.assxmblxr.cafe.type.Role;
+
+/**
+ * Облегченное представление пользователя для списков: без хеша пароля, баланса и баллов.
+ *
+ * @param id      уникальный ID пользователя.
+ * @param name    имя пользователя.
+ * @param email   email пользователя.
+ * @param role    роль пользователя.
+ * @param blocked заблокирован ли пользователь.
+ * @author assxmblxr
+ */
+public record UserSummary(long id, String name, String email, Role role, boolean blocked) {}
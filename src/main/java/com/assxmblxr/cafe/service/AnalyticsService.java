@@ -0,0 +1,38 @@
+package com.assxmblxr.cafe.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+public interface AnalyticsService {
+
+  /**
+   * Собирает аналитику по завершенным заказам, созданным в указанный период, за один проход по истории.
+   * Суммы считаются в копейках ({@code long}), чтобы не создавать {@link BigDecimal} на каждую позицию.
+   *
+   * @param from первый день периода включительно.
+   * @param to   последний день периода включительно.
+   */
+  OrderAnalytics analyze(LocalDate from, LocalDate to);
+
+  /**
+   * @param orders         количество учтенных заказов.
+   * @param revenueMinor   выручка в копейках.
+   * @param topSellers     позиции меню с наибольшей выручкой.
+   * @param basketSizes    количество заказов по числу позиций в заказе; последний элемент - все заказы большего размера.
+   * @param revenuePerHour выручка в копейках по часу создания заказа (0-23).
+   * @param elapsedMillis  время расчета.
+   */
+  record OrderAnalytics(long orders, long revenueMinor, List<ItemTotal> topSellers,
+                        long[] basketSizes, long[] revenuePerHour, long elapsedMillis) {
+    public BigDecimal revenue() {
+      return BigDecimal.valueOf(revenueMinor, 2);
+    }
+  }
+
+  record ItemTotal(long menuItemId, long quantity, long revenueMinor) {
+    public BigDecimal revenue() {
+      return BigDecimal.valueOf(revenueMinor, 2);
+    }
+  }
+}
@@ -0,0 +1,16 @@
+package com.assxmblxr.cafe.service;
+
+public interface LoyaltyService {
+
+  /**
+   * Начисляет баллы за все завершенные заказы, которые еще не учтены, порциями до исчерпания.
+   * Может быть прервана в любой момент и безопасно перезапущена.
+   */
+  AccrualReport accrue();
+
+  record AccrualReport(long orders, long users, long elapsedMillis) {
+    public double ordersPerSecond() {
+      return elapsedMillis == 0 ? orders : orders * 1000.0 / elapsedMillis;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package com.assxmblxr.cafe.service;
+
+import com.assxmblxr.cafe.entity.OrderEvent;
+import com.assxmblxr.cafe.type.OrderStatus;
+import com.assxmblxr.cafe.util.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Внутрипроцессная лента событий заказов для экрана кухни.
+ * <p>
+ * Каждое событие получает порядковый номер и сохраняется в кольцевом буфере последних
+ * {@code bufferSize} событий, поэтому переподключившийся клиент догружает только пропущенное
+ * ({@link #eventsAfter(long)}), а не всю историю заказов. Подписчики вызываются синхронно
+ * в потоке публикации под блокировкой ленты, поэтому видят события строго по порядку номеров
+ * и не должны блокироваться.
+ * </p>
+ * По умолчанию {@link #publish} сразу добавляет событие в ленту. Ретранслятор
+ * ({@link #setRelay(Consumer)}) может дополнительно разослать его через внешний канал,
+ * например PostgreSQL NOTIFY, чтобы ленты других узлов получили событие через {@link #append(OrderEvent)}.
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code kitchen.feed.bufferSize} - количество хранимых событий для догрузки (по умолчанию 1024)</li>
+ * </ul>
+ */
+@Slf4j
+public class OrderEventBus {
+  private final OrderEvent[] ring;
+  private final List<Consumer<OrderEvent>> subscribers = new CopyOnWriteArrayList<>();
+  private final LongAdder published = new LongAdder();
+  private volatile Consumer<OrderEvent> relay = this::append;
+  private long lastSequence;
+
+  public OrderEventBus(int bufferSize) {
+    this.ring = new OrderEvent[bufferSize];
+  }
+
+  public static OrderEventBus fromConfig() {
+    return new OrderEventBus(AppConfig.getInt("kitchen.feed.bufferSize", 1024));
+  }
+
+  public void publish(long orderId, OrderStatus status, LocalDateTime pickupTime, int items) {
+    relay.accept(new OrderEvent(0, orderId, status, pickupTime, items));
+  }
+
+  public void publishStatus(long orderId, OrderStatus status) {
+    publish(orderId, status, null, 0);
+  }
+
+  public void setRelay(Consumer<OrderEvent> relay) {
+    this.relay = relay;
+  }
+
+  /**
+   * Присваивает событию следующий номер, сохраняет его в буфере и передает подписчикам.
+   */
+  public synchronized void append(OrderEvent event) {
+    OrderEvent numbered = event.withSequence(++lastSequence);
+    ring[(int) (numbered.sequence() % ring.length)] = numbered;
+    published.increment();
+    for (Consumer<OrderEvent> subscriber : subscribers) {
+      try {
+        subscriber.accept(numbered);
+      } catch (RuntimeException e) {
+        log.warn("Order event subscriber failed", e);
+      }
+    }
+  }
+
+  /**
+   * Возвращает события с номером больше {@code sequence} в порядке публикации.
+   *
+   * @return события или пусто, если часть из них уже вытеснена из буфера и клиенту нужно перечитать заказы целиком.
+   */
+  public synchronized Optional<List<OrderEvent>> eventsAfter(long sequence) {
+    if (sequence > lastSequence) {
+      return Optional.of(List.of());
+    }
+    if (lastSequence - sequence > ring.length) {
+      return Optional.empty();
+    }
+    List<OrderEvent> events = new ArrayList<>((int) (lastSequence - sequence));
+    for (long next = sequence + 1; next <= lastSequence; next++) {
+      events.add(ring[(int) (next % ring.length)]);
+    }
+    return Optional.of(events);
+  }
+
+  public void subscribe(Consumer<OrderEvent> subscriber) {
+    subscribers.add(subscriber);
+  }
+
+  public void unsubscribe(Consumer<OrderEvent> subscriber) {
+    subscribers.remove(subscriber);
+  }
+
+  /** @return номер последнего события. */
+  public synchronized long getLastSequence() { return lastSequence; }
+
+  /** @return количество событий, добавленных в ленту. */
+  public long getPublishedCount() { return published.sum(); }
+
+  /** @return текущее количество подписчиков. */
+  public int getSubscriberCount() { return subscribers.size(); }
+}
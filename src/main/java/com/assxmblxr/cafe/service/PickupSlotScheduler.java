@@ -0,0 +1,177 @@
+package com.assxmblxr.cafe.service;
+
+import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.util.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Календарь слотов выдачи заказов с ограниченной пропускной способностью кухни.
+ * <p>
+ * Время получения делится на слоты по {@code slotMinutes} минут, у каждого слота есть емкость
+ * в единицах позиций (сумма количеств в заказе). Занятость слота хранится в {@link AtomicInteger}
+ * и резервируется CAS-циклом без блокировок, так что проверка занимает микросекунды и не обращается к базе.
+ * При старте календарь восстанавливается из активных заказов ({@link OrderDao#findPickupLoad(LocalDateTime)}),
+ * прошедшие слоты удаляются по мере смены текущего слота.
+ * </p>
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code pickup.slotMinutes} - длительность слота в минутах (по умолчанию 5)</li>
+ * <li>{@code pickup.slotCapacity} - емкость слота в позициях, 0 - без ограничения (по умолчанию 30)</li>
+ * <li>{@code pickup.searchSlots} - сколько слотов в каждую сторону просматривать при подборе свободного (по умолчанию 12)</li>
+ * </ul>
+ */
+@Slf4j
+public class PickupSlotScheduler {
+  private final OrderDao orderDao;
+  private final long slotSeconds;
+  private final int capacity;
+  private final int searchSlots;
+  private volatile Map<Long, AtomicInteger> slots = new ConcurrentHashMap<>();
+  private volatile long purgedBefore;
+  private final LongAdder admitted = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+
+  public PickupSlotScheduler(OrderDao orderDao, int slotMinutes, int capacity, int searchSlots) {
+    this.orderDao = orderDao;
+    this.slotSeconds = slotMinutes * 60L;
+    this.capacity = capacity;
+    this.searchSlots = searchSlots;
+  }
+
+  public static PickupSlotScheduler fromConfig(OrderDao orderDao) {
+    return new PickupSlotScheduler(orderDao,
+            AppConfig.getInt("pickup.slotMinutes", 5),
+            AppConfig.getInt("pickup.slotCapacity", 30),
+            AppConfig.getInt("pickup.searchSlots", 12));
+  }
+
+  /**
+   * Заново заполняет календарь по активным заказам из базы, начиная с текущего слота.
+   */
+  public void rebuild() {
+    long current = slotOf(LocalDateTime.now());
+    Map<Long, AtomicInteger> fresh = new ConcurrentHashMap<>();
+    orderDao.findPickupLoad(startOf(current)).forEach((pickupTime, units) ->
+            fresh.computeIfAbsent(slotOf(pickupTime), slot -> new AtomicInteger()).addAndGet(units));
+    slots = fresh;
+    purgedBefore = current;
+    log.info("Pickup slots rebuilt: {} busy slots", fresh.size());
+  }
+
+  /**
+   * Резервирует место в слоте, на который приходится время получения.
+   *
+   * @param pickupTime время получения заказа.
+   * @param units      количество позиций в заказе.
+   * @return true, если место зарезервировано; false, если слот заполнен.
+   */
+  public boolean tryReserve(LocalDateTime pickupTime, int units) {
+    if (capacity <= 0) {
+      return true;
+    }
+    purgeExpired();
+    AtomicInteger used = slots.computeIfAbsent(slotOf(pickupTime), slot -> new AtomicInteger());
+    int current;
+    do {
+      current = used.get();
+      if (current + units > capacity) {
+        rejected.increment();
+        return false;
+      }
+    } while (!used.compareAndSet(current, current + units));
+    admitted.increment();
+    return true;
+  }
+
+  /**
+   * Возвращает место в слоте, например при отмене заказа или ошибке его сохранения.
+   */
+  public void release(LocalDateTime pickupTime, int units) {
+    if (capacity <= 0) {
+      return;
+    }
+    AtomicInteger used = slots.get(slotOf(pickupTime));
+    if (used != null) {
+      used.accumulateAndGet(units, (current, released) -> Math.max(0, current - released));
+    }
+  }
+
+  /**
+   * Ищет ближайший к желаемому времени слот, в который поместится заказ. Предлагаются только слоты,
+   * начинающиеся не раньше текущего момента, поэтому текущий, уже начавшийся слот не предлагается.
+   * Результат не резервируется.
+   *
+   * @return начало свободного слота или пусто, если в пределах {@code pickup.searchSlots} мест нет.
+   */
+  public Optional<LocalDateTime> findNearestFree(LocalDateTime pickupTime, int units) {
+    if (units > capacity) {
+      return Optional.empty();
+    }
+    long earliest = Math.floorDiv(LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) + slotSeconds - 1, slotSeconds);
+    long wanted = Math.max(slotOf(pickupTime), earliest);
+    for (int distance = 0; distance <= searchSlots; distance++) {
+      if (fits(wanted + distance, units)) {
+        return Optional.of(startOf(wanted + distance));
+      }
+      if (distance > 0 && wanted - distance >= earliest && fits(wanted - distance, units)) {
+        return Optional.of(startOf(wanted - distance));
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** @return суммарное количество позиций в заказе. */
+  public static int unitsOf(Order order) {
+    if (order.getItems() == null) {
+      return 0;
+    }
+    return order.getItems().stream().mapToInt(OrderItem::getQuantity).sum();
+  }
+
+  /** @return true, если емкость слотов ограничена. */
+  public boolean isEnabled() { return capacity > 0; }
+
+  /** @return количество успешных резервирований. */
+  public long getAdmittedCount() { return admitted.sum(); }
+
+  /** @return количество резервирований, отклоненных из-за заполненного слота. */
+  public long getRejectedCount() { return rejected.sum(); }
+
+  /** @return количество отслеживаемых слотов. */
+  public int getTrackedSlots() { return slots.size(); }
+
+  private boolean fits(long slot, int units) {
+    AtomicInteger used = slots.get(slot);
+    return (used == null ? 0 : used.get()) + units <= capacity;
+  }
+
+  /**
+   * Удаляет прошедшие слоты не чаще одного раза за слот.
+   */
+  private void purgeExpired() {
+    long current = slotOf(LocalDateTime.now());
+    if (current > purgedBefore) {
+      purgedBefore = current;
+      slots.keySet().removeIf(slot -> slot < current);
+    }
+  }
+
+  private long slotOf(LocalDateTime time) {
+    return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), slotSeconds);
+  }
+
+  private LocalDateTime startOf(long slot) {
+    return LocalDateTime.ofEpochSecond(slot * slotSeconds, 0, ZoneOffset.UTC);
+  }
+}
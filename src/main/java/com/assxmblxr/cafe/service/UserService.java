@@ -2,22 +2,57 @@ package com.assxmblxr.cafe.service;
 
 import com.assxmblxr.cafe.entity.Order;
 import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserPrincipal;
+import com.assxmblxr.cafe.entity.UserSummary;
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CompletionStage;
 
 public interface UserService {
+  /**
+   * @return пользователь или пустой Optional, если email не найден или пароль не подходит.
+   */
   Optional<User> login(String email, String password);
+
+  /**
+   * То же, что {@link #login(String, String)}, но проверка пароля BCrypt выполняется в пуле хеширования
+   * без блокировки вызывающего потока; пользователь читается из базы до возврата.
+   */
+  CompletionStage<Optional<User>> loginAsync(String email, String password);
   boolean register(User user);
 
-  void placeOrder(User user, Order order);
+  /**
+   * Сохраняет заказ пользователя, предварительно заняв место в слоте выдачи ({@link PickupSlotScheduler}).
+   *
+   * @throws com.assxmblxr.cafe.exception.CafeException если слот выдачи заполнен; сообщение
+   *         содержит ближайшее свободное время.
+   */
+  void placeOrder(long userId, Order order);
+
+  /**
+   * Сверяет снимок пользователя из сессии с актуальными данными.
+   *
+   * @return тот же снимок, если данные не менялись; новый снимок, если менялись;
+   *         пустой Optional, если пользователь удален или заблокирован.
+   */
+  Optional<UserPrincipal> refreshPrincipal(UserPrincipal principal);
 
   void blockUser(long userId);
   void unblockUser(long userId);
   void changeLoyaltyPoints(long userId, BigDecimal newPoints);
+  void markOrderPaid(long orderId);
   void processOrderFinalization(long orderId, boolean isSuccess);
+  int processOrdersFinalization(Collection<Long> orderIds, boolean isSuccess);
   void grantAdminRole(long userId);
 
   List<User> findAllUsers();
+  List<User> findUsersPage(long afterId, int limit);
+
+  /**
+   * Страница пользователей для списков администратора: без хешей паролей и балансов.
+   */
+  List<UserSummary> findUserSummariesPage(long afterId, int limit);
   Optional<User> findById(long id);
 }
\ No newline at end of file
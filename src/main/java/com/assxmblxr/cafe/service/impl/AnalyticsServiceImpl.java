@@ -0,0 +1,281 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.service.AnalyticsService;
+import com.assxmblxr.cafe.util.AppConfig;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Аналитика по истории заказов: позиции завершенных заказов за период читаются курсором
+ * ({@link OrderDao#forEachCompleted}) уже в копейках, упаковываются порциями в примитивные массивы
+ * и сворачиваются параллельно в {@link ForkJoinPool}, пока чтение продолжается. Сущности заказов
+ * не создаются, а число порций в обработке ограничено, так что память не зависит от размера истории.
+ * Собственный пул (при {@code analytics.parallelism} больше 0) останавливается в {@link #close()}.
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code analytics.parallelism} - размер пула, 0 - общий пул по числу ядер</li>
+ * <li>{@code analytics.chunkSize} - количество заказов в порции (по умолчанию 10000)</li>
+ * <li>{@code analytics.topSellers} - размер списка лидеров продаж (по умолчанию 10)</li>
+ * </ul>
+ */
+@Slf4j
+public class AnalyticsServiceImpl implements AnalyticsService, AutoCloseable {
+  private static final int MAX_BASKET_SIZE = 20;
+  private static final int SPLIT_THRESHOLD = 1024;
+
+  private final OrderDao orderDao;
+  private final ForkJoinPool pool;
+  private final boolean ownsPool;
+  private final int chunkSize;
+  private final int topSellers;
+
+  /**
+   * @param pool пул для свертки порций; его жизненным циклом управляет вызывающий код.
+   */
+  public AnalyticsServiceImpl(OrderDao orderDao, ForkJoinPool pool, int chunkSize, int topSellers) {
+    this(orderDao, pool, false, chunkSize, topSellers);
+  }
+
+  private AnalyticsServiceImpl(OrderDao orderDao, ForkJoinPool pool, boolean ownsPool, int chunkSize, int topSellers) {
+    this.orderDao = orderDao;
+    this.pool = pool;
+    this.ownsPool = ownsPool;
+    this.chunkSize = chunkSize;
+    this.topSellers = topSellers;
+  }
+
+  public static AnalyticsServiceImpl fromConfig(OrderDao orderDao) {
+    int parallelism = AppConfig.getInt("analytics.parallelism", 0);
+    return new AnalyticsServiceImpl(orderDao,
+            parallelism > 0 ? new ForkJoinPool(parallelism) : ForkJoinPool.commonPool(),
+            parallelism > 0,
+            AppConfig.getInt("analytics.chunkSize", 10_000),
+            AppConfig.getInt("analytics.topSellers", 10));
+  }
+
+  @Override
+  public OrderAnalytics analyze(LocalDate from, LocalDate to) {
+    long start = System.nanoTime();
+    Semaphore inFlight = new Semaphore(pool.getParallelism() * 2);
+    List<ForkJoinTask<Partial>> tasks = new ArrayList<>();
+    ChunkWriter writer = new ChunkWriter(inFlight, tasks);
+    orderDao.forEachCompleted(from.atStartOfDay(), to.plusDays(1).atStartOfDay(), writer);
+    writer.finish();
+
+    Partial total = new Partial();
+    for (ForkJoinTask<Partial> task : tasks) {
+      total.merge(task.join());
+    }
+
+    List<ItemTotal> top = total.items.entrySet().stream()
+            .map(e -> new ItemTotal(e.getKey(), e.getValue()[0], e.getValue()[1]))
+            .sorted(Comparator.comparingLong(ItemTotal::revenueMinor).reversed())
+            .limit(topSellers)
+            .toList();
+    OrderAnalytics analytics = new OrderAnalytics(total.orders, total.revenueMinor, top,
+            total.basketSizes, total.revenuePerHour, (System.nanoTime() - start) / 1_000_000);
+    log.info("Order analytics from {} to {}: {} orders in {} chunks, {} ms, parallelism {}",
+            from, to, analytics.orders(), tasks.size(), analytics.elapsedMillis(), pool.getParallelism());
+    return analytics;
+  }
+
+  /**
+   * Останавливает собственный пул, дождавшись текущих расчетов. Общий и переданный извне пулы не трогает.
+   */
+  @Override
+  public void close() {
+    if (!ownsPool) {
+      return;
+    }
+    pool.shutdown();
+    try {
+      if (!pool.awaitTermination(10, TimeUnit.SECONDS)) {
+        pool.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      pool.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Отправляет порцию в пул, ожидая, если слишком много порций еще не обработано.
+   */
+  private ForkJoinTask<Partial> submit(Chunk chunk, Semaphore inFlight) {
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CafeException("Interrupted while analyzing orders", e);
+    }
+    ChunkReducer reducer = new ChunkReducer(chunk, 0, chunk.size);
+    return pool.submit(ForkJoinTask.adapt(() -> {
+      try {
+        return reducer.invoke();
+      } finally {
+        inFlight.release();
+      }
+    }));
+  }
+
+  /**
+   * Собирает строки курсора в порции и отправляет заполненные порции в пул.
+   * Порция заполняется только на границе заказа, чтобы позиции заказа не разделялись.
+   */
+  private final class ChunkWriter implements OrderDao.CompletedItemVisitor {
+    private final Semaphore inFlight;
+    private final List<ForkJoinTask<Partial>> tasks;
+    private Chunk chunk = new Chunk(chunkSize);
+    private long lastOrderId = -1;
+
+    ChunkWriter(Semaphore inFlight, List<ForkJoinTask<Partial>> tasks) {
+      this.inFlight = inFlight;
+      this.tasks = tasks;
+    }
+
+    @Override
+    public void visit(long orderId, int hour, long totalMinor, long menuItemId, int quantity, long priceMinor) {
+      if (orderId != lastOrderId) {
+        if (chunk.size == chunkSize) {
+          tasks.add(submit(chunk, inFlight));
+          chunk = new Chunk(chunkSize);
+        }
+        chunk.addOrder(hour, totalMinor);
+        lastOrderId = orderId;
+      }
+      if (quantity > 0) {
+        chunk.addItem(menuItemId, quantity, priceMinor);
+      }
+    }
+
+    void finish() {
+      if (chunk.size > 0) {
+        tasks.add(submit(chunk, inFlight));
+      }
+    }
+  }
+
+  /**
+   * Порция заказов в виде параллельных примитивных массивов: позиции заказа {@code i}
+   * занимают индексы с {@code itemStart[i]} по {@code itemStart[i + 1]} в массивах позиций.
+   */
+  private static final class Chunk {
+    private final int[] hours;
+    private final int[] units;
+    private final long[] totals;
+    private final int[] itemStart;
+    private long[] itemIds;
+    private int[] itemQuantities;
+    private long[] itemPrices;
+    private int size;
+    private int itemCount;
+
+    Chunk(int capacity) {
+      hours = new int[capacity];
+      units = new int[capacity];
+      totals = new long[capacity];
+      itemStart = new int[capacity + 1];
+      itemIds = new long[capacity * 2];
+      itemQuantities = new int[capacity * 2];
+      itemPrices = new long[capacity * 2];
+    }
+
+    void addOrder(int hour, long totalMinor) {
+      hours[size] = hour;
+      totals[size] = totalMinor;
+      size++;
+      itemStart[size] = itemCount;
+    }
+
+    void addItem(long menuItemId, int quantity, long priceMinor) {
+      if (itemCount == itemIds.length) {
+        int capacity = itemIds.length * 2;
+        itemIds = Arrays.copyOf(itemIds, capacity);
+        itemQuantities = Arrays.copyOf(itemQuantities, capacity);
+        itemPrices = Arrays.copyOf(itemPrices, capacity);
+      }
+      itemIds[itemCount] = menuItemId;
+      itemQuantities[itemCount] = quantity;
+      itemPrices[itemCount] = priceMinor;
+      units[size - 1] += quantity;
+      itemCount++;
+      itemStart[size] = itemCount;
+    }
+  }
+
+  private static final class ChunkReducer extends RecursiveTask<Partial> {
+    private final Chunk chunk;
+    private final int from;
+    private final int to;
+
+    ChunkReducer(Chunk chunk, int from, int to) {
+      this.chunk = chunk;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Partial compute() {
+      if (to - from > SPLIT_THRESHOLD) {
+        int middle = (from + to) >>> 1;
+        ChunkReducer left = new ChunkReducer(chunk, from, middle);
+        left.fork();
+        Partial right = new ChunkReducer(chunk, middle, to).compute();
+        right.merge(left.join());
+        return right;
+      }
+      Partial partial = new Partial();
+      for (int i = from; i < to; i++) {
+        partial.orders++;
+        partial.revenueMinor += chunk.totals[i];
+        partial.revenuePerHour[chunk.hours[i]] += chunk.totals[i];
+        partial.basketSizes[Math.min(chunk.units[i], MAX_BASKET_SIZE)]++;
+        for (int j = chunk.itemStart[i]; j < chunk.itemStart[i + 1]; j++) {
+          long[] item = partial.items.computeIfAbsent(chunk.itemIds[j], id -> new long[2]);
+          item[0] += chunk.itemQuantities[j];
+          item[1] += chunk.itemQuantities[j] * chunk.itemPrices[j];
+        }
+      }
+      return partial;
+    }
+  }
+
+  private static final class Partial {
+    private long orders;
+    private long revenueMinor;
+    private final long[] basketSizes = new long[MAX_BASKET_SIZE + 1];
+    private final long[] revenuePerHour = new long[24];
+    private final Map<Long, long[]> items = new HashMap<>();
+
+    void merge(Partial other) {
+      orders += other.orders;
+      revenueMinor += other.revenueMinor;
+      for (int i = 0; i < basketSizes.length; i++) {
+        basketSizes[i] += other.basketSizes[i];
+      }
+      for (int i = 0; i < revenuePerHour.length; i++) {
+        revenuePerHour[i] += other.revenuePerHour[i];
+      }
+      other.items.forEach((id, totals) -> {
+        long[] item = items.computeIfAbsent(id, key -> new long[2]);
+        item[0] += totals[0];
+        item[1] += totals[1];
+      });
+    }
+  }
+}
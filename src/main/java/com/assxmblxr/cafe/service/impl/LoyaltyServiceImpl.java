@@ -0,0 +1,47 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.LoyaltyDao;
+import com.assxmblxr.cafe.service.LoyaltyService;
+import lombok.extern.slf4j.Slf4j;
+
+import java.math.BigDecimal;
+import java.util.function.LongConsumer;
+
+@Slf4j
+public class LoyaltyServiceImpl implements LoyaltyService {
+  private final LoyaltyDao loyaltyDao;
+  private final int chunkSize;
+  private final BigDecimal pointsPerUnit;
+  private final LongConsumer pointsChanged;
+
+  /**
+   * @param pointsChanged вызывается для каждого пользователя, получившего баллы, после фиксации порции;
+   *                      сбрасывает его запись в кэше пользователей.
+   */
+  public LoyaltyServiceImpl(LoyaltyDao loyaltyDao, int chunkSize, BigDecimal pointsPerUnit,
+                            LongConsumer pointsChanged) {
+    this.loyaltyDao = loyaltyDao;
+    this.chunkSize = chunkSize;
+    this.pointsPerUnit = pointsPerUnit;
+    this.pointsChanged = pointsChanged;
+  }
+
+  @Override
+  public AccrualReport accrue() {
+    long start = System.nanoTime();
+    long orders = 0;
+    long users = 0;
+    LoyaltyDao.ChunkResult chunk;
+    do {
+      chunk = loyaltyDao.accrueChunk(chunkSize, pointsPerUnit);
+      orders += chunk.orders();
+      users += chunk.users();
+      chunk.userIds().forEach(pointsChanged::accept);
+    } while (chunk.orders() == chunkSize);
+
+    AccrualReport report = new AccrualReport(orders, users, (System.nanoTime() - start) / 1_000_000);
+    log.info("Loyalty accrual finished: {} orders, {} user credits in {} ms ({} orders/s)",
+            report.orders(), report.users(), report.elapsedMillis(), String.format("%.1f", report.ordersPerSecond()));
+    return report;
+  }
+}
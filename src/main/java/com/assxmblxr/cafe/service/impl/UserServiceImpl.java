@@ -1,57 +1,139 @@
 package com.assxmblxr.cafe.service.impl;
 
 import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.dao.SalesReportDao;
+import com.assxmblxr.cafe.dao.TransactionManager;
 import com.assxmblxr.cafe.dao.UserDao;
 import com.assxmblxr.cafe.entity.*;
 import com.assxmblxr.cafe.type.OrderStatus;
 import com.assxmblxr.cafe.type.PaymentMethod;
 import com.assxmblxr.cafe.type.Role;
 import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.service.OrderEventBus;
+import com.assxmblxr.cafe.service.PickupSlotScheduler;
 import com.assxmblxr.cafe.service.UserService;
+import com.assxmblxr.cafe.util.BloomFilter;
+import com.assxmblxr.cafe.util.PasswordHasher;
 import lombok.extern.slf4j.Slf4j;
-import org.mindrot.jbcrypt.BCrypt;
 
 import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
 
 @Slf4j
 public class UserServiceImpl implements UserService {
   private final UserDao userDao;
   private final OrderDao orderDao;
+  private final PasswordHasher passwordHasher;
+  private final TransactionManager transactionManager;
+  private final PickupSlotScheduler pickupSlots;
+  private final OrderEventBus orderEvents;
+  private final SalesReportDao salesReportDao;
+  private final BloomFilter knownEmails;
 
-  public UserServiceImpl(UserDao userDao, OrderDao orderDao) {
+  /**
+   * @param knownEmails фильтр занятых email в нижнем регистре (см. {@link #emailKey(String)}),
+   *                    заполненный при старте; сервис дополняет его при регистрации.
+   */
+  public UserServiceImpl(UserDao userDao, OrderDao orderDao, PasswordHasher passwordHasher,
+                         TransactionManager transactionManager, PickupSlotScheduler pickupSlots,
+                         OrderEventBus orderEvents, SalesReportDao salesReportDao, BloomFilter knownEmails) {
     this.userDao = userDao;
     this.orderDao = orderDao;
+    this.passwordHasher = passwordHasher;
+    this.transactionManager = transactionManager;
+    this.pickupSlots = pickupSlots;
+    this.orderEvents = orderEvents;
+    this.salesReportDao = salesReportDao;
+    this.knownEmails = knownEmails;
   }
 
   @Override
   public Optional<User> login(String email, String password) {
-    User user = userDao.findByEmail(email)
-            .orElseThrow(() -> new CafeException("User not found"));
+    Optional<User> found = userDao.findByEmail(email);
+    if (found.isEmpty()) {
+      return Optional.empty();
+    }
+    User user = found.get();
+
+    return verified(user, password, passwordHasher.verify(password, user.getPassword()));
+  }
+
+  @Override
+  public CompletionStage<Optional<User>> loginAsync(String email, String password) {
+    Optional<User> found = userDao.findByEmail(email);
+    if (found.isEmpty()) {
+      return CompletableFuture.completedFuture(Optional.empty());
+    }
+    User user = found.get();
+    return passwordHasher.verifyAsync(password, user.getPassword())
+            .thenApply(matches -> verified(user, password, matches));
+  }
 
-    boolean passwordMatches = BCrypt.checkpw(password, user.getPassword());
+  private Optional<User> verified(User user, String password, boolean passwordMatches) {
     if (!passwordMatches) {
       return Optional.empty();
     }
+    if (passwordHasher.needsRehash(user.getPassword())) {
+      upgradePasswordHash(user.getId(), password, user.getPassword());
+    }
     return Optional.of(user);
   }
 
+  /**
+   * Пересчитывает хеш пароля с текущей стоимостью BCrypt в фоне, вне потока запроса.
+   * Если пул хеширования перегружен, обновление откладывается до следующего входа. Новый хеш
+   * записывается, только если в базе остался проверенный {@code verifiedHash}, иначе пароль успели сменить.
+   */
+  private void upgradePasswordHash(long userId, String password, String verifiedHash) {
+    passwordHasher.hashAsync(password)
+            .thenAccept(hash -> userDao.updatePassword(userId, verifiedHash, hash))
+            .exceptionally(e -> {
+              log.warn("Password hash upgrade postponed for user {}: {}", userId, e.getMessage());
+              return null;
+            });
+  }
+
+  /**
+   * Уникальность email гарантирует уникальный индекс: пользователь создается через
+   * {@link UserDao#createIfAbsent(User)}. Существование email проверяется заранее только тогда,
+   * когда фильтр занятых email допускает совпадение, чтобы не хешировать пароль для заведомого дубликата;
+   * новые email идут сразу на вставку.
+   */
   @Override
   public boolean register(User user) {
-    if (userDao.findByEmail(user.getEmail()).isPresent()) {
+    String key = emailKey(user.getEmail());
+    if (knownEmails.mightContain(key) && userDao.existsByEmail(user.getEmail())) {
       return false;
     }
 
-    user.setPassword(BCrypt.hashpw(user.getPassword(), BCrypt.gensalt()));
+    user.setPassword(passwordHasher.hash(user.getPassword()));
+    if (user.getAccountBalance() == null) {
+      user.setAccountBalance(BigDecimal.ZERO);
+    }
     user.setLoyaltyPoints(new BigDecimal("5.00"));
     user.setRole(Role.CLIENT);
-    userDao.create(user);
-    return true;
+    boolean created = userDao.createIfAbsent(user);
+    knownEmails.put(key);
+    return created;
+  }
+
+  /**
+   * @return ключ email для фильтра занятых email.
+   */
+  public static String emailKey(String email) {
+    return email.toLowerCase(Locale.ROOT);
   }
 
   @Override
-  public void placeOrder(User user, Order order) {
+  public void placeOrder(long userId, Order order) {
+    User user = userDao.findById(userId)
+            .orElseThrow(() -> new CafeException("User not found"));
     if (user.isBlocked()) {
       throw new CafeException("User is blocked");
     }
@@ -59,15 +141,61 @@ public class UserServiceImpl implements UserService {
       throw new CafeException("Admins are not allowed to place orders");
     }
 
-    if (order.getPaymentMethod() == PaymentMethod.ACCOUNT) {
-      if (user.getAccountBalance().compareTo(order.getTotalPrice()) < 0) {
-        throw new CafeException("Insufficient funds");
+    int units = PickupSlotScheduler.unitsOf(order);
+    reservePickupSlot(order, units);
+    try {
+      if (order.getPaymentMethod() == PaymentMethod.ACCOUNT) {
+        order.setStatus(OrderStatus.PAID);
+        transactionManager.execute(conn -> {
+          if (!userDao.debitBalance(conn, user.getId(), order.getTotalPrice())) {
+            throw new CafeException("Insufficient funds");
+          }
+          orderDao.create(conn, order);
+          return null;
+        });
+      } else {
+        orderDao.create(order);
+      }
+    } catch (RuntimeException e) {
+      if (order.getPickupTime() != null) {
+        pickupSlots.release(order.getPickupTime(), units);
       }
-      user.setAccountBalance(user.getAccountBalance().subtract(order.getTotalPrice()));
+      throw e;
     }
+    orderEvents.publish(order.getOrderId(), order.getStatus(), order.getPickupTime(), units);
     log.info("User {} placed order {}", user.getEmail(), order.getOrderId());
-    orderDao.create(order);
-    userDao.update(user);
+  }
+
+  /**
+   * Резервирует место в слоте выдачи до записи заказа, чтобы переполненный слот
+   * отклонялся без обращения к базе. Время получения в прошлом отклоняется. В сообщении об отказе предлагается ближайший свободный слот.
+   */
+  private void reservePickupSlot(Order order, int units) {
+    if (order.getPickupTime() == null) {
+      return;
+    }
+    if (order.getPickupTime().isBefore(LocalDateTime.now())) {
+      throw new CafeException("Pickup time is in the past");
+    }
+    if (pickupSlots.tryReserve(order.getPickupTime(), units)) {
+      return;
+    }
+    throw pickupSlots.findNearestFree(order.getPickupTime(), units)
+            .map(slot -> new CafeException("Pickup time is fully booked, nearest available: "
+                    + slot.toLocalTime()))
+            .orElseGet(() -> new CafeException("No pickup time available for this order"));
+  }
+
+  @Override
+  public Optional<UserPrincipal> refreshPrincipal(UserPrincipal principal) {
+    Optional<User> user = userDao.findById(principal.id());
+    if (user.isEmpty() || user.get().isBlocked()) {
+      return Optional.empty();
+    }
+    if (user.get().getVersion() == principal.version()) {
+      return Optional.of(principal);
+    }
+    return Optional.of(UserPrincipal.of(user.get()));
   }
 
   @Override
@@ -91,17 +219,47 @@ public class UserServiceImpl implements UserService {
     log.info("Points changed for user {} to {}", userId, newPoints);
   }
 
+  @Override
+  public void markOrderPaid(long orderId) {
+    if (!orderDao.updateStatus(orderId, OrderStatus.PAID)) {
+      throw new CafeException("Order not found or cannot be marked as paid");
+    }
+    orderEvents.publishStatus(orderId, OrderStatus.PAID);
+  }
+
   @Override
   public void processOrderFinalization(long orderId, boolean isSuccess) {
-    Order order = orderDao.findById(orderId)
-            .orElseThrow(() -> new CafeException("Order not found"));
+    OrderStatus target = isSuccess ? OrderStatus.COMPLETED : OrderStatus.CANCELLED;
+    if (finalizeOrders(List.of(orderId), target).isEmpty()) {
+      throw new CafeException("Order not found or cannot be moved to " + target);
+    }
+  }
+
+  @Override
+  public int processOrdersFinalization(Collection<Long> orderIds, boolean isSuccess) {
+    return finalizeOrders(orderIds, isSuccess ? OrderStatus.COMPLETED : OrderStatus.CANCELLED).size();
+  }
 
-    if (isSuccess) {
-      order.setStatus(OrderStatus.COMPLETED);
-    } else {
-      order.setStatus(OrderStatus.CANCELLED);
+  /**
+   * Меняет статус заказов и учитывает их в агрегатах продаж в одной транзакции.
+   * После фиксации освобождает слоты выдачи отмененных заказов по времени получения
+   * и количеству позиций, которые вернул тот же UPDATE.
+   *
+   * @return заказы, статус которых изменен.
+   */
+  private List<OrderStatusChange> finalizeOrders(Collection<Long> orderIds, OrderStatus target) {
+    List<OrderStatusChange> updated = transactionManager.execute(conn -> {
+      List<OrderStatusChange> changes = orderDao.updateStatus(conn, orderIds, target);
+      salesReportDao.record(conn, changes.stream().map(OrderStatusChange::orderId).toList());
+      return changes;
+    });
+    for (OrderStatusChange change : updated) {
+      if (target == OrderStatus.CANCELLED && change.pickupTime() != null) {
+        pickupSlots.release(change.pickupTime(), change.units());
+      }
+      orderEvents.publishStatus(change.orderId(), target);
     }
-    orderDao.update(order);
+    return updated;
   }
 
   @Override
@@ -112,8 +270,8 @@ public class UserServiceImpl implements UserService {
     if (user.getRole() == Role.ADMIN) {
       throw new CafeException("User is already admin");
     }
-    user.setRole(Role.ADMIN);
-    userDao.update(user);
+    // только роль: полная запись строки из кэша затерла бы баллы, начисленные в обход кэша
+    userDao.updateRole(userId, Role.ADMIN);
   }
 
   @Override
@@ -121,6 +279,16 @@ public class UserServiceImpl implements UserService {
     return userDao.findAll();
   }
 
+  @Override
+  public List<User> findUsersPage(long afterId, int limit) {
+    return userDao.findPage(afterId, limit);
+  }
+
+  @Override
+  public List<UserSummary> findUserSummariesPage(long afterId, int limit) {
+    return userDao.findSummaryPage(afterId, limit);
+  }
+
   @Override
   public Optional<User> findById(long id) {
     return userDao.findById(id);
@@ -1,8 +1,30 @@
 package com.assxmblxr.cafe.type;
 
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * Статус заказа. Допустимые переходы: NEW → PAID → COMPLETED, NEW/PAID → CANCELLED.
+ */
 public enum OrderStatus {
   NEW,
   PAID,
   COMPLETED,
-  CANCELLED,
+  CANCELLED;
+
+  /**
+   * @return статусы, из которых заказ может перейти в этот статус.
+   */
+  public Set<OrderStatus> allowedSources() {
+    return switch (this) {
+      case NEW -> EnumSet.noneOf(OrderStatus.class);
+      case PAID -> EnumSet.of(NEW);
+      case COMPLETED -> EnumSet.of(PAID);
+      case CANCELLED -> EnumSet.of(NEW, PAID);
+    };
+  }
+
+  public boolean canTransitionTo(OrderStatus target) {
+    return target.allowedSources().contains(this);
+  }
 }
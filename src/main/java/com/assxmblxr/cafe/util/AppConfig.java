@@ -0,0 +1,53 @@
+package com.assxmblxr.cafe.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Properties;
+
+/**
+ * Утилитарный класс для чтения настроек приложения из файла {@code app.properties}.
+ * <p>
+ * Файл читается один раз при загрузке класса. Значение может быть переопределено
+ * системным свойством JVM с тем же именем ({@code -Dsecurity.bcrypt.cost=12}).
+ * Если ключ не задан, используется значение по умолчанию, переданное вызывающим кодом.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+@Slf4j
+public class AppConfig {
+  private static final Properties props = new Properties();
+
+  static {
+    try (InputStream in = AppConfig.class.getClassLoader().getResourceAsStream("app.properties")) {
+      if (in == null) {
+        log.warn("app.properties not found, using defaults");
+      } else {
+        props.load(in);
+      }
+    } catch (IOException e) {
+      log.error("Got an IOException when loading app properties", e);
+      throw new RuntimeException("Got an IOException when loading app properties", e);
+    }
+  }
+
+  private AppConfig() {}
+
+  public static String get(String key, String defaultValue) {
+    return System.getProperty(key, props.getProperty(key, defaultValue)).trim();
+  }
+
+  public static int getInt(String key, int defaultValue) {
+    return Integer.parseInt(get(key, String.valueOf(defaultValue)));
+  }
+
+  public static long getLong(String key, long defaultValue) {
+    return Long.parseLong(get(key, String.valueOf(defaultValue)));
+  }
+
+  public static boolean getBoolean(String key, boolean defaultValue) {
+    return Boolean.parseBoolean(get(key, String.valueOf(defaultValue)));
+  }
+}
@@ -0,0 +1,94 @@
+package com.assxmblxr.cafe.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Потокобезопасный фильтр Блума для строк.
+ * <p>
+ * Отвечает "точно нет" или "возможно есть": ложноположительные ответы случаются с заданной
+ * вероятностью, ложноотрицательных не бывает. Биты хранятся в {@link AtomicLongArray},
+ * добавление и проверка не берут блокировок. Позиции битов получаются двойным хешированием
+ * одного 64-битного хеша строки (FNV-1a с финальным перемешиванием из MurmurHash3).
+ * </p>
+ *
+ * @author assxmblxr
+ */
+public class BloomFilter {
+  private final AtomicLongArray words;
+  private final long bitCount;
+  private final int hashCount;
+
+  private BloomFilter(long bitCount, int hashCount) {
+    this.words = new AtomicLongArray((int) ((bitCount + 63) >>> 6));
+    this.bitCount = (long) words.length() << 6;
+    this.hashCount = hashCount;
+  }
+
+  /**
+   * Создает фильтр оптимального размера.
+   *
+   * @param expectedInsertions ожидаемое количество элементов.
+   * @param falsePositiveRate  допустимая вероятность ложноположительного ответа, например 0.01.
+   */
+  public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+    long n = Math.max(1, expectedInsertions);
+    long bits = (long) Math.ceil(-n * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+    int hashes = Math.max(1, (int) Math.round((double) bits / n * Math.log(2)));
+    return new BloomFilter(Math.max(64, bits), hashes);
+  }
+
+  public void put(String value) {
+    long hash = hash(value);
+    long h1 = hash;
+    long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      int word = (int) (bit >>> 6);
+      long mask = 1L << bit;
+      long current = words.get(word);
+      if ((current & mask) == 0) {
+        words.getAndAccumulate(word, mask, (w, m) -> w | m);
+      }
+    }
+  }
+
+  /**
+   * @return false, если значение точно не добавлялось; true, если оно возможно было добавлено.
+   */
+  public boolean mightContain(String value) {
+    long hash = hash(value);
+    long h1 = hash;
+    long h2 = mix(hash ^ 0x9E3779B97F4A7C15L) | 1;
+    for (int i = 0; i < hashCount; i++) {
+      long bit = Math.floorMod(h1 + i * h2, bitCount);
+      if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** @return размер фильтра в битах. */
+  public long getBitCount() { return bitCount; }
+
+  /** @return количество хеш-функций. */
+  public int getHashCount() { return hashCount; }
+
+  private static long hash(String value) {
+    long h = 0xCBF29CE484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h ^= value.charAt(i);
+      h *= 0x100000001B3L;
+    }
+    return mix(h);
+  }
+
+  private static long mix(long h) {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    h ^= h >>> 33;
+    return h;
+  }
+}
@@ -7,6 +7,7 @@ import lombok.extern.slf4j.Slf4j;
 import java.io.IOException;
 import java.io.InputStream;
 import java.sql.Connection;
+import java.sql.DriverManager;
 import java.sql.SQLException;
 import java.util.Properties;
 
@@ -19,18 +20,34 @@ import java.util.Properties;
  *
  * <b>Конфигурация (db.properties):</b>
  * <ul>
- * <li>{@code db.url} - URL подключения к БД</li>
- * <li>{@code db.username} - имя пользователя</li>
- * <li>{@code db.password} - пароль</li>
- * <li>{@code db.driver} - имя JDBC драйвера</li>
- * <li>{@code db.poolSize} - максимальное количество соединений (по умолчанию 10)</li>
+ * <li>{@code jdbcUrl} - URL подключения к БД</li>
+ * <li>{@code username} - имя пользователя</li>
+ * <li>{@code password} - пароль</li>
+ * <li>{@code driverClassName} - имя JDBC драйвера</li>
+ * <li>{@code maximumPoolSize} - максимальное количество соединений (по умолчанию 10)</li>
+ * <li>{@code dataSource.*} - свойства, передаваемые драйверу PgJDBC</li>
  * </ul>
+ * Любой ключ файла можно переопределить системным свойством JVM с префиксом {@code db.}
+ * ({@code -Ddb.jdbcUrl=...}), например чтобы направить тесты на отдельную базу.
+ *
+ * <p>
+ * До выдачи первого соединения применяются миграции схемы ({@link SchemaMigrator}),
+ * если в {@code app.properties} не выключен {@code db.migrations.enabled}.
+ * </p>
+ *
+ * <p>
+ * Hikari не кэширует statements сам, это делает драйвер: каждое соединение хранит
+ * серверные prepared statements, найденные по тексту SQL. Поэтому DAO держат SQL
+ * в константах и не собирают его на каждый вызов, а {@code dataSource.prepareThreshold=1}
+ * заставляет драйвер готовить серверный statement уже при первом выполнении.
+ * </p>
  *
  * @author assxmblxr
  */
 @Slf4j
 public class DatabaseUtil {
   private static final HikariDataSource dataSource;
+  private static final boolean statementStats = AppConfig.getBoolean("db.statementStats.enabled", false);
 
   static {
     Properties props = new Properties();
@@ -39,9 +56,19 @@ public class DatabaseUtil {
         throw new RuntimeException("db.properties not found!");
       }
       props.load(in);
+      for (String key : props.stringPropertyNames()) {
+        String override = System.getProperty("db." + key);
+        if (override != null) {
+          props.setProperty(key, override);
+        }
+      }
 
       HikariConfig config = new HikariConfig(props);
+      config.setMetricsTrackerFactory(new PoolMetricsTrackerFactory());
       dataSource = new HikariDataSource(config);
+      if (AppConfig.getBoolean("db.migrations.enabled", true)) {
+        SchemaMigrator.migrate(dataSource);
+      }
     } catch (IOException e) {
       log.error("Got an IOException when loading DB properties", e);
       throw new RuntimeException("Got an IOException when loading DB properties", e);
@@ -50,8 +77,45 @@ public class DatabaseUtil {
 
   private DatabaseUtil() {}
 
+  /**
+   * Выдает соединение из пула. Если включен {@code db.statementStats.enabled} (по умолчанию выключен,
+   * включается в тестах и при поиске лишних обращений), соединение обернуто {@link StatementStats}
+   * для учета обращений к базе.
+   */
   public static Connection getConnection() throws SQLException {
-    return dataSource.getConnection();
+    Connection conn = dataSource.getConnection();
+    return statementStats ? StatementStats.wrap(conn) : conn;
+  }
+
+  /**
+   * Открывает отдельное соединение в обход пула с теми же параметрами, что и у пула. Нужно для
+   * долгоживущих сессий вроде LISTEN, которые иначе навсегда занимали бы соединение пула и уменьшали
+   * его для запросов. Закрывает соединение вызывающий код.
+   */
+  public static Connection getDedicatedConnection() throws SQLException {
+    Properties props = new Properties();
+    props.putAll(dataSource.getDataSourceProperties());
+    if (dataSource.getUsername() != null) {
+      props.setProperty("user", dataSource.getUsername());
+    }
+    if (dataSource.getPassword() != null) {
+      props.setProperty("password", dataSource.getPassword());
+    }
+    return DriverManager.getConnection(dataSource.getJdbcUrl(), props);
+  }
+
+  /**
+   * Проверяет, что пул может выдать рабочее соединение.
+   *
+   * @return true, если соединение получено и прошло проверку за одну секунду.
+   */
+  public static boolean isHealthy() {
+    try (Connection conn = dataSource.getConnection()) {
+      return conn.isValid(1);
+    } catch (SQLException e) {
+      log.warn("Health check failed: {}", e.getMessage());
+      return false;
+    }
   }
 
   public static void shutdown() {
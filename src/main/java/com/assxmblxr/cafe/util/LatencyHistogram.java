@@ -0,0 +1,100 @@
+package com.assxmblxr.cafe.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасная гистограмма задержек с логарифмическими корзинами (в стиле HdrHistogram).
+ * <p>
+ * Каждая степень двойки делится на 8 равных корзин, поэтому перцентили вычисляются
+ * с относительной погрешностью не более 12.5% во всем диапазоне {@code long}.
+ * Запись значения не выделяет память и не берет блокировок, поэтому ее можно
+ * вызывать на горячем пути обработки запроса.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+public class LatencyHistogram {
+  private static final int SUB_BUCKET_BITS = 3;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+  private final LongAdder count = new LongAdder();
+  private final LongAdder sum = new LongAdder();
+  private final AtomicLong max = new AtomicLong();
+
+  /**
+   * @param value значение (обычно в наносекундах); отрицательные значения считаются нулем.
+   */
+  public void record(long value) {
+    long v = Math.max(value, 0);
+    counts.incrementAndGet(indexOf(v));
+    count.increment();
+    sum.add(v);
+    if (v > max.get()) {
+      max.accumulateAndGet(v, Math::max);
+    }
+  }
+
+  /** @return количество записанных значений. */
+  public long getCount() { return count.sum(); }
+
+  /** @return сумма записанных значений. */
+  public long getSum() { return sum.sum(); }
+
+  /** @return максимальное записанное значение. */
+  public long getMax() { return max.get(); }
+
+  /** @return среднее значение или 0, если значений нет. */
+  public double getMean() {
+    long n = count.sum();
+    return n == 0 ? 0 : (double) sum.sum() / n;
+  }
+
+  /**
+   * Возвращает оценку перцентиля сверху: верхнюю границу корзины, в которую он попал.
+   *
+   * @param percentile перцентиль от 0 до 100.
+   * @return значение перцентиля или 0, если значений нет.
+   */
+  public long getPercentile(double percentile) {
+    long total = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      total += counts.get(i);
+    }
+    if (total == 0) {
+      return 0;
+    }
+    long target = Math.max(1, (long) Math.ceil(percentile / 100.0 * total));
+    long seen = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      seen += counts.get(i);
+      if (seen >= target) {
+        return Math.min(upperBoundOf(i), max.get());
+      }
+    }
+    return max.get();
+  }
+
+  static int indexOf(long value) {
+    if (value < SUB_BUCKETS) {
+      return (int) value;
+    }
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    int subBucket = (int) (value >>> shift) & (SUB_BUCKETS - 1);
+    return (shift + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  static long upperBoundOf(int index) {
+    if (index < SUB_BUCKETS) {
+      return index;
+    }
+    int shift = index / SUB_BUCKETS - 1;
+    int subBucket = index % SUB_BUCKETS;
+    if (shift >= 64 - SUB_BUCKET_BITS - 1) {
+      return Long.MAX_VALUE;
+    }
+    return ((long) (SUB_BUCKETS + subBucket + 1) << shift) - 1;
+  }
+}
@@ -0,0 +1,169 @@
+package com.assxmblxr.cafe.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Ограничитель попыток входа по email и по IP-адресу клиента со скользящим окном.
+ * <p>
+ * Окно приближается двумя соседними фиксированными окнами: число попыток в предыдущем окне
+ * учитывается с весом, убывающим по мере прохождения текущего. Счетчик каждого ключа обновляется
+ * CAS без блокировок. Проверка выполняется до обращения к базе и BCrypt, поэтому перебор паролей
+ * отклоняется за микросекунды. Число ключей ограничено: при переполнении сначала удаляются ключи
+ * без попыток за последние два окна, затем самые старые ключи без попыток в текущем окне. Ключи
+ * с попытками в текущем окне не удаляются никогда, иначе перебор сбрасывал бы свои счетчики,
+ * перебирая новые ключи; если место так и не освободилось, попытка с новым ключом отклоняется.
+ * </p>
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code login.rateLimit.perEmail} - попыток на один email за окно (по умолчанию 5)</li>
+ * <li>{@code login.rateLimit.perIp} - попыток с одного IP за окно (по умолчанию 30)</li>
+ * <li>{@code login.rateLimit.windowSeconds} - длительность окна (по умолчанию 60)</li>
+ * <li>{@code login.rateLimit.maxEntries} - максимальное число отслеживаемых ключей (по умолчанию 100000)</li>
+ * </ul>
+ *
+ * @author assxmblxr
+ */
+@Slf4j
+public class LoginRateLimiter {
+  private final int perEmail;
+  private final int perIp;
+  private final long windowNanos;
+  private final int maxEntries;
+  private final Map<String, AtomicReference<Window>> windows = new ConcurrentHashMap<>();
+  private final LongAdder allowed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  // пока все ключи активны, вытеснять нечего: до конца самого старого окна повторная очистка не нужна
+  private volatile long nextEvictionAt = System.nanoTime();
+
+  public LoginRateLimiter(int perEmail, int perIp, long windowSeconds, int maxEntries) {
+    this.perEmail = perEmail;
+    this.perIp = perIp;
+    this.windowNanos = TimeUnit.SECONDS.toNanos(windowSeconds);
+    this.maxEntries = maxEntries;
+  }
+
+  public static LoginRateLimiter fromConfig() {
+    return new LoginRateLimiter(
+            AppConfig.getInt("login.rateLimit.perEmail", 5),
+            AppConfig.getInt("login.rateLimit.perIp", 30),
+            AppConfig.getLong("login.rateLimit.windowSeconds", 60),
+            AppConfig.getInt("login.rateLimit.maxEntries", 100_000));
+  }
+
+  /**
+   * Учитывает попытку входа и проверяет, не превышены ли лимиты для email и IP.
+   *
+   * @return true, если попытку можно выполнять.
+   */
+  public boolean tryAcquire(String email, String ip) {
+    long now = System.nanoTime();
+    // попытки с уже заблокированного IP не расходуют лимит email владельца аккаунта
+    if ((ip == null || record("ip:" + ip, perIp, now))
+            && (email == null || record("email:" + email.toLowerCase(Locale.ROOT), perEmail, now))) {
+      allowed.increment();
+      return true;
+    }
+    rejected.increment();
+    return false;
+  }
+
+  /**
+   * Сбрасывает счетчик email после успешного входа, чтобы прошлые опечатки не мешали следующему входу.
+   */
+  public void onSuccess(String email) {
+    windows.remove("email:" + email.toLowerCase(Locale.ROOT));
+  }
+
+  /** @return количество пропущенных попыток. */
+  public long getAllowedCount() { return allowed.sum(); }
+
+  /** @return количество отклоненных попыток. */
+  public long getRejectedCount() { return rejected.sum(); }
+
+  /** @return текущее количество отслеживаемых ключей. */
+  public int getSize() { return windows.size(); }
+
+  private boolean record(String key, int limit, long now) {
+    AtomicReference<Window> ref = windows.get(key);
+    if (ref == null) {
+      if (windows.size() >= maxEntries) {
+        if (now - nextEvictionAt >= 0) {
+          evict(now);
+        }
+        if (windows.size() >= maxEntries) {
+          return false;
+        }
+      }
+      ref = windows.computeIfAbsent(key, k -> new AtomicReference<>(new Window(now, 0, 0)));
+    }
+    Window current;
+    Window next;
+    do {
+      current = ref.get();
+      next = current.advance(now, windowNanos);
+      if (next.estimate(now, windowNanos) >= limit) {
+        ref.compareAndSet(current, next);
+        return false;
+      }
+      next = new Window(next.start(), next.count() + 1, next.previous());
+    } while (!ref.compareAndSet(current, next));
+    return true;
+  }
+
+  private void evict(long now) {
+    windows.values().removeIf(ref -> now - ref.get().start() >= 2 * windowNanos);
+    int toRemove = windows.size() - maxEntries + Math.max(1, maxEntries / 10);
+    if (toRemove > 0) {
+      // окно с попытками только в предыдущем периоде дает убывающую оценку, его потеря безопаснее всего
+      List<Map.Entry<String, AtomicReference<Window>>> inactive = windows.entrySet().stream()
+              .filter(entry -> entry.getValue().get().advance(now, windowNanos).count() == 0)
+              .sorted(Comparator.comparingLong(entry -> entry.getValue().get().start()))
+              .limit(toRemove)
+              .toList();
+      for (Map.Entry<String, AtomicReference<Window>> entry : inactive) {
+        if (entry.getValue().get().advance(now, windowNanos).count() == 0) {
+          windows.remove(entry.getKey(), entry.getValue());
+        }
+      }
+    }
+    if (windows.size() >= maxEntries) {
+      long oldestStart = windows.values().stream().mapToLong(ref -> ref.get().start()).min().orElse(now);
+      nextEvictionAt = oldestStart + windowNanos;
+    }
+    log.debug("Login rate limiter evicted, size: {}", windows.size());
+  }
+
+  /**
+   * @param start    начало текущего окна.
+   * @param count    попыток в текущем окне.
+   * @param previous попыток в предыдущем окне.
+   */
+  private record Window(long start, int count, int previous) {
+
+    Window advance(long now, long windowNanos) {
+      long elapsed = now - start;
+      if (elapsed < windowNanos) {
+        return this;
+      }
+      if (elapsed < 2 * windowNanos) {
+        return new Window(start + windowNanos, 0, count);
+      }
+      return new Window(now, 0, 0);
+    }
+
+    double estimate(long now, long windowNanos) {
+      double previousWeight = 1.0 - (double) (now - start) / windowNanos;
+      return count + previous * Math.max(0, previousWeight);
+    }
+  }
+}
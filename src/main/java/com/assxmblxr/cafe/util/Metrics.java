@@ -0,0 +1,54 @@
+package com.assxmblxr.cafe.util;
+
+import java.io.PrintWriter;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Supplier;
+
+/**
+ * Реестр метрик приложения, которые отдает endpoint {@code /metrics}.
+ * <p>
+ * Поддерживает два вида метрик: gauge (значение читается в момент выгрузки)
+ * и {@link LatencyHistogram} (выгружаются количество, сумма, перцентили и максимум в миллисекундах).
+ * Метрики регистрируются один раз при инициализации компонентов.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+public class Metrics {
+  private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+  private static final Map<String, Supplier<Number>> gauges = new ConcurrentSkipListMap<>();
+  private static final Map<String, LatencyHistogram> histograms = new ConcurrentSkipListMap<>();
+
+  private Metrics() {}
+
+  public static void gauge(String name, Supplier<Number> value) {
+    gauges.put(name, value);
+  }
+
+  /**
+   * Регистрирует гистограмму задержек, значения которой записываются в наносекундах.
+   */
+  public static void histogram(String name, LatencyHistogram histogram) {
+    histograms.put(name, histogram);
+  }
+
+  /**
+   * Выгружает все метрики в текстовом формате, совместимом с Prometheus.
+   */
+  public static void writeTo(PrintWriter out) {
+    gauges.forEach((name, value) -> out.println(name + " " + value.get()));
+    histograms.forEach((name, histogram) -> {
+      for (double quantile : QUANTILES) {
+        out.println(name + "_ms{quantile=\"" + quantile + "\"} " + toMillis(histogram.getPercentile(quantile * 100)));
+      }
+      out.println(name + "_ms_max " + toMillis(histogram.getMax()));
+      out.println(name + "_ms_sum " + toMillis(histogram.getSum()));
+      out.println(name + "_ms_count " + histogram.getCount());
+    });
+  }
+
+  private static double toMillis(long nanos) {
+    return nanos / 1_000_000.0;
+  }
+}
@@ -0,0 +1,271 @@
+package com.assxmblxr.cafe.util;
+
+import com.assxmblxr.cafe.exception.CafeException;
+import lombok.extern.slf4j.Slf4j;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Выполняет хеширование и проверку паролей BCrypt в отдельном пуле потоков.
+ * <p>
+ * Пул имеет фиксированный размер (по умолчанию по числу ядер) и ограниченную очередь.
+ * Когда очередь заполнена, задача сразу отклоняется с {@link CafeException}, и пользователь
+ * получает предложение повторить попытку, а потоки контейнера не простаивают за CPU-bound работой.
+ * </p>
+ * Фоновый пересчет хешей ({@link #hashAsync(String)}) идет в отдельном потоке со своей небольшой очередью:
+ * после смены стоимости волна входов не заполняет общую очередь пересчетами, и проверки паролей
+ * не отклоняются из-за них. Если очередь пересчета заполнена, пересчет отбрасывается до следующего входа.
+ *
+ * <b>Конфигурация (app.properties):</b>
+ * <ul>
+ * <li>{@code security.bcrypt.cost} - стоимость BCrypt для новых хешей (по умолчанию 10)</li>
+ * <li>{@code security.hashing.threads} - размер пула, 0 - по числу ядер</li>
+ * <li>{@code security.hashing.queueCapacity} - максимальная длина очереди (по умолчанию 64)</li>
+ * <li>{@code security.hashing.timeoutMillis} - максимальное ожидание результата (по умолчанию 5000)</li>
+ * <li>{@code security.hashing.rehashQueueCapacity} - очередь фонового пересчета хешей (по умолчанию 16)</li>
+ * </ul>
+ *
+ * @author assxmblxr
+ */
+@Slf4j
+public class PasswordHasher implements AutoCloseable {
+  private static final String BUSY_MESSAGE = "Server is busy, please try again in a moment";
+  private static final int DEFAULT_REHASH_QUEUE_CAPACITY = 16;
+
+  private final ThreadPoolExecutor executor;
+  private final ThreadPoolExecutor rehashExecutor;
+  private final int cost;
+  private final long timeoutMillis;
+
+  private final LongAdder completed = new LongAdder();
+  private final LongAdder rejected = new LongAdder();
+  private final LongAdder rehashDropped = new LongAdder();
+  private final LongAdder totalNanos = new LongAdder();
+  private final AtomicLong maxNanos = new AtomicLong();
+
+  public PasswordHasher(int threads, int queueCapacity, int cost, long timeoutMillis) {
+    this(threads, queueCapacity, cost, timeoutMillis, DEFAULT_REHASH_QUEUE_CAPACITY);
+  }
+
+  public PasswordHasher(int threads, int queueCapacity, int cost, long timeoutMillis, int rehashQueueCapacity) {
+    this.cost = cost;
+    this.timeoutMillis = timeoutMillis;
+    this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), new HasherThreadFactory("password-hasher-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    this.rehashExecutor = new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(rehashQueueCapacity), new HasherThreadFactory("password-rehash-"),
+            new ThreadPoolExecutor.AbortPolicy());
+    log.info("PasswordHasher started: threads={}, queueCapacity={}, rehashQueueCapacity={}, cost={}",
+            threads, queueCapacity, rehashQueueCapacity, cost);
+  }
+
+  public static PasswordHasher fromConfig() {
+    int threads = AppConfig.getInt("security.hashing.threads", 0);
+    if (threads <= 0) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    return new PasswordHasher(threads,
+            AppConfig.getInt("security.hashing.queueCapacity", 64),
+            AppConfig.getInt("security.bcrypt.cost", 10),
+            AppConfig.getLong("security.hashing.timeoutMillis", 5000),
+            AppConfig.getInt("security.hashing.rehashQueueCapacity", DEFAULT_REHASH_QUEUE_CAPACITY));
+  }
+
+  public String hash(String password) {
+    return execute(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+  }
+
+  public boolean verify(String password, String hash) {
+    return execute(() -> BCrypt.checkpw(password, hash));
+  }
+
+  /**
+   * То же, что {@link #verify(String, String)}, но не блокирует вызывающий поток: результат завершается
+   * в потоке пула. При перегрузке или по таймауту future завершается с {@link CafeException}.
+   */
+  public CompletableFuture<Boolean> verifyAsync(String password, String hash) {
+    CompletableFuture<Boolean> result;
+    try {
+      result = CompletableFuture.supplyAsync(() -> {
+        try {
+          return timed(() -> BCrypt.checkpw(password, hash));
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }, executor);
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      log.warn("Password verification rejected, queue depth: {}", getQueueDepth());
+      return CompletableFuture.failedFuture(new CafeException(BUSY_MESSAGE));
+    }
+    return result.orTimeout(timeoutMillis, TimeUnit.MILLISECONDS).exceptionallyCompose(e -> {
+      if (e instanceof TimeoutException || e.getCause() instanceof TimeoutException) {
+        rejected.increment();
+        log.warn("Password verification timed out after {} ms", timeoutMillis);
+        return CompletableFuture.failedFuture(new CafeException(BUSY_MESSAGE));
+      }
+      return CompletableFuture.failedFuture(e);
+    });
+  }
+
+  /**
+   * Хеширует пароль в фоне, не блокируя вызывающий поток и не занимая очередь {@link #verify}.
+   * Если очередь пересчета заполнена, возвращает future, завершенный с {@link RejectedExecutionException}.
+   *
+   * @param password пароль в открытом виде.
+   * @return future с хешем пароля.
+   */
+  public CompletableFuture<String> hashAsync(String password) {
+    try {
+      return CompletableFuture.supplyAsync(() -> {
+        try {
+          return timed(() -> BCrypt.hashpw(password, BCrypt.gensalt(cost)));
+        } catch (Exception e) {
+          throw new CompletionException(e);
+        }
+      }, rehashExecutor);
+    } catch (RejectedExecutionException e) {
+      rehashDropped.increment();
+      return CompletableFuture.failedFuture(e);
+    }
+  }
+
+  /**
+   * Проверяет, создан ли хеш с другой стоимостью, чем настроенная сейчас.
+   *
+   * Хеш, стоимость которого не удается прочитать, пересчитывается: пароль к этому моменту уже проверен.
+   *
+   * @param hash хеш BCrypt вида {@code $2a$10$...}.
+   * @return true, если хеш следует пересчитать с текущей стоимостью.
+   */
+  public boolean needsRehash(String hash) {
+    try {
+      return costOf(hash) != cost;
+    } catch (IllegalArgumentException e) {
+      log.warn("Unrecognized BCrypt hash format, will rehash");
+      return true;
+    }
+  }
+
+  /**
+   * Извлекает стоимость (log2 числа раундов), записанную в хеше BCrypt.
+   *
+   * @param hash хеш BCrypt вида {@code $2a$10$...} или {@code $2$10$...} (без минорной версии).
+   * @return стоимость хеша.
+   * @throws IllegalArgumentException если строка не является хешем BCrypt.
+   */
+  public static int costOf(String hash) {
+    if (hash == null || !hash.startsWith("$2")) {
+      throw new IllegalArgumentException("Invalid BCrypt hash");
+    }
+    int offset = hash.charAt(2) == '$' ? 3 : 4;
+    if (hash.length() < offset + 3 || hash.charAt(offset - 1) != '$' || hash.charAt(offset + 2) != '$') {
+      throw new IllegalArgumentException("Invalid BCrypt hash");
+    }
+    return Integer.parseInt(hash.substring(offset, offset + 2));
+  }
+
+  /** @return стоимость BCrypt для новых хешей. */
+  public int getCost() { return cost; }
+
+  /** @return количество задач, ожидающих в очереди. */
+  public int getQueueDepth() { return executor.getQueue().size(); }
+
+  /** @return количество пересчетов хешей, ожидающих в очереди. */
+  public int getRehashQueueDepth() { return rehashExecutor.getQueue().size(); }
+
+  /** @return количество пересчетов хешей, отброшенных из-за заполненной очереди. */
+  public long getRehashDroppedCount() { return rehashDropped.sum(); }
+
+  /** @return количество потоков, занятых хешированием прямо сейчас. */
+  public int getActiveCount() { return executor.getActiveCount(); }
+
+  /** @return количество выполненных операций. */
+  public long getCompletedCount() { return completed.sum(); }
+
+  /** @return количество операций, отклоненных из-за перегрузки. */
+  public long getRejectedCount() { return rejected.sum(); }
+
+  /** @return среднее время выполнения одной операции в миллисекундах. */
+  public double getAverageLatencyMillis() {
+    long count = completed.sum();
+    return count == 0 ? 0 : totalNanos.sum() / (count * 1_000_000.0);
+  }
+
+  /** @return максимальное время выполнения одной операции в миллисекундах. */
+  public double getMaxLatencyMillis() { return maxNanos.get() / 1_000_000.0; }
+
+  @Override
+  public void close() {
+    executor.shutdown();
+    rehashExecutor.shutdown();
+  }
+
+  private <T> T execute(Callable<T> task) {
+    Future<T> future;
+    try {
+      future = executor.submit(() -> timed(task));
+    } catch (RejectedExecutionException e) {
+      rejected.increment();
+      log.warn("Password hashing rejected, queue depth: {}", getQueueDepth());
+      throw new CafeException(BUSY_MESSAGE);
+    }
+
+    try {
+      return future.get(timeoutMillis, TimeUnit.MILLISECONDS);
+    } catch (TimeoutException e) {
+      future.cancel(true);
+      rejected.increment();
+      log.warn("Password hashing timed out after {} ms", timeoutMillis);
+      throw new CafeException(BUSY_MESSAGE);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CafeException("Interrupted while hashing password", e);
+    } catch (ExecutionException e) {
+      throw new CafeException("Password hashing failed", e.getCause());
+    }
+  }
+
+  private <T> T timed(Callable<T> task) throws Exception {
+    long start = System.nanoTime();
+    try {
+      return task.call();
+    } finally {
+      long elapsed = System.nanoTime() - start;
+      completed.increment();
+      totalNanos.add(elapsed);
+      maxNanos.accumulateAndGet(elapsed, Math::max);
+    }
+  }
+
+  private static class HasherThreadFactory implements ThreadFactory {
+    private final String prefix;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    HasherThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
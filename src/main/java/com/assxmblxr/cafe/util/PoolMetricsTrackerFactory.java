@@ -0,0 +1,54 @@
+package com.assxmblxr.cafe.util;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Собирает метрики пула соединений Hikari и публикует их в {@link Metrics}.
+ * <p>
+ * Gauge: общее число соединений, активные, свободные и потоки, ожидающие соединение.
+ * Гистограммы: время получения соединения из пула и время его использования.
+ * Счетчик: таймауты получения соединения.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+public class PoolMetricsTrackerFactory implements MetricsTrackerFactory {
+
+  @Override
+  public IMetricsTracker create(String poolName, PoolStats poolStats) {
+    LatencyHistogram acquire = new LatencyHistogram();
+    LatencyHistogram usage = new LatencyHistogram();
+    LongAdder timeouts = new LongAdder();
+
+    Metrics.gauge("db_pool_connections_total", poolStats::getTotalConnections);
+    Metrics.gauge("db_pool_connections_active", poolStats::getActiveConnections);
+    Metrics.gauge("db_pool_connections_idle", poolStats::getIdleConnections);
+    Metrics.gauge("db_pool_connections_pending", poolStats::getPendingThreads);
+    Metrics.gauge("db_pool_connections_max", poolStats::getMaxConnections);
+    Metrics.gauge("db_pool_acquire_timeouts_total", timeouts::sum);
+    Metrics.histogram("db_pool_acquire", acquire);
+    Metrics.histogram("db_pool_usage", usage);
+
+    return new IMetricsTracker() {
+      @Override
+      public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+        acquire.record(elapsedAcquiredNanos);
+      }
+
+      @Override
+      public void recordConnectionUsageMillis(long elapsedBorrowedMillis) {
+        usage.record(TimeUnit.MILLISECONDS.toNanos(elapsedBorrowedMillis));
+      }
+
+      @Override
+      public void recordConnectionTimeout() {
+        timeouts.increment();
+      }
+    };
+  }
+}
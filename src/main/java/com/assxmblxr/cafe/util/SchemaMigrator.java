@@ -0,0 +1,162 @@
+package com.assxmblxr.cafe.util;
+
+import lombok.extern.slf4j.Slf4j;
+
+import javax.sql.DataSource;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * Применяет версионные миграции схемы из ресурсов {@code db/migration} при старте приложения.
+ * <p>
+ * Список миграций берется из {@code db/migration/index.txt}, имя файла задает версию:
+ * {@code V<версия>__<описание>.sql}. Примененные версии и контрольные суммы хранятся в таблице
+ * {@code schema_version}. Каждая новая миграция выполняется в своей транзакции; если она упала,
+ * старт прерывается, а следующие миграции не применяются. Несколько узлов, стартующих одновременно,
+ * сериализуются advisory-блокировкой, поэтому миграцию применит только один из них.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+@Slf4j
+public class SchemaMigrator {
+  private static final String LOCATION = "db/migration/";
+  private static final long LOCK_KEY = 0x636166655F6D6967L;
+  private static final String CREATE_VERSION_TABLE = """
+          CREATE TABLE IF NOT EXISTS schema_version (
+              version      INT PRIMARY KEY,
+              description  VARCHAR(200) NOT NULL,
+              checksum     BIGINT       NOT NULL,
+              installed_at TIMESTAMP    NOT NULL DEFAULT now()
+          )""";
+  private static final String SELECT_APPLIED = "SELECT version, checksum FROM schema_version";
+  private static final String INSERT_APPLIED = "INSERT INTO schema_version (version, description, checksum) VALUES (?, ?, ?)";
+
+  private SchemaMigrator() {}
+
+  /**
+   * Применяет все еще не примененные миграции.
+   *
+   * @return количество примененных миграций.
+   * @throws IllegalStateException если миграцию не удалось прочитать или выполнить.
+   */
+  public static int migrate(DataSource dataSource) {
+    List<Migration> migrations = loadIndex();
+    try (Connection conn = dataSource.getConnection()) {
+      try (Statement st = conn.createStatement()) {
+        st.execute("SELECT pg_advisory_lock(" + LOCK_KEY + ")");
+      }
+      try {
+        return apply(conn, migrations);
+      } finally {
+        try (Statement st = conn.createStatement()) {
+          st.execute("SELECT pg_advisory_unlock(" + LOCK_KEY + ")");
+        }
+      }
+    } catch (SQLException e) {
+      log.error("Schema migration failed", e);
+      throw new IllegalStateException("Schema migration failed", e);
+    }
+  }
+
+  private static int apply(Connection conn, List<Migration> migrations) throws SQLException {
+    try (Statement st = conn.createStatement()) {
+      st.execute(CREATE_VERSION_TABLE);
+    }
+    Map<Integer, Long> applied = new HashMap<>();
+    try (Statement st = conn.createStatement();
+         ResultSet rs = st.executeQuery(SELECT_APPLIED)) {
+      while (rs.next()) {
+        applied.put(rs.getInt("version"), rs.getLong("checksum"));
+      }
+    }
+
+    int count = 0;
+    conn.setAutoCommit(false);
+    try {
+      for (Migration migration : migrations) {
+        Long checksum = applied.get(migration.version());
+        if (checksum != null) {
+          if (checksum != migration.checksum()) {
+            log.warn("Migration V{} was changed after it had been applied", migration.version());
+          }
+          continue;
+        }
+        long start = System.nanoTime();
+        try (Statement st = conn.createStatement()) {
+          st.execute(migration.sql());
+        }
+        try (PreparedStatement ps = conn.prepareStatement(INSERT_APPLIED)) {
+          ps.setInt(1, migration.version());
+          ps.setString(2, migration.description());
+          ps.setLong(3, migration.checksum());
+          ps.executeUpdate();
+        }
+        conn.commit();
+        count++;
+        log.info("Applied migration V{} {} in {} ms", migration.version(), migration.description(),
+                (System.nanoTime() - start) / 1_000_000);
+      }
+    } catch (SQLException e) {
+      conn.rollback();
+      throw e;
+    } finally {
+      conn.setAutoCommit(true);
+    }
+    log.info("Schema is up to date, {} migrations applied", count);
+    return count;
+  }
+
+  private static List<Migration> loadIndex() {
+    List<Migration> migrations = new ArrayList<>();
+    for (String line : read(LOCATION + "index.txt").split("\n")) {
+      String file = line.trim();
+      if (file.isEmpty() || file.startsWith("#")) {
+        continue;
+      }
+      int separator = file.indexOf("__");
+      if (!file.startsWith("V") || separator < 0 || !file.endsWith(".sql")) {
+        throw new IllegalStateException("Invalid migration file name: " + file);
+      }
+      String sql = read(LOCATION + file);
+      CRC32 crc = new CRC32();
+      crc.update(sql.getBytes(StandardCharsets.UTF_8));
+      migrations.add(new Migration(
+              Integer.parseInt(file.substring(1, separator)),
+              file.substring(separator + 2, file.length() - 4).replace('_', ' '),
+              sql,
+              crc.getValue()));
+    }
+    return migrations;
+  }
+
+  private static String read(String resource) {
+    try (InputStream in = SchemaMigrator.class.getClassLoader().getResourceAsStream(resource)) {
+      if (in == null) {
+        throw new IllegalStateException(resource + " not found");
+      }
+      StringBuilder content = new StringBuilder();
+      try (BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+        reader.lines().forEach(line -> content.append(line).append('\n'));
+      }
+      return content.toString();
+    } catch (IOException e) {
+      throw new IllegalStateException("Failed to read " + resource, e);
+    }
+  }
+
+  private record Migration(int version, String description, String sql, long checksum) {}
+}
@@ -0,0 +1,185 @@
+package com.assxmblxr.cafe.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Учет обращений к базе данных: количество и время выполнения SQL-выражений.
+ * <p>
+ * {@link #wrap(Connection)} оборачивает соединение так, что каждый вызов {@code execute*} у выданных им
+ * statements считается одним обращением к базе. Запрос с {@code fetchSize} вне автокоммита читается
+ * серверным курсором, и каждая догрузка очередной порции строк в {@link ResultSet#next()} тоже считается
+ * обращением. Обращения суммируются глобально (метрики
+ * {@code db_statements_total} и {@code db_statement_latency}) и в текущей области {@link #begin()},
+ * открытой в этом потоке, - так видно, сколько обращений делает одна команда, и рост их числа
+ * после изменения DAO заметен сразу.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+public class StatementStats {
+  private static final ThreadLocal<Scope> current = new ThreadLocal<>();
+  private static final LongAdder statements = new LongAdder();
+  private static final LatencyHistogram latency = new LatencyHistogram();
+
+  static {
+    Metrics.gauge("db_statements_total", statements::sum);
+    Metrics.histogram("db_statement_latency", latency);
+  }
+
+  private StatementStats() {}
+
+  /**
+   * Открывает область учета в текущем потоке. Области могут быть вложенными: при закрытии
+   * вложенной области ее обращения добавляются к внешней.
+   */
+  public static Scope begin() {
+    Scope scope = new Scope(current.get());
+    current.set(scope);
+    return scope;
+  }
+
+  public static Connection wrap(Connection conn) {
+    return (Connection) Proxy.newProxyInstance(StatementStats.class.getClassLoader(),
+            new Class<?>[]{Connection.class}, new ConnectionHandler(conn));
+  }
+
+  private static void record(long nanos) {
+    statements.increment();
+    latency.record(nanos);
+    Scope scope = current.get();
+    if (scope != null) {
+      scope.statements++;
+      scope.nanos += nanos;
+    }
+  }
+
+  private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Область учета обращений к базе в одном потоке.
+   */
+  public static final class Scope implements AutoCloseable {
+    private final Scope parent;
+    private long statements;
+    private long nanos;
+
+    private Scope(Scope parent) {
+      this.parent = parent;
+    }
+
+    /** @return количество обращений к базе в области. */
+    public long getStatements() { return statements; }
+
+    /** @return суммарное время выполнения обращений в наносекундах. */
+    public long getNanos() { return nanos; }
+
+    @Override
+    public void close() {
+      if (parent == null) {
+        current.remove();
+      } else {
+        current.set(parent);
+        parent.statements += statements;
+        parent.nanos += nanos;
+      }
+    }
+  }
+
+  private record ConnectionHandler(Connection conn) implements InvocationHandler {
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      Object result = StatementStats.invoke(conn, method, args);
+      Class<?> type = switch (method.getName()) {
+        case "createStatement" -> Statement.class;
+        case "prepareStatement" -> PreparedStatement.class;
+        case "prepareCall" -> CallableStatement.class;
+        default -> null;
+      };
+      if (type == null) {
+        return result;
+      }
+      return Proxy.newProxyInstance(StatementStats.class.getClassLoader(),
+              new Class<?>[]{type}, new StatementHandler(result));
+    }
+  }
+
+  private record StatementHandler(Object statement) implements InvocationHandler {
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (!method.getName().startsWith("execute")) {
+        return StatementStats.invoke(statement, method, args);
+      }
+      long start = System.nanoTime();
+      Object result;
+      try {
+        result = StatementStats.invoke(statement, method, args);
+      } finally {
+        record(System.nanoTime() - start);
+      }
+      if (result instanceof ResultSet rs && usesCursor((Statement) statement)) {
+        return Proxy.newProxyInstance(StatementStats.class.getClassLoader(),
+                new Class<?>[]{ResultSet.class}, new CursorHandler(rs, ((Statement) statement).getFetchSize()));
+      }
+      return result;
+    }
+
+    private static boolean usesCursor(Statement statement) throws SQLException {
+      return statement.getFetchSize() > 0 && !statement.getConnection().getAutoCommit();
+    }
+  }
+
+  /**
+   * Считает догрузки строк серверного курсора: драйвер читает по {@code fetchSize} строк и идет в базу
+   * за следующей порцией на первом {@code next()} после полностью прочитанной предыдущей.
+   */
+  private static final class CursorHandler implements InvocationHandler {
+    private final ResultSet rs;
+    private final int fetchSize;
+    private long rows;
+    private boolean exhausted;
+
+    private CursorHandler(ResultSet rs, int fetchSize) {
+      this.rs = rs;
+      this.fetchSize = fetchSize;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      if (!method.getName().equals("next") || exhausted) {
+        return StatementStats.invoke(rs, method, args);
+      }
+      boolean fetches = rows > 0 && rows % fetchSize == 0;
+      long start = System.nanoTime();
+      boolean hasRow;
+      try {
+        hasRow = (Boolean) StatementStats.invoke(rs, method, args);
+      } finally {
+        if (fetches) {
+          record(System.nanoTime() - start);
+        }
+      }
+      if (hasRow) {
+        rows++;
+      } else {
+        exhausted = true;
+      }
+      return hasRow;
+    }
+  }
+}
@@ -0,0 +1,37 @@
+-- Базовые таблицы. IF NOT EXISTS позволяет применить миграцию к базе,
+-- созданной вручную до появления миграций.
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id         BIGSERIAL PRIMARY KEY,
+    name            VARCHAR(100)   NOT NULL,
+    email           VARCHAR(255)   NOT NULL,
+    account_balance NUMERIC(12, 2) NOT NULL DEFAULT 0,
+    loyalty_points  NUMERIC(12, 2) NOT NULL DEFAULT 0,
+    blocked         BOOLEAN        NOT NULL DEFAULT FALSE,
+    role            VARCHAR(16)    NOT NULL DEFAULT 'CLIENT',
+    password        VARCHAR(100)   NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS menu_items (
+    menu_item_id BIGSERIAL PRIMARY KEY,
+    name         VARCHAR(100)   NOT NULL,
+    description  TEXT,
+    price        NUMERIC(10, 2) NOT NULL,
+    is_available BOOLEAN        NOT NULL DEFAULT TRUE
+);
+
+CREATE TABLE IF NOT EXISTS orders (
+    order_id       BIGSERIAL PRIMARY KEY,
+    user_id        BIGINT         NOT NULL REFERENCES users (user_id),
+    total_price    NUMERIC(12, 2) NOT NULL,
+    pickup_time    TIMESTAMP,
+    payment_method VARCHAR(16)    NOT NULL,
+    status         VARCHAR(16)    NOT NULL DEFAULT 'NEW',
+    created_at     TIMESTAMP      NOT NULL DEFAULT now()
+);
+
+CREATE TABLE IF NOT EXISTS order_items (
+    order_id     BIGINT NOT NULL REFERENCES orders (order_id) ON DELETE CASCADE,
+    menu_item_id BIGINT NOT NULL REFERENCES menu_items (menu_item_id),
+    quantity     INT    NOT NULL CHECK (quantity > 0)
+);
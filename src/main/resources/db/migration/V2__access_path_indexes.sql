@@ -0,0 +1,25 @@
+-- Индексы под запросы DAO. Рядом с каждым индексом указан запрос, который он обслуживает.
+
+-- UserDaoImpl.findSummaryPage: index-only scan страницы списка пользователей без чтения хешей паролей
+CREATE INDEX IF NOT EXISTS users_summary_idx ON users (user_id) INCLUDE (name, email, role, blocked);
+
+-- MenuItemDaoImpl.findByName
+CREATE INDEX IF NOT EXISTS menu_items_name_idx ON menu_items (name);
+
+-- MenuItemDaoImpl.findCards: index-only scan доступных позиций в порядке названия
+CREATE INDEX IF NOT EXISTS menu_items_cards_idx ON menu_items (name)
+    INCLUDE (menu_item_id, price, is_available) WHERE is_available;
+
+-- OrderDaoImpl.findPage: ORDER BY created_at DESC, order_id DESC и keyset (created_at, order_id) < (?, ?),
+-- индекс читается в обратном порядке
+CREATE INDEX IF NOT EXISTS orders_created_at_order_id_idx ON orders (created_at, order_id);
+
+-- История заказов пользователя и внешний ключ orders.user_id при удалении пользователя
+CREATE INDEX IF NOT EXISTS orders_user_id_created_at_idx ON orders (user_id, created_at);
+
+-- OrderDaoImpl.findPickupLoad: только активные заказы
+CREATE INDEX IF NOT EXISTS orders_active_pickup_time_idx ON orders (pickup_time)
+    WHERE status IN ('NEW', 'PAID');
+
+-- Внешний ключ order_items.menu_item_id при удалении позиции меню
+CREATE INDEX IF NOT EXISTS order_items_menu_item_id_idx ON order_items (menu_item_id);
@@ -0,0 +1,56 @@
+-- Агрегаты продаж (SalesReportDaoImpl). Первичные ключи - цели ON CONFLICT
+-- и индексы для выборки по диапазону дат.
+
+CREATE TABLE IF NOT EXISTS sales_daily (
+    day            DATE           NOT NULL,
+    payment_method VARCHAR(16)    NOT NULL,
+    completed      BIGINT         NOT NULL DEFAULT 0,
+    revenue        NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    cancelled      BIGINT         NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, payment_method)
+);
+
+CREATE TABLE IF NOT EXISTS sales_hourly (
+    hour      TIMESTAMP      NOT NULL PRIMARY KEY,
+    completed BIGINT         NOT NULL DEFAULT 0,
+    revenue   NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    cancelled BIGINT         NOT NULL DEFAULT 0
+);
+
+CREATE TABLE IF NOT EXISTS sales_item_daily (
+    day          DATE           NOT NULL,
+    menu_item_id BIGINT         NOT NULL,
+    quantity     BIGINT         NOT NULL DEFAULT 0,
+    revenue      NUMERIC(14, 2) NOT NULL DEFAULT 0,
+    PRIMARY KEY (day, menu_item_id)
+);
+
+-- Первичное заполнение по уже завершенным и отмененным заказам
+INSERT INTO sales_daily (day, payment_method, completed, revenue, cancelled)
+SELECT created_at::date, payment_method,
+       COUNT(*) FILTER (WHERE status = 'COMPLETED'),
+       COALESCE(SUM(total_price) FILTER (WHERE status = 'COMPLETED'), 0),
+       COUNT(*) FILTER (WHERE status = 'CANCELLED')
+FROM orders
+WHERE status IN ('COMPLETED', 'CANCELLED')
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
+
+INSERT INTO sales_hourly (hour, completed, revenue, cancelled)
+SELECT date_trunc('hour', created_at),
+       COUNT(*) FILTER (WHERE status = 'COMPLETED'),
+       COALESCE(SUM(total_price) FILTER (WHERE status = 'COMPLETED'), 0),
+       COUNT(*) FILTER (WHERE status = 'CANCELLED')
+FROM orders
+WHERE status IN ('COMPLETED', 'CANCELLED')
+GROUP BY 1
+ON CONFLICT DO NOTHING;
+
+INSERT INTO sales_item_daily (day, menu_item_id, quantity, revenue)
+SELECT o.created_at::date, oi.menu_item_id, SUM(oi.quantity), SUM(oi.quantity * mi.price)
+FROM orders o
+JOIN order_items oi ON oi.order_id = o.order_id
+JOIN menu_items mi ON mi.menu_item_id = oi.menu_item_id
+WHERE o.status = 'COMPLETED'
+GROUP BY 1, 2
+ON CONFLICT DO NOTHING;
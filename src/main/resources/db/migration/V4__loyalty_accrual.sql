@@ -0,0 +1,11 @@
+-- Начисление баллов лояльности (LoyaltyDaoImpl): флаг учтенного заказа.
+-- DEFAULT FALSE без выражения не переписывает таблицу; новые заказы будут учтены задачей начисления.
+ALTER TABLE orders ADD COLUMN IF NOT EXISTS loyalty_accrued BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- Баллы за заказы, завершенные до появления задачи, не начисляются: первый запуск
+-- иначе зачислил бы всю историю. Начислить их можно, вручную сбросив флаг нужным заказам.
+UPDATE orders SET loyalty_accrued = TRUE WHERE status = 'COMPLETED' AND NOT loyalty_accrued;
+
+-- LoyaltyDaoImpl.accrueChunk: завершенные заказы, за которые еще не начислены баллы
+CREATE INDEX IF NOT EXISTS orders_loyalty_pending_idx ON orders (order_id)
+    WHERE status = 'COMPLETED' AND NOT loyalty_accrued;
@@ -0,0 +1,18 @@
+-- Ключ позиций заказа: цель ON CONFLICT при изменении позиций (OrderDaoImpl.update)
+-- и индекс для выборки позиций по order_id (ведущий столбец).
+-- Повторяющиеся строки одной позиции, если они есть, складываются в одну перед созданием ключа.
+WITH merged AS (
+    DELETE FROM order_items
+    WHERE (order_id, menu_item_id) IN (SELECT order_id, menu_item_id
+                                       FROM order_items
+                                       GROUP BY 1, 2
+                                       HAVING count(*) > 1)
+    RETURNING order_id, menu_item_id, quantity
+)
+INSERT INTO order_items (order_id, menu_item_id, quantity)
+SELECT order_id, menu_item_id, SUM(quantity)
+FROM merged
+GROUP BY 1, 2;
+
+CREATE UNIQUE INDEX IF NOT EXISTS order_items_order_id_menu_item_id_key
+    ON order_items (order_id, menu_item_id);
@@ -0,0 +1,4 @@
+-- UserDaoImpl: findByEmail, existsByEmail, createIfAbsent (ON CONFLICT).
+-- Email уникален без учета регистра. Если в базе уже есть адреса, различающиеся только регистром,
+-- миграция упадет на создании индекса: такие учетные записи нужно объединить вручную.
+CREATE UNIQUE INDEX IF NOT EXISTS users_lower_email_key ON users (lower(email));
@@ -0,0 +1,11 @@
+-- Цена позиции на момент заказа: выручка по позициям (SalesReportDaoImpl) не должна
+-- меняться вместе с ценой в меню, иначе пересчет агрегатов расходится с накопленными.
+ALTER TABLE order_items ADD COLUMN IF NOT EXISTS unit_price NUMERIC(10, 2);
+
+-- Для существующих позиций цена на момент заказа не сохранилась, берется текущая цена меню.
+UPDATE order_items oi
+SET unit_price = mi.price
+FROM menu_items mi
+WHERE mi.menu_item_id = oi.menu_item_id AND oi.unit_price IS NULL;
+
+ALTER TABLE order_items ALTER COLUMN unit_price SET NOT NULL;
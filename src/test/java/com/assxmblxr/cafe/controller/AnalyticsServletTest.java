@@ -0,0 +1,54 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.support.FakeHttp;
+import com.assxmblxr.cafe.type.Role;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnalyticsServletTest {
+  private final AnalyticsServlet servlet = new AnalyticsServlet();
+
+  @Test
+  void analyticsRequireSession() throws Exception {
+    FakeHttp.Response resp = new FakeHttp.Response();
+
+    servlet.doGet(FakeHttp.request("/admin/analytics", Map.of(), null), resp.proxy());
+
+    assertEquals(HttpServletResponse.SC_FORBIDDEN, resp.getStatus());
+  }
+
+  @Test
+  void analyticsAreForbiddenForClient() throws Exception {
+    FakeHttp.Response resp = new FakeHttp.Response();
+
+    servlet.doGet(FakeHttp.request("/admin/analytics", Map.of(), sessionWithRole(Role.CLIENT)), resp.proxy());
+
+    assertEquals(HttpServletResponse.SC_FORBIDDEN, resp.getStatus());
+  }
+
+  @Test
+  void invalidPeriodIsRejected() throws Exception {
+    FakeHttp.Response malformed = new FakeHttp.Response();
+    FakeHttp.Response reversed = new FakeHttp.Response();
+
+    servlet.doGet(FakeHttp.request("/admin/analytics", Map.of("from", "yesterday"),
+            sessionWithRole(Role.ADMIN)), malformed.proxy());
+    servlet.doGet(FakeHttp.request("/admin/analytics", Map.of("from", "2024-02-01", "to", "2024-01-01"),
+            sessionWithRole(Role.ADMIN)), reversed.proxy());
+
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, malformed.getStatus());
+    assertEquals(HttpServletResponse.SC_BAD_REQUEST, reversed.getStatus());
+  }
+
+  private static HttpSession sessionWithRole(Role role) {
+    HttpSession session = FakeHttp.session();
+    session.setAttribute(Command.ATTR_ROLE, role);
+    return session;
+  }
+}
@@ -0,0 +1,131 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Нагрузочный тест диспетчеризации команд {@code MainServlet}: пул платформенных потоков контейнера
+ * (как Tomcat по умолчанию, 200 потоков) против виртуального потока на команду с допуском через семафор,
+ * как в {@code controller.virtualThreads.enabled=true}. Одновременно приходят {@link #REQUESTS} запросов,
+ * каждый берет соединение из пула {@code DatabaseUtil}, читает пользователя и ждет ответа базы
+ * {@link #DB_MILLIS} мс. Печатает пропускную способность, p50/p99 и пиковое число платформенных потоков.
+ * Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class DispatchLoadBenchmark {
+  private static final int REQUESTS = 3_000;
+  private static final int CONTAINER_THREADS = 200;
+  private static final int MAX_CONCURRENT_COMMANDS = 200;
+  private static final long ADMISSION_TIMEOUT_MILLIS = 10_000;
+  private static final int DB_MILLIS = 5;
+  private static final int USERS = 1_000;
+
+  private final UserDaoImpl userDao = new UserDaoImpl();
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, 1, 0, 0);
+    }
+  }
+
+  @Test
+  void virtualThreadsVersusPlatformPool() throws Exception {
+    // первые прогоны обеих моделей медленнее из-за JIT, в сравнение не входят
+    run("warmup", Executors.newFixedThreadPool(CONTAINER_THREADS), null);
+    run("warmup", Executors.newVirtualThreadPerTaskExecutor(), new Semaphore(MAX_CONCURRENT_COMMANDS));
+    Result platform = run("platform", Executors.newFixedThreadPool(CONTAINER_THREADS), null);
+    Result virtual = run("virtual", Executors.newVirtualThreadPerTaskExecutor(),
+            new Semaphore(MAX_CONCURRENT_COMMANDS));
+
+    assertEquals(0, virtual.rejected());
+    // обе модели упираются в пул соединений, но виртуальным не нужны сотни платформенных потоков
+    assertTrue(virtual.throughput() > platform.throughput() * 0.8);
+    assertTrue(virtual.peakThreads() < platform.peakThreads());
+  }
+
+  private Result run(String name, ExecutorService executor, Semaphore admission) throws Exception {
+    ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    int threadsBefore = threads.getThreadCount();
+    threads.resetPeakThreadCount();
+    AtomicInteger rejected = new AtomicInteger();
+    long[] latencies = new long[REQUESTS];
+    long start = System.nanoTime();
+    List<Future<?>> futures = new ArrayList<>(REQUESTS);
+    try (executor) {
+      for (int i = 0; i < REQUESTS; i++) {
+        int request = i;
+        long submitted = System.nanoTime();
+        futures.add(executor.submit(() -> {
+          if (admission == null) {
+            handle(request);
+          } else {
+            if (!admission.tryAcquire(ADMISSION_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+              rejected.incrementAndGet();
+              return null;
+            }
+            try {
+              handle(request);
+            } finally {
+              admission.release();
+            }
+          }
+          latencies[request] = System.nanoTime() - submitted;
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    }
+    long elapsed = System.nanoTime() - start;
+    int peakThreads = threads.getPeakThreadCount();
+    // потоки закрытого пула завершаются не сразу и не должны попасть в пик следующего прогона
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+    while (threads.getThreadCount() > threadsBefore && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    Arrays.sort(latencies);
+    Result result = new Result(REQUESTS / (elapsed / 1e9), peakThreads, rejected.get());
+    System.out.printf("%-8s requests=%d throughput=%.0f req/s p50=%.0f ms p99=%.0f ms peakPlatformThreads=%d rejected=%d%n",
+            name, REQUESTS, result.throughput(), latencies[REQUESTS / 2] / 1e6, latencies[REQUESTS * 99 / 100] / 1e6,
+            result.peakThreads(), result.rejected());
+    return result;
+  }
+
+  /** Типичная команда: чтение пользователя и ожидание ответа базы на том же соединении пула. */
+  private void handle(int request) throws Exception {
+    userDao.findById(1 + request % USERS).orElseThrow();
+    try (Connection conn = DatabaseUtil.getConnection();
+         PreparedStatement ps = conn.prepareStatement("SELECT pg_sleep(?)")) {
+      ps.setDouble(1, DB_MILLIS / 1000.0);
+      ps.execute();
+    }
+  }
+
+  private record Result(double throughput, int peakThreads, int rejected) {}
+}
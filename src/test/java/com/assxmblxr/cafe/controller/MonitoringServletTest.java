@@ -0,0 +1,52 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.support.FakeHttp;
+import com.assxmblxr.cafe.type.Role;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MonitoringServletTest {
+  private final MonitoringServlet servlet = new MonitoringServlet();
+
+  @Test
+  void metricsRequireSession() throws Exception {
+    FakeHttp.Response resp = new FakeHttp.Response();
+
+    servlet.doGet(FakeHttp.request("/metrics", Map.of(), null), resp.proxy());
+
+    assertEquals(HttpServletResponse.SC_FORBIDDEN, resp.getStatus());
+    assertTrue(resp.getBody().isEmpty());
+  }
+
+  @Test
+  void metricsAreForbiddenForClient() throws Exception {
+    FakeHttp.Response resp = new FakeHttp.Response();
+
+    servlet.doGet(FakeHttp.request("/metrics", Map.of(), sessionWithRole(Role.CLIENT)), resp.proxy());
+
+    assertEquals(HttpServletResponse.SC_FORBIDDEN, resp.getStatus());
+  }
+
+  @Test
+  void metricsAreServedToAdmin() throws Exception {
+    FakeHttp.Response resp = new FakeHttp.Response();
+
+    servlet.doGet(FakeHttp.request("/metrics", Map.of(), sessionWithRole(Role.ADMIN)), resp.proxy());
+
+    assertEquals(HttpServletResponse.SC_OK, resp.getStatus());
+    assertEquals("no-store", resp.getHeader("Cache-Control"));
+  }
+
+  private static HttpSession sessionWithRole(Role role) {
+    HttpSession session = FakeHttp.session();
+    session.setAttribute(Command.ATTR_ROLE, role);
+    return session;
+  }
+}
@@ -0,0 +1,89 @@
+package com.assxmblxr.cafe.controller;
+
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserPrincipal;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Память, которую держат сессии вошедших пользователей: прежний атрибут {@link User} (строка из базы
+ * с именем, email, хешем пароля и балансами) против {@link UserPrincipal}. На {@link #USERS} сессий
+ * печатает удерживаемый размер атрибута в байтах — прирост занятой кучи после сборки мусора.
+ * Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class SessionAttributeBenchmark {
+  private static final int USERS = 20_000;
+  private static final int PAGE_SIZE = 500;
+  private static final int RUNS = 5;
+
+  private final UserDaoImpl userDao = new UserDaoImpl();
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, 1, 0, 0);
+    }
+  }
+
+  @Test
+  void principalRetainsLessThanUser() {
+    double user = retainedPerAttribute("User", this::loadUsers);
+    // пользователи для снимков загружаются до замера: в приложении они живут в кэше, а не в сессии
+    List<User> source = loadUsers();
+    double principal = retainedPerAttribute("UserPrincipal",
+            () -> source.stream().map(UserPrincipal::of).toList());
+    System.out.printf("principal/user: %.2f%n", principal / user);
+
+    assertTrue(principal < user / 4);
+  }
+
+  private double retainedPerAttribute(String name, Supplier<List<?>> attributes) {
+    long[] retained = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long before = usedHeap();
+      List<?> sessions = attributes.get();
+      retained[i] = usedHeap() - before;
+      assertEquals(USERS, sessions.size());
+    }
+    Arrays.sort(retained);
+    // список ссылок на атрибуты нужен в обоих случаях, из размера атрибута он вычитается
+    double perAttribute = (retained[RUNS / 2] - 16.0 - 4.0 * USERS) / USERS;
+    System.out.printf("%-14s sessions=%d retained=%.0f bytes/attribute%n", name, USERS, perAttribute);
+    return perAttribute;
+  }
+
+  private List<User> loadUsers() {
+    List<User> users = new ArrayList<>(USERS);
+    List<User> page;
+    do {
+      page = userDao.findPage(users.size(), PAGE_SIZE);
+      users.addAll(page);
+    } while (page.size() == PAGE_SIZE);
+    return users;
+  }
+
+  /** @return занятая куча после сборки мусора. */
+  private static long usedHeap() {
+    for (int i = 0; i < 3; i++) {
+      System.gc();
+    }
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+}
@@ -0,0 +1,119 @@
+package com.assxmblxr.cafe.controller.command.impl;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.service.impl.UserServiceImpl;
+import com.assxmblxr.cafe.support.FakeHttp;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.support.TestServices;
+import com.assxmblxr.cafe.util.LoginRateLimiter;
+import com.assxmblxr.cafe.util.PasswordHasher;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpSession;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Бюджет обращений к базе для команд контроллера: тест падает, если команда стала ходить в базу чаще.
+ */
+@ExtendWith(TestDatabase.class)
+class CommandRoundTripTest {
+  private static final String LOGIN = "/login";
+  private static final String REGISTER = "/register";
+
+  // стоимость совпадает с TestData.PASSWORD_HASH, чтобы вход не запускал перехеширование
+  private final PasswordHasher hasher = TestServices.hasher(4);
+  private final OrderDaoImpl orderDao = new OrderDaoImpl();
+  private final UserServiceImpl userService = TestServices.userService(new UserDaoImpl(), orderDao, hasher,
+          TestServices.unlimitedSlots(orderDao));
+  private final LoginCommand login = new LoginCommand(userService, new LoginRateLimiter(2, 100, 60, 1_000));
+  private final RegisterCommand register = new RegisterCommand(userService);
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 10, 5, 0, 0);
+    }
+  }
+
+  @AfterEach
+  void closeHasher() {
+    hasher.close();
+  }
+
+  @Test
+  void loginReadsUserOnce() throws Exception {
+    HttpServletRequest request = FakeHttp.request(LOGIN,
+            Map.of("email", TestData.email(1), "password", TestData.PASSWORD), null);
+
+    RoundTrips.assertWithinBudget("login", 1, () -> login.execute(request, new FakeHttp.Response().proxy()));
+    assertNotNull(request.getSession().getAttribute(Command.ATTR_USER));
+  }
+
+  @Test
+  void failedLoginReadsUserOnce() throws Exception {
+    HttpServletRequest request = FakeHttp.request(LOGIN,
+            Map.of("email", TestData.email(2), "password", "wrong"), null);
+
+    RoundTrips.assertWithinBudget("login_failed", 1,
+            () -> login.execute(request, new FakeHttp.Response().proxy()));
+    assertNotNull(request.getAttribute(Command.ATTR_ERROR));
+  }
+
+  @Test
+  void throttledLoginSkipsDatabase() throws Exception {
+    Map<String, String> params = Map.of("email", TestData.email(3), "password", "wrong");
+    for (int i = 0; i < 2; i++) {
+      login.execute(FakeHttp.request(LOGIN, params, null), new FakeHttp.Response().proxy());
+    }
+    FakeHttp.Response response = new FakeHttp.Response();
+
+    RoundTrips.assertWithinBudget("login_throttled", 0,
+            () -> login.execute(FakeHttp.request(LOGIN, params, null), response.proxy()));
+    assertEquals(429, response.getStatus());
+  }
+
+  @Test
+  void registrationInsertsOnce() throws Exception {
+    HttpServletRequest request = FakeHttp.request(REGISTER,
+            Map.of("email", "new@test.local", "password", TestData.PASSWORD, "name", "New"), null);
+
+    // занятость email проверяет сам INSERT ... ON CONFLICT, отдельного SELECT нет
+    RoundTrips.assertWithinBudget("register", 1,
+            () -> register.execute(request, new FakeHttp.Response().proxy()));
+    assertEquals(11, TestDatabase.countRows("users"));
+  }
+
+  @Test
+  void repeatedRegistrationChecksEmailOnce() throws Exception {
+    Map<String, String> params = Map.of("email", "new@test.local", "password", TestData.PASSWORD, "name", "New");
+    register.execute(FakeHttp.request(REGISTER, params, null), new FakeHttp.Response().proxy());
+    HttpServletRequest request = FakeHttp.request(REGISTER, params, null);
+
+    RoundTrips.assertWithinBudget("register_duplicate", 1,
+            () -> register.execute(request, new FakeHttp.Response().proxy()));
+    assertNotNull(request.getAttribute(Command.ATTR_ERROR));
+  }
+
+  @Test
+  void sessionCommandsSkipDatabase() throws Exception {
+    HttpSession session = FakeHttp.session();
+
+    RoundTrips.assertWithinBudget("go_to_main", 0,
+            () -> new GoToMainCommand().execute(FakeHttp.request("/main", Map.of(), session), null));
+    RoundTrips.assertWithinBudget("logout", 0,
+            () -> new LogoutCommand().execute(FakeHttp.request("/logout", Map.of(), session), null));
+  }
+
+}
@@ -0,0 +1,90 @@
+package com.assxmblxr.cafe.controller.command.impl;
+
+import com.assxmblxr.cafe.controller.command.Command;
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.support.FakeHttp;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.support.TestServices;
+import com.assxmblxr.cafe.util.LoginRateLimiter;
+import com.assxmblxr.cafe.util.PasswordHasher;
+import jakarta.servlet.http.HttpServletRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.sql.Connection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@ExtendWith(TestDatabase.class)
+class LoginCommandTest {
+  private static final String REDIRECT_MAIN = "redirect:/controller?command=go_to_main";
+
+  // один поток хеширования: занятый поток заставляет проверку пароля ждать в очереди
+  private final PasswordHasher hasher = new PasswordHasher(1, 4, 4, 30_000);
+  private final OrderDaoImpl orderDao = new OrderDaoImpl();
+  private final LoginCommand login = new LoginCommand(
+          TestServices.userService(new UserDaoImpl(), orderDao, hasher, TestServices.unlimitedSlots(orderDao)),
+          new LoginRateLimiter(100, 100, 60, 1_000));
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 3, 1, 0, 0);
+    }
+  }
+
+  @AfterEach
+  void closeHasher() {
+    hasher.close();
+  }
+
+  @Test
+  void loginReturnsBeforePasswordIsVerified() throws Exception {
+    String slowHash = BCrypt.hashpw(TestData.PASSWORD, BCrypt.gensalt(13));
+    CompletableFuture<Boolean> busy = CompletableFuture.supplyAsync(() -> hasher.verify(TestData.PASSWORD, slowHash));
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (hasher.getActiveCount() == 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(5);
+    }
+    HttpServletRequest request = FakeHttp.request("/controller",
+            Map.of("email", TestData.email(1), "password", TestData.PASSWORD), null);
+
+    CompletableFuture<String> result = login.executeAsync(request, new FakeHttp.Response().proxy())
+            .toCompletableFuture();
+
+    assertFalse(result.isDone());
+    assertEquals(REDIRECT_MAIN, result.get(30, TimeUnit.SECONDS));
+    assertNotNull(request.getSession().getAttribute(Command.ATTR_USER));
+    busy.get(30, TimeUnit.SECONDS);
+  }
+
+  @Test
+  void wrongPasswordCompletesWithLoginPage() throws Exception {
+    HttpServletRequest request = FakeHttp.request("/controller",
+            Map.of("email", TestData.email(2), "password", "wrong"), null);
+
+    String path = login.executeAsync(request, new FakeHttp.Response().proxy())
+            .toCompletableFuture().get(10, TimeUnit.SECONDS);
+
+    assertEquals(Command.PATH_LOGIN, path);
+    assertNotNull(request.getAttribute(Command.ATTR_ERROR));
+  }
+
+  @Test
+  void synchronousExecuteWaitsForResult() {
+    HttpServletRequest request = FakeHttp.request("/controller",
+            Map.of("email", TestData.email(3), "password", TestData.PASSWORD), null);
+
+    assertEquals(REDIRECT_MAIN, login.execute(request, new FakeHttp.Response().proxy()));
+  }
+}
@@ -0,0 +1,77 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(TestDatabase.class)
+class CachedMenuItemDaoTest {
+  private static final int MENU_ITEMS = 30;
+
+  private final CachedMenuItemDao dao = new CachedMenuItemDao(new MenuItemDaoImpl());
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 1, MENU_ITEMS, 0, 0);
+    }
+  }
+
+  @Test
+  void resolveAllCountsOneLookupPerCall() throws Exception {
+    dao.findAll();
+    long lookups = dao.getHits() + dao.getMisses();
+
+    RoundTrips.Result<Map<Long, MenuItem>> result = RoundTrips.measure(() -> dao.resolveAll(ids(1, MENU_ITEMS)));
+
+    assertEquals(0, result.statements());
+    assertEquals(MENU_ITEMS, result.value().size());
+    assertEquals(lookups + 1, dao.getHits() + dao.getMisses());
+  }
+
+  @Test
+  void resolveAllReadsItemsMissingFromSnapshotInOneStatement() throws Exception {
+    dao.findAll();
+    // позиции, добавленные в обход кэша (например, другим узлом), в снимок не попали
+    try (Connection conn = TestDatabase.connection(); Statement st = conn.createStatement()) {
+      st.executeUpdate("INSERT INTO menu_items (name, price) SELECT 'Extra ' || i, 10 FROM generate_series(1, 20) i");
+    }
+
+    RoundTrips.Result<Map<Long, MenuItem>> result = RoundTrips.measure(() -> dao.resolveAll(ids(1, MENU_ITEMS + 20)));
+
+    assertEquals(1, result.statements());
+    assertEquals(MENU_ITEMS + 20, result.value().size());
+  }
+
+  @Test
+  void resolveAllFailsOnUnknownItem() {
+    assertThrows(CafeException.class, () -> dao.resolveAll(Set.of(1L, 1_000L)));
+  }
+
+  @Test
+  void findByIdsSkipsUnknownItems() {
+    List<MenuItem> found = dao.findByIds(List.of(1L, 2L, 1_000L));
+
+    assertEquals(Set.of(1L, 2L), found.stream().map(MenuItem::getMenuItemId).collect(Collectors.toSet()));
+  }
+
+  private static Set<Long> ids(long from, long to) {
+    return LongStream.rangeClosed(from, to).boxed().collect(Collectors.toSet());
+  }
+}
@@ -0,0 +1,121 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.TransactionManager;
+import com.assxmblxr.cafe.dao.UserDao;
+import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.entity.UserPrincipal;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.support.TestServices;
+import com.assxmblxr.cafe.service.impl.UserServiceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+@ExtendWith(TestDatabase.class)
+class CachedUserDaoTest {
+  private final UserDaoImpl userDao = new UserDaoImpl();
+  private Runnable duringLoad = () -> {};
+  private final CachedUserDao cache = new CachedUserDao(hooked(userDao), 100, 60);
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 3, 1, 0, 0);
+    }
+  }
+
+  @Test
+  void writeToAnotherUserDuringLoadDoesNotPreventCaching() throws Exception {
+    duringLoad = () -> cache.updateLoyaltyPoints(2, BigDecimal.TEN);
+    cache.findById(1);
+    duringLoad = () -> {};
+
+    assertEquals(0, RoundTrips.count(() -> cache.findById(1)));
+  }
+
+  @Test
+  void writeToSameUserDuringLoadIsNotCached() throws Exception {
+    duringLoad = () -> cache.updateLoyaltyPoints(1, BigDecimal.TEN);
+    cache.findById(1);
+    duringLoad = () -> {};
+
+    RoundTrips.Result<User> reloaded = RoundTrips.measure(() -> cache.findById(1).orElseThrow());
+    assertEquals(1, reloaded.statements());
+    assertEquals(0, BigDecimal.TEN.compareTo(reloaded.value().getLoyaltyPoints()));
+  }
+
+  @Test
+  void reloadOfUnchangedUserKeepsVersion() {
+    CachedUserDao expiring = new CachedUserDao(userDao, 100, 0);
+    UserServiceImpl service = service(expiring);
+    UserPrincipal principal = UserPrincipal.of(expiring.findById(1).orElseThrow());
+
+    assertSame(principal, service.refreshPrincipal(principal).orElseThrow());
+
+    expiring.updateLoyaltyPoints(1, BigDecimal.TEN);
+    UserPrincipal changed = service.refreshPrincipal(principal).orElseThrow();
+    assertNotEquals(principal.version(), changed.version());
+    assertSame(changed, service.refreshPrincipal(changed).orElseThrow());
+  }
+
+  @Test
+  void debitIsInvalidatedAfterCommit() {
+    cache.findById(1);
+    new TransactionManager().execute(conn -> {
+      cache.debitBalance(conn, 1, new BigDecimal("100.00"));
+      // другой поток читает еще не зафиксированное списание и кэширует прежний баланс
+      CompletableFuture.runAsync(() -> cache.findById(1)).join();
+      return null;
+    });
+
+    assertEquals(0, new BigDecimal("900.00").compareTo(cache.findById(1).orElseThrow().getAccountBalance()));
+  }
+
+  @Test
+  void rolledBackDebitKeepsCachedUser() throws Exception {
+    cache.findById(1);
+    try {
+      new TransactionManager().execute(conn -> {
+        cache.debitBalance(conn, 1, new BigDecimal("100.00"));
+        throw new IllegalStateException("rollback");
+      });
+    } catch (IllegalStateException expected) {
+      // откат
+    }
+
+    assertEquals(0, RoundTrips.count(() -> cache.findById(1)));
+  }
+
+  private UserServiceImpl service(UserDao dao) {
+    OrderDaoImpl orderDao = new OrderDaoImpl();
+    return TestServices.userService(dao, orderDao, TestServices.hasher(4), TestServices.unlimitedSlots(orderDao));
+  }
+
+  /** Делегат, выполняющий {@link #duringLoad} посреди загрузки пользователя по id. */
+  private UserDao hooked(UserDao delegate) {
+    return (UserDao) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{UserDao.class},
+            (proxy, method, args) -> {
+              try {
+                Object result = method.invoke(delegate, args);
+                if (method.getName().equals("findById")) {
+                  duringLoad.run();
+                }
+                return result;
+              } catch (InvocationTargetException e) {
+                throw e.getCause();
+              }
+            });
+  }
+}
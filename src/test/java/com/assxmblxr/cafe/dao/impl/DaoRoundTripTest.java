@@ -0,0 +1,186 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.type.OrderStatus;
+import com.assxmblxr.cafe.type.PaymentMethod;
+import com.assxmblxr.cafe.type.Role;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.stream.Stream;
+
+/**
+ * Бюджет обращений к базе для методов DAO: тест падает, если метод стал ходить в базу чаще.
+ * Бюджеты равны текущему количеству обращений; уменьшать их можно вместе с оптимизацией.
+ * Обращением считается выполнение выражения и догрузка порции строк серверного курсора;
+ * фиксация транзакции не считается.
+ */
+@ExtendWith(TestDatabase.class)
+class DaoRoundTripTest {
+  private static final UserDaoImpl USERS = new UserDaoImpl();
+  private static final MenuItemDaoImpl MENU = new MenuItemDaoImpl();
+  private static final OrderDaoImpl ORDERS = new OrderDaoImpl();
+  private static final LoyaltyDaoImpl LOYALTY = new LoyaltyDaoImpl();
+  private static final SalesReportDaoImpl SALES = new SalesReportDaoImpl();
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 50, 20, 1_000, 3);
+    }
+  }
+
+  static Stream<Arguments> calls() {
+    LocalDate today = LocalDate.now();
+    return Stream.of(
+            call("UserDao.findById", 1, () -> USERS.findById(1)),
+            call("UserDao.findByEmail", 1, () -> USERS.findByEmail(TestData.email(1))),
+            call("UserDao.existsByEmail", 1, () -> USERS.existsByEmail(TestData.email(1))),
+            call("UserDao.findAll", 1, USERS::findAll),
+            call("UserDao.findPage", 1, () -> USERS.findPage(0, 20)),
+            call("UserDao.findSummaryPage", 1, () -> USERS.findSummaryPage(0, 20)),
+            // 50 пользователей помещаются в первую порцию курсора
+            call("UserDao.forEach", 1, () -> USERS.forEach(user -> {})),
+            call("UserDao.forEachEmail", 1, () -> USERS.forEachEmail(email -> {})),
+            call("UserDao.createIfAbsent", 1, () -> USERS.createIfAbsent(
+                    new User("New", "new@test.local", TestData.PASSWORD_HASH))),
+            call("UserDao.update", 1, () -> USERS.update(user(1))),
+            prepared("UserDao.delete", 1, () -> {
+              User user = new User("Temp", "temp@test.local", TestData.PASSWORD_HASH);
+              USERS.createIfAbsent(user);
+              return run(() -> USERS.delete(user));
+            }),
+            call("UserDao.updateBlockedStatus", 1, () -> USERS.updateBlockedStatus(1, true)),
+            call("UserDao.updateLoyaltyPoints", 1, () -> USERS.updateLoyaltyPoints(1, BigDecimal.TEN)),
+            call("UserDao.updateRole", 1, () -> USERS.updateRole(1, Role.ADMIN)),
+            call("UserDao.updatePassword", 1,
+                    () -> USERS.updatePassword(1, TestData.PASSWORD_HASH, TestData.PASSWORD_HASH)),
+            call("MenuItemDao.create", 1,
+                    () -> MENU.create(new MenuItem("New", "New item", BigDecimal.TEN, true))),
+            call("MenuItemDao.findById", 1, () -> MENU.findById(1L)),
+            call("MenuItemDao.findByIds", 1, () -> MENU.findByIds(List.of(1L, 2L, 3L))),
+            call("MenuItemDao.findByName", 1, () -> MENU.findByName("Item 00001")),
+            call("MenuItemDao.findAll", 1, MENU::findAll),
+            call("MenuItemDao.findCards", 1, MENU::findCards),
+            prepared("MenuItemDao.update", 1, () -> {
+              MenuItem menuItem = MENU.findById(1L).orElseThrow();
+              menuItem.setPrice(menuItem.getPrice().add(BigDecimal.ONE));
+              return run(() -> MENU.update(menuItem));
+            }),
+            prepared("MenuItemDao.delete", 1, () -> {
+              MENU.create(new MenuItem("Temp", "Not ordered yet", BigDecimal.TEN, true));
+              MenuItem menuItem = MENU.findByName("Temp").orElseThrow();
+              return run(() -> MENU.delete(menuItem));
+            }),
+            call("OrderDao.findById", 1, () -> ORDERS.findById(1)),
+            call("OrderDao.findPage", 1, () -> ORDERS.findPage(null, 50)),
+            call("OrderDao.findAll", 1, ORDERS::findAll),
+            // курсоры читают строки заказ-позиция порциями по STREAM_FETCH_SIZE: запрос и догрузки
+            // (3000 строк по 1000 заказам, около 1200 строк по завершенным)
+            call("OrderDao.forEach", 7, () -> ORDERS.forEach(order -> {})),
+            call("OrderDao.forEachCompleted", 3, () -> ORDERS.forEachCompleted(
+                    today.minusDays(TestData.ORDER_DAYS).atStartOfDay(), LocalDateTime.now(),
+                    (orderId, hour, totalMinor, menuItemId, quantity, priceMinor) -> {})),
+            call("OrderDao.findPickupLoad", 1, () -> ORDERS.findPickupLoad(LocalDateTime.now())),
+            // INSERT заказа и один батч позиций
+            call("OrderDao.create", 2, () -> ORDERS.create(newOrder())),
+            // UPDATE заказа, чтение позиций, удаление убранной и upsert измененной позиции
+            prepared("OrderDao.update", 4, () -> {
+              Order order = ORDERS.findById(1).orElseThrow();
+              List<OrderItem> items = new ArrayList<>(order.getItems());
+              items.removeLast();
+              items.getFirst().setQuantity(items.getFirst().getQuantity() + 1);
+              order.setItems(items);
+              return run(() -> ORDERS.update(order));
+            }),
+            prepared("OrderDao.delete", 1, () -> {
+              Order order = ORDERS.findById(2).orElseThrow();
+              return run(() -> ORDERS.delete(order));
+            }),
+            call("OrderDao.updateStatus", 1, () -> ORDERS.updateStatus(1, OrderStatus.CANCELLED)),
+            call("OrderDao.updateStatus(batch)", 1,
+                    () -> ORDERS.updateStatus(List.of(1L, 2L, 3L, 4L, 5L), OrderStatus.CANCELLED)),
+            call("LoyaltyDao.accrueChunk", 1, () -> LOYALTY.accrueChunk(100, new BigDecimal("0.05"))),
+            prepared("SalesReportDao.record", 1, () -> {
+              Connection conn = DatabaseUtil.getConnection();
+              return () -> {
+                try (conn) {
+                  SALES.record(conn, List.of(1L, 2L, 3L, 4L, 5L));
+                }
+                return null;
+              };
+            }),
+            // TRUNCATE и пересчет одним выражением
+            call("SalesReportDao.rebuild", 2, SALES::rebuild),
+            call("SalesReportDao.findDaily", 1, () -> SALES.findDaily(today.minusDays(7), today)),
+            call("SalesReportDao.findHourly", 1, () -> SALES.findHourly(today)),
+            call("SalesReportDao.findTopItems", 1, () -> SALES.findTopItems(today.minusDays(7), today, 10)));
+  }
+
+  @ParameterizedTest(name = "{0}")
+  @MethodSource("calls")
+  void callStaysWithinBudget(String name, long budget, Callable<Callable<?>> prepare) throws Exception {
+    RoundTrips.assertWithinBudget(name, budget, prepare.call());
+  }
+
+  private static Arguments call(String name, long budget, Callable<?> action) {
+    return prepared(name, budget, () -> action);
+  }
+
+  private static Arguments call(String name, long budget, Runnable action) {
+    return call(name, budget, run(action));
+  }
+
+  /**
+   * @param prepare подготовка вне замера; возвращает замеряемое действие.
+   */
+  private static Arguments prepared(String name, long budget, Callable<Callable<?>> prepare) {
+    return Arguments.of(name, budget, prepare);
+  }
+
+  private static Callable<?> run(Runnable action) {
+    return () -> {
+      action.run();
+      return null;
+    };
+  }
+
+  private static Order newOrder() {
+    List<OrderItem> items = new ArrayList<>();
+    items.add(new OrderItem(menuItem(1), 1));
+    items.add(new OrderItem(menuItem(2), 2));
+    return new Order(1L, items, LocalDateTime.now().plusHours(1), PaymentMethod.CASH);
+  }
+
+  /** @return пользователь с данными из TestData без чтения из базы внутри замера. */
+  private static User user(long id) {
+    return User.builder().id(id).name("User " + id).email(TestData.email((int) id))
+            .password(TestData.PASSWORD_HASH).accountBalance(BigDecimal.valueOf(1000))
+            .loyaltyPoints(BigDecimal.ZERO).role(Role.CLIENT).build();
+  }
+
+  /** @return позиция меню только с идентификатором и ценой, чтобы не читать меню внутри замера. */
+  private static MenuItem menuItem(long id) {
+    MenuItem menuItem = new MenuItem();
+    menuItem.setMenuItemId(id);
+    menuItem.setPrice(BigDecimal.TEN);
+    return menuItem;
+  }
+}
@@ -0,0 +1,99 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.type.PaymentMethod;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Пропускная способность записи заказов: {@link OrderDaoImpl#create(Order)} (транзакция и коммит на каждый
+ * заказ) против {@link GroupCommitOrderDao} (один коммит на группу) при {@link #PLACERS} параллельных
+ * клиентах, каждый из которых ждет сохранения своего заказа. Печатает заказы в секунду.
+ * Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class GroupCommitBenchmark {
+  private static final int USERS = 100;
+  private static final int MENU_ITEMS = 20;
+  private static final int PLACERS = 16;
+  private static final int ORDERS_PER_PLACER = 250;
+  private static final int WARMUP_PER_PLACER = 20;
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, MENU_ITEMS, 0, 0);
+    }
+  }
+
+  @Test
+  void groupCommitRaisesOrderThroughput() throws Exception {
+    OrderDaoImpl perOrder = new OrderDaoImpl();
+    double single = ordersPerSecond(perOrder);
+    double grouped;
+    try (GroupCommitOrderDao groupCommit = new GroupCommitOrderDao(perOrder, 1_000, 64, 5)) {
+      grouped = ordersPerSecond(groupCommit);
+    }
+    System.out.printf("placers=%d per-order commit: %.0f orders/s%n", PLACERS, single);
+    System.out.printf("placers=%d group commit:     %.0f orders/s (x%.1f)%n", PLACERS, grouped, grouped / single);
+
+    assertEquals(2L * PLACERS * (WARMUP_PER_PLACER + ORDERS_PER_PLACER), TestDatabase.countRows("orders"));
+    assertTrue(grouped > single);
+  }
+
+  private static double ordersPerSecond(OrderDao dao) throws Exception {
+    place(dao, WARMUP_PER_PLACER);
+    long start = System.nanoTime();
+    place(dao, ORDERS_PER_PLACER);
+    return PLACERS * ORDERS_PER_PLACER / ((System.nanoTime() - start) / 1e9);
+  }
+
+  private static void place(OrderDao dao, int ordersPerPlacer) throws Exception {
+    ExecutorService placers = Executors.newFixedThreadPool(PLACERS);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int p = 0; p < PLACERS; p++) {
+        int placer = p;
+        futures.add(placers.submit(() -> {
+          for (int i = 0; i < ordersPerPlacer; i++) {
+            dao.create(order(1 + (placer * ordersPerPlacer + i) % USERS, 1 + i % MENU_ITEMS));
+          }
+          return null;
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      placers.shutdown();
+    }
+  }
+
+  private static Order order(long userId, long menuItemId) {
+    MenuItem menuItem = MenuItem.builder().id(menuItemId).name("Item").price(new BigDecimal("100.00"))
+            .isAvailable(true).build();
+    return new Order(userId, List.of(new OrderItem(menuItem, 1)),
+            LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MINUTES), PaymentMethod.CASH);
+  }
+}
@@ -0,0 +1,124 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.type.PaymentMethod;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@ExtendWith(TestDatabase.class)
+class GroupCommitOrderDaoTest {
+  private static final int USERS = 10;
+
+  private final OrderDaoImpl orderDao = new OrderDaoImpl();
+  // большое ожидание добора, чтобы заказы, поставленные подряд, попали в одну группу
+  private final GroupCommitOrderDao dao = new GroupCommitOrderDao(orderDao, 1_000, 64, 200);
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, 5, 0, 0);
+    }
+  }
+
+  @AfterEach
+  void close() {
+    dao.close();
+  }
+
+  @Test
+  void groupAssignsEachOrderItsOwnId() throws Exception {
+    List<Order> orders = new ArrayList<>();
+    List<CompletableFuture<Order>> futures = new ArrayList<>();
+    for (int i = 0; i < 50; i++) {
+      Order order = order(1 + i % USERS, 1 + i % 3);
+      order.setTotalPrice(BigDecimal.valueOf(1_000 + i));
+      orders.add(order);
+      futures.add(dao.submit(order));
+    }
+    CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+    for (Order order : orders) {
+      Order stored = orderDao.findById(order.getOrderId()).orElseThrow();
+      assertEquals(0, order.getTotalPrice().compareTo(stored.getTotalPrice()));
+      assertEquals(order.getUserId(), stored.getUserId());
+      assertEquals(order.getItems().get(0).getQuantity(), stored.getItems().get(0).getQuantity());
+    }
+  }
+
+  @Test
+  void orderWithoutPickupTimeIsSaved() throws Exception {
+    Order grouped = order(1, 1);
+    grouped.setPickupTime(null);
+    Order single = order(2, 1);
+    single.setPickupTime(null);
+
+    dao.create(grouped);
+    orderDao.create(single);
+
+    assertNull(orderDao.findById(grouped.getOrderId()).orElseThrow().getPickupTime());
+    assertNull(orderDao.findById(single.getOrderId()).orElseThrow().getPickupTime());
+  }
+
+  @Test
+  void invalidOrderFailsAloneAndWriterKeepsRunning() throws Exception {
+    Order broken = order(1, 1);
+    broken.setPaymentMethod(null);
+    CompletableFuture<Order> failed = dao.submit(broken);
+    CompletableFuture<Order> saved = dao.submit(order(2, 1));
+
+    CompletionException e = assertThrows(CompletionException.class, () -> failed.orTimeout(10, TimeUnit.SECONDS).join());
+    assertInstanceOf(RuntimeException.class, e.getCause());
+    saved.get(10, TimeUnit.SECONDS);
+
+    Order next = order(3, 2);
+    dao.create(next);
+    assertEquals(3L, orderDao.findById(next.getOrderId()).orElseThrow().getUserId());
+    assertEquals(2, countOrders());
+  }
+
+  @Test
+  void failedGroupIsRejectedToCaller() {
+    Order unknownUser = order(1_000, 1);
+
+    assertThrows(CafeException.class, () -> dao.create(unknownUser));
+  }
+
+  private static Order order(long userId, int quantity) {
+    MenuItem menuItem = MenuItem.builder().id(1L).name("Item").price(new BigDecimal("100.00")).isAvailable(true).build();
+    return new Order(userId, List.of(new OrderItem(menuItem, quantity)),
+            LocalDateTime.now().plusHours(1).truncatedTo(ChronoUnit.MINUTES), PaymentMethod.CASH);
+  }
+
+  private static long countOrders() throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement("SELECT count(*) FROM orders");
+         ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+}
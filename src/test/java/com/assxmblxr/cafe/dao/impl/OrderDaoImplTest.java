@@ -0,0 +1,166 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(TestDatabase.class)
+class OrderDaoImplTest {
+  private static final int ORDERS = 300;
+
+  private final OrderDaoImpl joinedDao = new OrderDaoImpl();
+  private final OrderDaoImpl catalogDao = new OrderDaoImpl(new CachedMenuItemDao(new MenuItemDaoImpl()));
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 20, 40, ORDERS, 3);
+    }
+  }
+
+  @Test
+  void findAllLoadsOrdersWithItemsInOneStatement() throws Exception {
+    RoundTrips.Result<List<Order>> result = RoundTrips.measure(joinedDao::findAll);
+
+    assertEquals(1, result.statements());
+    assertEquals(ORDERS, result.value().size());
+    assertEquals(TestDatabase.countRows("order_items"), itemCount(result.value()));
+  }
+
+  @Test
+  void findAllWithMenuCatalogLoadsMenuOnce() throws Exception {
+    catalogDao.findAll();
+    RoundTrips.Result<List<Order>> result = RoundTrips.measure(catalogDao::findAll);
+
+    assertEquals(1, result.statements());
+    assertEquals(TestDatabase.countRows("order_items"), itemCount(result.value()));
+  }
+
+  @Test
+  void findAllResolvesItemsMissingFromMenuSnapshotInOneStatement() throws Exception {
+    catalogDao.findAll();
+    try (Connection conn = TestDatabase.connection(); Statement st = conn.createStatement()) {
+      st.executeUpdate("INSERT INTO menu_items (name, price) SELECT 'Extra ' || i, 10 FROM generate_series(1, 5) i");
+      st.executeUpdate("""
+              INSERT INTO order_items (order_id, menu_item_id, quantity, unit_price)
+              SELECT o.order_id, m.menu_item_id, 1, m.price
+              FROM orders o CROSS JOIN menu_items m
+              WHERE m.name LIKE 'Extra %'""");
+    }
+
+    RoundTrips.Result<List<Order>> result = RoundTrips.measure(catalogDao::findAll);
+
+    // заказы и одна выборка всех позиций, которых нет в снимке, на пачку из STREAM_FETCH_SIZE заказов
+    assertEquals(2, result.statements());
+    assertEquals(TestDatabase.countRows("order_items"), itemCount(result.value()));
+  }
+
+  @Test
+  void findPageIsOneStatementPerPage() throws Exception {
+    RoundTrips.Result<List<Order>> first = RoundTrips.measure(() -> joinedDao.findPage(null, 50));
+    RoundTrips.Result<List<Order>> second = RoundTrips.measure(() -> joinedDao.findPage(first.value().get(49), 50));
+
+    assertEquals(1, first.statements());
+    assertEquals(1, second.statements());
+    assertEquals(50, second.value().size());
+    Order last = first.value().get(49);
+    Order next = second.value().get(0);
+    assertTrue(next.getCreatedAt().isBefore(last.getCreatedAt())
+            || next.getCreatedAt().equals(last.getCreatedAt()) && next.getOrderId() < last.getOrderId());
+  }
+
+  @Test
+  void findByIdIsOneStatement() throws Exception {
+    RoundTrips.Result<Order> result = RoundTrips.measure(() -> joinedDao.findById(1).orElseThrow());
+
+    assertEquals(1, result.statements());
+    assertEquals(1L, result.value().getOrderId());
+    assertTrue(!result.value().getItems().isEmpty());
+  }
+
+  @Test
+  void updateWritesOnlyChangedItems() throws Exception {
+    Order order = joinedDao.findById(1).orElseThrow();
+    List<OrderItem> items = order.getItems();
+    assertEquals(3, items.size());
+    Map<Long, String> before = itemVersions(1);
+    long changed = items.get(0).getMenuItem().getMenuItemId();
+    long removed = items.get(1).getMenuItem().getMenuItemId();
+    long untouched = items.get(2).getMenuItem().getMenuItemId();
+    items.get(0).setQuantity(items.get(0).getQuantity() + 1);
+    items.remove(1);
+    MenuItem added = joinedDao.findById(2).orElseThrow().getItems().stream()
+            .map(OrderItem::getMenuItem)
+            .filter(menuItem -> !before.containsKey(menuItem.getMenuItemId()))
+            .findFirst().orElseThrow();
+    items.add(new OrderItem(added, 2));
+
+    // UPDATE orders, выборка текущих позиций, DELETE убранных и один батч upsert-ов
+    assertEquals(4, RoundTrips.count(() -> {
+      joinedDao.update(order);
+      return null;
+    }));
+
+    Map<Long, String> after = itemVersions(1);
+    assertEquals(Set.of(changed, untouched, added.getMenuItemId()), after.keySet());
+    assertEquals(before.get(untouched), after.get(untouched));
+    assertNotEquals(before.get(changed), after.get(changed));
+    assertFalse(after.containsKey(removed));
+  }
+
+  @Test
+  void updateTreatsNonPositiveQuantityAsRemoval() throws Exception {
+    Order order = joinedDao.findById(1).orElseThrow();
+    long zeroed = order.getItems().get(0).getMenuItem().getMenuItemId();
+    long negative = order.getItems().get(1).getMenuItem().getMenuItemId();
+    order.getItems().get(0).setQuantity(0);
+    order.getItems().get(1).setQuantity(-1);
+
+    joinedDao.update(order);
+
+    Map<Long, String> after = itemVersions(1);
+    assertEquals(1, after.size());
+    assertFalse(after.containsKey(zeroed));
+    assertFalse(after.containsKey(negative));
+  }
+
+  /** @return menu_item_id позиций заказа и xmin их строк: xmin меняется при каждой записи строки. */
+  private static Map<Long, String> itemVersions(long orderId) throws Exception {
+    Map<Long, String> versions = new HashMap<>();
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement(
+                 "SELECT menu_item_id, xmin::text FROM order_items WHERE order_id = ?")) {
+      ps.setLong(1, orderId);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          versions.put(rs.getLong(1), rs.getString(2));
+        }
+      }
+    }
+    return versions;
+  }
+
+  private static long itemCount(List<Order> orders) {
+    return orders.stream().mapToLong(order -> order.getItems().size()).sum();
+  }
+}
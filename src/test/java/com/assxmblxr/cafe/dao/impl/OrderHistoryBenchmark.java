@@ -0,0 +1,134 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.type.OrderStatus;
+import com.assxmblxr.cafe.type.PaymentMethod;
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Загрузка истории заказов одним JOIN-запросом против чтения позиций отдельным запросом
+ * на каждый заказ (N+1) на 20 000 заказах. Печатает количество обращений, медиану времени на локальной
+ * базе и оценку с сетевой задержкой. Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class OrderHistoryBenchmark {
+  private static final int ORDERS = 20_000;
+  private static final int RUNS = 7;
+  private static final int RTT_MICROS = 500;
+  private static final String SELECT_ORDERS = """
+          SELECT order_id, user_id, total_price, pickup_time, payment_method, status, created_at
+          FROM orders
+          ORDER BY created_at DESC, order_id DESC""";
+  private static final String SELECT_ITEMS = """
+          SELECT mi.menu_item_id, mi.name, mi.description, mi.price, mi.is_available, oi.quantity
+          FROM order_items oi
+          JOIN menu_items mi ON mi.menu_item_id = oi.menu_item_id
+          WHERE oi.order_id = ?""";
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 1_000, 100, ORDERS, 4);
+    }
+  }
+
+  @Test
+  void joinLoaderVersusPerOrderQueries() throws Exception {
+    OrderDaoImpl dao = new OrderDaoImpl();
+    Sample joined = sample("join", () -> dao.findAll().size());
+    Sample perOrder = sample("N+1", OrderHistoryBenchmark::loadPerOrder);
+
+    assertEquals(1, joined.statements());
+    assertEquals(ORDERS + 1, perOrder.statements());
+    // на loopback обращение стоит десятки микросекунд; в сети каждое добавляет RTT
+    assertTrue(joined.projectedMillis() < perOrder.projectedMillis());
+  }
+
+  /** Прежняя схема загрузки: список заказов, затем позиции каждого заказа отдельным запросом. */
+  private static int loadPerOrder() throws Exception {
+    List<Order> orders = new ArrayList<>();
+    try (Connection conn = DatabaseUtil.getConnection()) {
+      try (PreparedStatement ps = conn.prepareStatement(SELECT_ORDERS);
+           ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          orders.add(Order.builder()
+                  .orderId(rs.getLong("order_id"))
+                  .userId(rs.getLong("user_id"))
+                  .totalPrice(rs.getBigDecimal("total_price"))
+                  .pickupTime(rs.getTimestamp("pickup_time").toLocalDateTime())
+                  .paymentMethod(PaymentMethod.valueOf(rs.getString("payment_method")))
+                  .status(OrderStatus.valueOf(rs.getString("status")))
+                  .createdAt(rs.getTimestamp("created_at").toLocalDateTime())
+                  .build());
+        }
+      }
+      try (PreparedStatement ps = conn.prepareStatement(SELECT_ITEMS)) {
+        for (Order order : orders) {
+          ps.setLong(1, order.getOrderId());
+          List<OrderItem> items = new ArrayList<>();
+          try (ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+              MenuItem menuItem = MenuItem.builder()
+                      .id(rs.getLong("menu_item_id"))
+                      .name(rs.getString("name"))
+                      .description(rs.getString("description"))
+                      .price(rs.getBigDecimal("price"))
+                      .isAvailable(rs.getBoolean("is_available"))
+                      .build();
+              items.add(new OrderItem(menuItem, rs.getInt("quantity")));
+            }
+          }
+          order.setItems(items);
+        }
+      }
+    }
+    return orders.size();
+  }
+
+  private static Sample sample(String name, Callable<Integer> action) throws Exception {
+    action.call();
+    long[] nanos = new long[RUNS];
+    long statements = 0;
+    for (int i = 0; i < RUNS; i++) {
+      RoundTrips.Result<Integer> result = RoundTrips.measure(action);
+      nanos[i] = result.nanos();
+      statements = result.statements();
+    }
+    Arrays.sort(nanos);
+    Sample sample = new Sample(statements, nanos[RUNS / 2] / 1_000_000.0);
+    System.out.printf("%-5s orders=%d statements=%d median=%.1f ms, with %d us RTT=%.1f ms%n",
+            name, ORDERS, statements, sample.medianMillis(), RTT_MICROS, sample.projectedMillis());
+    return sample;
+  }
+
+  /**
+   * @param medianMillis медиана времени загрузки на локальной базе.
+   */
+  private record Sample(long statements, double medianMillis) {
+    /** @return ожидаемое время, если база находится в сети с RTT {@link #RTT_MICROS}. */
+    double projectedMillis() {
+      return medianMillis + statements * RTT_MICROS / 1000.0;
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.OrderEvent;
+import com.assxmblxr.cafe.service.OrderEventBus;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.type.OrderStatus;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(TestDatabase.class)
+class PgOrderEventRelayTest {
+  private final OrderEventBus first = new OrderEventBus(64);
+  private final OrderEventBus second = new OrderEventBus(64);
+  private final PgOrderEventRelay firstRelay = new PgOrderEventRelay(first);
+  private final PgOrderEventRelay secondRelay = new PgOrderEventRelay(second);
+
+  @BeforeEach
+  void start() throws Exception {
+    firstRelay.start();
+    secondRelay.start();
+    awaitTrue(() -> listening(firstRelay.getBackendPid()) && listening(secondRelay.getBackendPid()));
+  }
+
+  @AfterEach
+  void stop() {
+    firstRelay.close();
+    secondRelay.close();
+  }
+
+  @Test
+  void eventIsAppendedLocallyOnceAndDeliveredToOtherNode() throws Exception {
+    first.publishStatus(1, OrderStatus.PAID);
+    second.publishStatus(2, OrderStatus.CANCELLED);
+
+    awaitTrue(() -> first.getLastSequence() == 2 && second.getLastSequence() == 2);
+    Thread.sleep(200);
+    assertEquals(List.of(1L, 2L), orderIds(first));
+    assertEquals(List.of(2L, 1L), orderIds(second));
+  }
+
+  @Test
+  void eventsPublishedWhileReconnectingAreKeptLocallyAndSentLater() throws Exception {
+    int terminated = firstRelay.getBackendPid();
+    terminate(terminated);
+    first.publishStatus(1, OrderStatus.PAID);
+    first.publishStatus(2, OrderStatus.PAID);
+
+    assertEquals(List.of(1L, 2L), orderIds(first));
+    awaitTrue(() -> second.getLastSequence() == 2);
+    assertEquals(List.of(1L, 2L), orderIds(second));
+    assertNotEquals(terminated, firstRelay.getBackendPid());
+  }
+
+  private static List<Long> orderIds(OrderEventBus bus) {
+    return bus.eventsAfter(0).orElseThrow().stream().map(OrderEvent::orderId).toList();
+  }
+
+  private static boolean listening(int pid) throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement(
+                 "SELECT 1 FROM pg_stat_activity WHERE pid = ? AND query LIKE 'LISTEN%'")) {
+      ps.setInt(1, pid);
+      try (ResultSet rs = ps.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+
+  private static void terminate(int pid) throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement("SELECT pg_terminate_backend(?)")) {
+      ps.setInt(1, pid);
+      ps.execute();
+    }
+  }
+
+  private static void awaitTrue(CheckedCondition condition) throws Exception {
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (!condition.test()) {
+      assertTrue(System.currentTimeMillis() < deadline, "condition not met in time");
+      Thread.sleep(20);
+    }
+  }
+
+  private interface CheckedCondition {
+    boolean test() throws Exception;
+  }
+}
@@ -0,0 +1,81 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.support.DaoSql;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Properties;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Стоимость разбора и планирования на запросах {@code UserDaoImpl.findByEmail} и {@code findById}:
+ * {@code prepareThreshold=0} (драйвер каждый раз отправляет безымянный statement, сервер разбирает
+ * и планирует его заново) против {@code prepareThreshold=1} из {@code db.properties} (серверный
+ * statement готовится один раз на соединение и переиспользуется по тексту SQL). Как и в DAO,
+ * statement открывается и закрывается на каждый вызов. Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class PreparedStatementBenchmark {
+  private static final int USERS = 10_000;
+  private static final int WARMUP = 5_000;
+  private static final int OPERATIONS = 40_000;
+  private static final String SELECT_BY_EMAIL = DaoSql.of(UserDaoImpl.class, "SELECT_BY_EMAIL");
+  private static final String SELECT_BY_ID = DaoSql.of(UserDaoImpl.class, "SELECT_BY_ID");
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, 1, 0, 0);
+    }
+  }
+
+  @Test
+  void serverPreparedStatementsSkipParseAndPlan() throws Exception {
+    double unprepared = nanosPerOperation(0);
+    double prepared = nanosPerOperation(1);
+    System.out.printf("prepareThreshold=0: %.1f us/op%n", unprepared / 1000);
+    System.out.printf("prepareThreshold=1: %.1f us/op (%.0f%% faster)%n",
+            prepared / 1000, (1 - prepared / unprepared) * 100);
+
+    assertTrue(prepared < unprepared);
+  }
+
+  private static double nanosPerOperation(int prepareThreshold) throws Exception {
+    Properties props = new Properties();
+    props.setProperty("prepareThreshold", String.valueOf(prepareThreshold));
+    try (Connection conn = TestDatabase.connection(props)) {
+      SplittableRandom random = new SplittableRandom(42);
+      run(conn, random, WARMUP);
+      long start = System.nanoTime();
+      run(conn, random, OPERATIONS);
+      return (System.nanoTime() - start) / (double) OPERATIONS;
+    }
+  }
+
+  private static void run(Connection conn, SplittableRandom random, int operations) throws Exception {
+    for (int i = 0; i < operations; i++) {
+      int user = 1 + random.nextInt(USERS);
+      boolean byEmail = (i & 1) == 0;
+      try (PreparedStatement ps = conn.prepareStatement(byEmail ? SELECT_BY_EMAIL : SELECT_BY_ID)) {
+        if (byEmail) {
+          ps.setString(1, TestData.email(user));
+        } else {
+          ps.setLong(1, user);
+        }
+        try (ResultSet rs = ps.executeQuery()) {
+          assertTrue(rs.next());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.support.DaoSql;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.lang.management.ManagementFactory;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.BiFunction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Полная страница пользователей ({@link UserDaoImpl#findPage}) против проекции для списков
+ * ({@link UserDaoImpl#findSummaryPage}) на 20 000 пользователей: размер строки результата в базе
+ * и выделение памяти в JVM на строку при чтении всех страниц. Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class ProjectionBenchmark {
+  private static final int USERS = 20_000;
+  private static final int PAGE_SIZE = 500;
+  private static final int RUNS = 7;
+
+  private final UserDaoImpl userDao = new UserDaoImpl();
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, 1, 0, 0);
+    }
+  }
+
+  @Test
+  void summaryPageReadsAndAllocatesLessPerRow() throws Exception {
+    Sample full = sample("findPage", "SELECT_PAGE", userDao::findPage);
+    Sample summary = sample("findSummaryPage", "SELECT_SUMMARY_PAGE", userDao::findSummaryPage);
+
+    assertTrue(summary.bytesPerRow() < full.bytesPerRow());
+    assertTrue(summary.allocatedPerRow() < full.allocatedPerRow());
+  }
+
+  private Sample sample(String name, String sqlField, BiFunction<Long, Integer, List<?>> page) throws Exception {
+    readAll(page);
+    long[] allocated = new long[RUNS];
+    for (int i = 0; i < RUNS; i++) {
+      long before = allocatedBytes();
+      assertEquals(USERS, readAll(page));
+      allocated[i] = allocatedBytes() - before;
+    }
+    Arrays.sort(allocated);
+    Sample sample = new Sample(bytesPerRow(sqlField), allocated[RUNS / 2] / (double) USERS);
+    System.out.printf("%-15s rows=%d row size=%.0f bytes, allocated=%.0f bytes/row%n",
+            name, USERS, sample.bytesPerRow(), sample.allocatedPerRow());
+    return sample;
+  }
+
+  /** Читает всех пользователей страницами; id берется из порядкового номера, так как id идут подряд. */
+  private static int readAll(BiFunction<Long, Integer, List<?>> page) {
+    int rows = 0;
+    List<?> current;
+    do {
+      current = page.apply((long) rows, PAGE_SIZE);
+      rows += current.size();
+    } while (current.size() == PAGE_SIZE);
+    return rows;
+  }
+
+  /** @return средний размер строки результата запроса DAO по данным {@code pg_column_size}. */
+  private static double bytesPerRow(String sqlField) throws Exception {
+    String sql = DaoSql.of(UserDaoImpl.class, sqlField).replace(";", "");
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement("SELECT avg(pg_column_size(p.*)) FROM (" + sql + ") p")) {
+      ps.setLong(1, 0);
+      ps.setInt(2, USERS);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getDouble(1);
+      }
+    }
+  }
+
+  private static long allocatedBytes() {
+    return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getCurrentThreadAllocatedBytes();
+  }
+
+  private record Sample(double bytesPerRow, double allocatedPerRow) {}
+}
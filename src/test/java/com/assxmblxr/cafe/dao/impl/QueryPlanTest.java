@@ -0,0 +1,124 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.support.DaoSql;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DynamicTest;
+import org.junit.jupiter.api.TestFactory;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Properties;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет по EXPLAIN, что избирательные запросы DAO обслуживаются индексами из миграций.
+ * <p>
+ * Берется общий план ({@code EXPLAIN (GENERIC_PLAN)}), как у подготовленного выражения после нескольких
+ * выполнений, с настройками планировщика по умолчанию на объеме данных, близком к рабочему, после ANALYZE.
+ * Для каждого запроса указаны ожидаемый индекс (или несколько через {@code |}) и таблица, которую
+ * этот индекс обслуживает: ее последовательное чтение считается ошибкой. Остальные таблицы плана
+ * (справочник меню в соединениях, позиции страницы заказов) планировщик вправе читать целиком.
+ * Запросы к маленьким таблицам, где полное чтение и есть лучший план ({@code MenuItemDaoImpl.SELECT_BY_IDS},
+ * {@code SalesReportDaoImpl.SELECT_DAILY}), здесь не проверяются.
+ * </p>
+ */
+@ExtendWith(TestDatabase.class)
+class QueryPlanTest {
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection(); Statement st = conn.createStatement()) {
+      TestData.generate(conn, 20_000, 500, 100_000, 3);
+      new SalesReportDaoImpl().rebuild();
+      st.execute("VACUUM ANALYZE");
+    }
+  }
+
+  /** Данные генерируются один раз: динамические тесты фабрики разделяют ее {@code @BeforeEach}. */
+  @TestFactory
+  Stream<DynamicTest> queriesAreIndexBacked() {
+    return Stream.of(
+            // ключ user_id есть у обоих индексов, планировщик выбирает меньший
+            query(UserDaoImpl.class, "SELECT_BY_ID", "users", "users_pkey|users_summary_idx"),
+            query(UserDaoImpl.class, "SELECT_BY_EMAIL", "users", "users_lower_email_key"),
+            query(UserDaoImpl.class, "EXISTS_BY_EMAIL", "users", "users_lower_email_key"),
+            query(UserDaoImpl.class, "SELECT_PAGE", "users", "users_pkey"),
+            query(UserDaoImpl.class, "SELECT_SUMMARY_PAGE", "users", "users_pkey|users_summary_idx"),
+            query(MenuItemDaoImpl.class, "SELECT_BY_ID", "menu_items", "menu_items_pkey"),
+            query(MenuItemDaoImpl.class, "SELECT_BY_NAME", "menu_items", "menu_items_name_idx"),
+            query(MenuItemDaoImpl.class, "SELECT_CARDS", "menu_items", "menu_items_cards_idx"),
+            query(OrderDaoImpl.class, "selectById", "orders", "orders_pkey"),
+            query(OrderDaoImpl.class, "selectFirstPage", "orders", "orders_created_at_order_id_idx"),
+            query(OrderDaoImpl.class, "selectPageAfter", "orders", "orders_created_at_order_id_idx"),
+            query(OrderDaoImpl.class, "SELECT_ITEM_QUANTITIES", "order_items",
+                    "order_items_order_id_menu_item_id_key"),
+            query(OrderDaoImpl.class, "DELETE_REMOVED_ITEMS", "order_items",
+                    "order_items_order_id_menu_item_id_key"),
+            query(OrderDaoImpl.class, "UPDATE_STATUS", "orders", "orders_pkey"),
+            query(OrderDaoImpl.class, "UPDATE_STATUS_BATCH", "orders", "orders_pkey"),
+            query(OrderDaoImpl.class, "SELECT_PICKUP_LOAD", "orders", "orders_active_pickup_time_idx"),
+            query(OrderDaoImpl.class, "SELECT_COMPLETED_ITEMS", "orders", "orders_created_at_order_id_idx"),
+            query(OrderDaoImpl.class, "DELETE_ORDER", "orders", "orders_pkey"),
+            // общий план считает LIMIT $1 десятой частью таблицы, поэтому отметку порции соединяет
+            // с orders хешем; проверяется только выборка порции по частичному индексу
+            query(LoyaltyDaoImpl.class, "ACCRUE_CHUNK", null, "orders_loyalty_pending_idx"),
+            query(SalesReportDaoImpl.class, "SELECT_HOURLY", "sales_hourly", "sales_hourly_pkey"),
+            query(SalesReportDaoImpl.class, "SELECT_TOP_ITEMS", "sales_item_daily", "sales_item_daily_pkey"));
+  }
+
+  private static DynamicTest query(Class<?> dao, String field, String table, String indexes) {
+    return DynamicTest.dynamicTest(dao.getSimpleName() + "." + field,
+            () -> assertIndexBacked(dao, field, table, indexes));
+  }
+
+  private static void assertIndexBacked(Class<?> dao, String field, String table, String indexes) throws Exception {
+    String plan = explain(DaoSql.of(dao, field));
+
+    if (table != null) {
+      assertFalse(Pattern.compile("Seq Scan on " + table + "\\b").matcher(plan).find(), plan);
+    }
+    assertTrue(Pattern.compile(" (" + indexes + ") ").matcher(plan).find(),
+            () -> "Expected " + indexes + " in plan:\n" + plan);
+  }
+
+  private static String explain(String sql) throws Exception {
+    // простой протокол: иначе драйвер принял бы $1 за параметры самого EXPLAIN
+    Properties simpleQueries = new Properties();
+    simpleQueries.setProperty("preferQueryMode", "simple");
+    StringBuilder plan = new StringBuilder();
+    try (Connection conn = TestDatabase.connection(simpleQueries);
+         Statement st = conn.createStatement();
+         ResultSet rs = st.executeQuery("EXPLAIN (GENERIC_PLAN) " + numberParameters(sql))) {
+      while (rs.next()) {
+        plan.append(rs.getString(1)).append('\n');
+      }
+    }
+    return plan.toString();
+  }
+
+  /** Заменяет параметры JDBC {@code ?} на {@code $1, $2, ...} и убирает завершающую точку с запятой. */
+  private static String numberParameters(String sql) {
+    StringBuilder numbered = new StringBuilder();
+    int parameter = 0;
+    for (char c : sql.strip().toCharArray()) {
+      if (c == '?') {
+        numbered.append('$').append(++parameter);
+      } else {
+        numbered.append(c);
+      }
+    }
+    int end = numbered.length() - 1;
+    if (numbered.charAt(end) == ';') {
+      numbered.setLength(end);
+    }
+    return numbered.toString();
+  }
+}
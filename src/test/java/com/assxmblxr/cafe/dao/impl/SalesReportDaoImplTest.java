@@ -0,0 +1,59 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.dao.SalesReportDao;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+@ExtendWith(TestDatabase.class)
+class SalesReportDaoImplTest {
+  private final SalesReportDaoImpl salesReportDao = new SalesReportDaoImpl();
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 20, 10, 500, 3);
+    }
+  }
+
+  @Test
+  void rebuildAfterMenuPriceChangeMatchesRecordedAggregates() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      salesReportDao.record(conn, finishedOrderIds(conn));
+    }
+    LocalDate today = LocalDate.now();
+    List<SalesReportDao.ItemSales> recorded =
+            salesReportDao.findTopItems(today.minusDays(TestData.ORDER_DAYS), today, 10);
+
+    try (Connection conn = TestDatabase.connection(); Statement st = conn.createStatement()) {
+      st.executeUpdate("UPDATE menu_items SET price = price * 2");
+    }
+    salesReportDao.rebuild();
+
+    assertFalse(recorded.isEmpty());
+    assertEquals(recorded, salesReportDao.findTopItems(today.minusDays(TestData.ORDER_DAYS), today, 10));
+  }
+
+  private static List<Long> finishedOrderIds(Connection conn) throws Exception {
+    List<Long> ids = new ArrayList<>();
+    try (Statement st = conn.createStatement();
+         ResultSet rs = st.executeQuery("SELECT order_id FROM orders WHERE status IN ('COMPLETED', 'CANCELLED')")) {
+      while (rs.next()) {
+        ids.add(rs.getLong(1));
+      }
+    }
+    return ids;
+  }
+}
@@ -0,0 +1,54 @@
+package com.assxmblxr.cafe.dao.impl;
+
+import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(TestDatabase.class)
+class UserDaoImplTest {
+  private final UserDaoImpl userDao = new UserDaoImpl();
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 3, 1, 0, 0);
+    }
+  }
+
+  @Test
+  void emailLookupIgnoresCase() {
+    String email = TestData.email(1).toUpperCase();
+
+    assertTrue(userDao.existsByEmail(email));
+    assertEquals(1L, userDao.findByEmail(email).orElseThrow().getId());
+  }
+
+  @Test
+  void createIfAbsentRejectsEmailDifferingOnlyInCase() throws Exception {
+    User duplicate = new User("Duplicate", TestData.email(1).toUpperCase(), TestData.PASSWORD_HASH);
+    User fresh = new User("Fresh", "Fresh@Test.Local", TestData.PASSWORD_HASH);
+
+    assertFalse(userDao.createIfAbsent(duplicate));
+    assertTrue(userDao.createIfAbsent(fresh));
+    assertTrue(userDao.existsByEmail("fresh@test.local"));
+    assertEquals(4, TestDatabase.countRows("users"));
+  }
+
+  @Test
+  void passwordUpdateSkipsHashChangedSinceVerification() {
+    String changed = TestData.PASSWORD_HASH + "changed";
+    assertTrue(userDao.updatePassword(1, TestData.PASSWORD_HASH, changed));
+
+    assertFalse(userDao.updatePassword(1, TestData.PASSWORD_HASH, "rehash of old password"));
+    assertEquals(changed, userDao.findById(1).orElseThrow().getPassword());
+  }
+}
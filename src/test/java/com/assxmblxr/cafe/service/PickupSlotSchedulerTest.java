@@ -0,0 +1,45 @@
+package com.assxmblxr.cafe.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PickupSlotSchedulerTest {
+  private final PickupSlotScheduler slots = new PickupSlotScheduler(null, 5, 3, 12);
+
+  @Test
+  void nearestFreeSlotForPastTimeIsNotInThePast() {
+    LocalDateTime before = LocalDateTime.now();
+
+    Optional<LocalDateTime> slot = slots.findNearestFree(before.minusHours(1), 1);
+
+    assertTrue(slot.isPresent());
+    assertFalse(slot.get().isBefore(before));
+    assertTrue(slot.get().isBefore(before.plusMinutes(5)));
+  }
+
+  @Test
+  void nearestFreeSlotSkipsAlreadyStartedSlot() {
+    LocalDateTime before = LocalDateTime.now();
+
+    LocalDateTime slot = slots.findNearestFree(before, 1).orElseThrow();
+
+    assertFalse(slot.isBefore(before));
+  }
+
+  @Test
+  void nearestFreeSlotSkipsFullSlots() {
+    LocalDateTime wanted = LocalDateTime.now().withNano(0).withSecond(0).plusHours(1).withMinute(0);
+    assertTrue(slots.tryReserve(wanted, 3));
+
+    LocalDateTime slot = slots.findNearestFree(wanted, 1).orElseThrow();
+
+    assertEquals(5, Math.abs(Duration.between(wanted, slot).toMinutes()));
+  }
+}
@@ -0,0 +1,78 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.service.AnalyticsService.OrderAnalytics;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Масштабирование аналитики по размеру пула свертки на 100 000 заказов: чтение курсором остается
+ * последовательным, параллельна только свертка порций, поэтому прирост ограничен долей свертки
+ * во времени расчета и числом ядер. Печатает медиану и ускорение относительно одного потока.
+ * Запуск: {@code mvn test -Pbenchmark -Dtest=AnalyticsScalingBenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class AnalyticsScalingBenchmark {
+  private static final int ORDERS = 100_000;
+  private static final int RUNS = 5;
+  private static final int[] PARALLELISM = {1, 2, 4, 8};
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 1_000, 100, ORDERS, 4);
+    }
+  }
+
+  @Test
+  void analyticsScaleWithPoolSize() {
+    LocalDate to = LocalDate.now();
+    LocalDate from = to.minusDays(TestData.ORDER_DAYS);
+    System.out.printf("cores=%d orders=%d%n", Runtime.getRuntime().availableProcessors(), ORDERS);
+
+    OrderAnalytics baseline = null;
+    double baselineMillis = 0;
+    for (int parallelism : PARALLELISM) {
+      ForkJoinPool pool = new ForkJoinPool(parallelism);
+      try {
+        AnalyticsServiceImpl analytics = new AnalyticsServiceImpl(new OrderDaoImpl(), pool, 10_000, 10);
+        OrderAnalytics result = analytics.analyze(from, to);
+        long[] millis = new long[RUNS];
+        for (int i = 0; i < RUNS; i++) {
+          long start = System.nanoTime();
+          result = analytics.analyze(from, to);
+          millis[i] = (System.nanoTime() - start) / 1_000_000;
+        }
+        Arrays.sort(millis);
+        double median = millis[RUNS / 2];
+        if (baseline == null) {
+          baseline = result;
+          baselineMillis = median;
+        }
+        System.out.printf("parallelism=%d median=%.0f ms speedup=%.2f%n",
+                parallelism, median, baselineMillis / Math.max(median, 1));
+
+        assertEquals(baseline.orders(), result.orders());
+        assertEquals(baseline.revenueMinor(), result.revenueMinor());
+        assertArrayEquals(baseline.revenuePerHour(), result.revenuePerHour());
+        assertArrayEquals(baseline.basketSizes(), result.basketSizes());
+        assertEquals(baseline.topSellers(), result.topSellers());
+      } finally {
+        pool.shutdown();
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.service.AnalyticsService.ItemTotal;
+import com.assxmblxr.cafe.service.AnalyticsService.OrderAnalytics;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(TestDatabase.class)
+class AnalyticsServiceImplTest {
+  private static final int TOP_SELLERS = 5;
+  // OrderDaoImpl.STREAM_FETCH_SIZE: порция строк курсора
+  private static final int FETCH_SIZE = 500;
+  private static final String EXPECTED_ROWS = """
+          SELECT count(*)
+          FROM orders o
+          LEFT JOIN order_items oi ON oi.order_id = o.order_id
+          WHERE o.status = 'COMPLETED' AND o.created_at >= ? AND o.created_at < ?""";
+  private static final String EXPECTED_TOTALS = """
+          SELECT count(*), COALESCE(SUM(total_price * 100), 0)::bigint
+          FROM orders
+          WHERE status = 'COMPLETED' AND created_at >= ? AND created_at < ?""";
+  private static final String EXPECTED_HOURS = """
+          SELECT EXTRACT(HOUR FROM created_at)::int, SUM(total_price * 100)::bigint
+          FROM orders
+          WHERE status = 'COMPLETED' AND created_at >= ? AND created_at < ?
+          GROUP BY 1""";
+  private static final String EXPECTED_TOP = """
+          SELECT SUM(oi.quantity * mi.price * 100)::bigint AS revenue
+          FROM orders o
+          JOIN order_items oi ON oi.order_id = o.order_id
+          JOIN menu_items mi ON mi.menu_item_id = oi.menu_item_id
+          WHERE o.status = 'COMPLETED' AND o.created_at >= ? AND o.created_at < ?
+          GROUP BY oi.menu_item_id
+          ORDER BY revenue DESC
+          LIMIT ?""";
+
+  private final ForkJoinPool pool = new ForkJoinPool(2);
+  // маленькая порция, чтобы заказы попадали на границы порций
+  private final AnalyticsServiceImpl analytics = new AnalyticsServiceImpl(new OrderDaoImpl(), pool, 7, TOP_SELLERS);
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 50, 30, 2_000, 3);
+    }
+  }
+
+  @AfterEach
+  void stop() {
+    analytics.close();
+    pool.shutdown();
+  }
+
+  @Test
+  void analyzeMatchesDatabaseAggregatesForPeriod() throws Exception {
+    LocalDate to = LocalDate.now();
+    LocalDate from = to.minusDays(9);
+
+    RoundTrips.Result<OrderAnalytics> result = RoundTrips.measure(() -> analytics.analyze(from, to));
+
+    OrderAnalytics actual = result.value();
+    // один запрос, строки которого догружаются курсором порциями по FETCH_SIZE
+    assertEquals(1 + expectedRows(from, to) / FETCH_SIZE, result.statements());
+    long[] totals = expectedTotals(from, to);
+    assertTrue(totals[0] > 0);
+    assertEquals(totals[0], actual.orders());
+    assertEquals(totals[1], actual.revenueMinor());
+    assertArrayEquals(expectedRevenuePerHour(from, to), actual.revenuePerHour());
+    assertEquals(expectedTopRevenues(from, to), actual.topSellers().stream().map(ItemTotal::revenueMinor).toList());
+    assertEquals(actual.orders(), Arrays.stream(actual.basketSizes()).sum());
+  }
+
+  @Test
+  void emptyPeriodHasNoOrders() {
+    LocalDate from = LocalDate.now().minusYears(2);
+
+    OrderAnalytics actual = analytics.analyze(from, from.plusDays(1));
+
+    assertEquals(0, actual.orders());
+    assertTrue(actual.topSellers().isEmpty());
+  }
+
+  @Test
+  void closeKeepsPoolOwnedByCaller() {
+    analytics.close();
+
+    assertFalse(pool.isShutdown());
+  }
+
+  private static long[] expectedTotals(LocalDate from, LocalDate to) throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = period(conn, EXPECTED_TOTALS, from, to);
+         ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      return new long[]{rs.getLong(1), rs.getLong(2)};
+    }
+  }
+
+  private static long expectedRows(LocalDate from, LocalDate to) throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = period(conn, EXPECTED_ROWS, from, to);
+         ResultSet rs = ps.executeQuery()) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  private static long[] expectedRevenuePerHour(LocalDate from, LocalDate to) throws Exception {
+    long[] hours = new long[24];
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = period(conn, EXPECTED_HOURS, from, to);
+         ResultSet rs = ps.executeQuery()) {
+      while (rs.next()) {
+        hours[rs.getInt(1)] = rs.getLong(2);
+      }
+    }
+    return hours;
+  }
+
+  private static List<Long> expectedTopRevenues(LocalDate from, LocalDate to) throws Exception {
+    List<Long> revenues = new ArrayList<>();
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = period(conn, EXPECTED_TOP, from, to)) {
+      ps.setInt(3, TOP_SELLERS);
+      try (ResultSet rs = ps.executeQuery()) {
+        while (rs.next()) {
+          revenues.add(rs.getLong(1));
+        }
+      }
+    }
+    return revenues;
+  }
+
+  private static PreparedStatement period(Connection conn, String sql, LocalDate from, LocalDate to) throws Exception {
+    PreparedStatement ps = conn.prepareStatement(sql);
+    ps.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+    ps.setTimestamp(2, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+    return ps;
+  }
+}
@@ -0,0 +1,101 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.support.TestServices;
+import com.assxmblxr.cafe.util.PasswordHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Задержка входа ({@link UserServiceImpl#login}) при разной стоимости BCrypt на текущем железе:
+ * печатает p50/p99 для хеша с той же стоимостью, что настроена, и для хеша с минимальной стоимостью,
+ * который пересчитывается в фоне. Запуск: {@code mvn test -Pbenchmark}.
+ */
+@Tag("benchmark")
+@ExtendWith(TestDatabase.class)
+class LoginBenchmark {
+  private static final int USERS = 200;
+  private static final long BUDGET_NANOS = 5_000_000_000L;
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, USERS, 1, 0, 0);
+    }
+  }
+
+  @ParameterizedTest(name = "cost {0}")
+  @ValueSource(ints = {8, 10, 11, 12})
+  void loginLatencyAtCost(int cost) throws Exception {
+    setAllHashes(BCrypt.hashpw(TestData.PASSWORD, BCrypt.gensalt(cost)));
+    try (PasswordHasher hasher = TestServices.hasher(cost)) {
+      UserServiceImpl service = service(hasher);
+      long[] current = measure(service, null);
+      report("cost " + cost + ", hash at cost", current);
+
+      // хеши с устаревшей стоимостью: вход проверяет дешевый хеш, пересчет уходит в фон;
+      // между входами ждем пересчета, чтобы замерить только путь запроса
+      setAllHashes(TestData.PASSWORD_HASH);
+      long[] upgrading = measure(service, hasher);
+      report("cost " + cost + ", hash at cost 4", upgrading);
+      assertTrue(percentile(upgrading, 0.5) < percentile(current, 0.5));
+    }
+  }
+
+  private UserServiceImpl service(PasswordHasher hasher) {
+    OrderDaoImpl orderDao = new OrderDaoImpl();
+    return TestServices.userService(new UserDaoImpl(), orderDao, hasher, TestServices.unlimitedSlots(orderDao));
+  }
+
+  /**
+   * Входит под разными пользователями, пока не исчерпан бюджет времени или пользователи.
+   *
+   * @param idle если задан, перед каждым входом ждать, пока этот хешер закончит фоновую работу.
+   */
+  private static long[] measure(UserServiceImpl service, PasswordHasher idle) throws InterruptedException {
+    long[] nanos = new long[USERS];
+    int count = 0;
+    long deadline = System.nanoTime() + BUDGET_NANOS;
+    while (count < USERS && (count < 20 || System.nanoTime() < deadline)) {
+      while (idle != null && (idle.getActiveCount() > 0 || idle.getQueueDepth() > 0)) {
+        Thread.sleep(1);
+      }
+      long start = System.nanoTime();
+      assertTrue(service.login(TestData.email(count + 1), TestData.PASSWORD).isPresent());
+      nanos[count++] = System.nanoTime() - start;
+    }
+    long[] sample = Arrays.copyOf(nanos, count);
+    Arrays.sort(sample);
+    return sample;
+  }
+
+  private static void report(String name, long[] sample) {
+    System.out.printf("%-24s logins=%d p50=%.1f ms p99=%.1f ms%n", name, sample.length,
+            percentile(sample, 0.5) / 1e6, percentile(sample, 0.99) / 1e6);
+  }
+
+  private static long percentile(long[] sorted, double p) {
+    return sorted[Math.min(sorted.length - 1, (int) Math.ceil(p * sorted.length) - 1)];
+  }
+
+  private static void setAllHashes(String hash) throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement("UPDATE users SET password = ?")) {
+      ps.setString(1, hash);
+      ps.executeUpdate();
+    }
+  }
+}
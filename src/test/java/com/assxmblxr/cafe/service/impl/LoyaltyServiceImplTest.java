@@ -0,0 +1,62 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.impl.CachedUserDao;
+import com.assxmblxr.cafe.dao.impl.LoyaltyDaoImpl;
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.entity.User;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.support.TestServices;
+import com.assxmblxr.cafe.type.Role;
+import com.assxmblxr.cafe.util.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(TestDatabase.class)
+class LoyaltyServiceImplTest {
+  private final UserDaoImpl userDao = new UserDaoImpl();
+  private final CachedUserDao cachedUserDao = new CachedUserDao(userDao, 100, 60);
+  private final OrderDaoImpl orderDao = new OrderDaoImpl();
+  private final PasswordHasher hasher = TestServices.hasher(4);
+  private final UserServiceImpl userService = TestServices.userService(cachedUserDao, orderDao, hasher,
+          TestServices.unlimitedSlots(orderDao));
+  private final LoyaltyServiceImpl loyaltyService = new LoyaltyServiceImpl(new LoyaltyDaoImpl(), 7,
+          new BigDecimal("0.05"), cachedUserDao::invalidate);
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 7, 5, 100, 2);
+    }
+  }
+
+  @AfterEach
+  void closeHasher() {
+    hasher.close();
+  }
+
+  @Test
+  void accruedPointsSurviveWritesThroughCachedUser() {
+    BigDecimal before = cachedUserDao.findById(1).orElseThrow().getLoyaltyPoints();
+
+    assertTrue(loyaltyService.accrue().users() > 0);
+    BigDecimal accrued = userDao.findById(1).orElseThrow().getLoyaltyPoints();
+    assertTrue(accrued.compareTo(before) > 0);
+    assertEquals(0, accrued.compareTo(cachedUserDao.findById(1).orElseThrow().getLoyaltyPoints()));
+
+    userService.grantAdminRole(1);
+
+    User stored = userDao.findById(1).orElseThrow();
+    assertEquals(Role.ADMIN, stored.getRole());
+    assertEquals(0, accrued.compareTo(stored.getLoyaltyPoints()));
+  }
+}
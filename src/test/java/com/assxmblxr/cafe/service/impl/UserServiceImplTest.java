@@ -0,0 +1,149 @@
+package com.assxmblxr.cafe.service.impl;
+
+import com.assxmblxr.cafe.dao.impl.MenuItemDaoImpl;
+import com.assxmblxr.cafe.dao.impl.OrderDaoImpl;
+import com.assxmblxr.cafe.dao.impl.UserDaoImpl;
+import com.assxmblxr.cafe.entity.MenuItem;
+import com.assxmblxr.cafe.entity.Order;
+import com.assxmblxr.cafe.entity.OrderItem;
+import com.assxmblxr.cafe.exception.CafeException;
+import com.assxmblxr.cafe.service.PickupSlotScheduler;
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import com.assxmblxr.cafe.support.TestServices;
+import com.assxmblxr.cafe.type.PaymentMethod;
+import com.assxmblxr.cafe.util.PasswordHasher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@ExtendWith(TestDatabase.class)
+class UserServiceImplTest {
+  private static final int TARGET_COST = 5;
+  private static final int SLOT_CAPACITY = 3;
+
+  private final OrderDaoImpl orderDao = new OrderDaoImpl();
+  private final PasswordHasher hasher = TestServices.hasher(TARGET_COST);
+  private final UserServiceImpl service = TestServices.userService(new UserDaoImpl(), orderDao, hasher,
+          TestServices.unlimitedSlots(orderDao));
+  private final MenuItemDaoImpl menuItemDao = new MenuItemDaoImpl();
+  private final PickupSlotScheduler limitedSlots = new PickupSlotScheduler(orderDao, 5, SLOT_CAPACITY, 12);
+  private final UserServiceImpl limitedService = TestServices.userService(new UserDaoImpl(), orderDao, hasher,
+          limitedSlots);
+
+  @BeforeEach
+  void generate() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 3, 5, 0, 0);
+    }
+  }
+
+  @AfterEach
+  void closeHasher() {
+    hasher.close();
+  }
+
+  @Test
+  void loginUpgradesHashToConfiguredCostInBackground() throws Exception {
+    assertTrue(service.login(TestData.email(1), TestData.PASSWORD).isPresent());
+
+    long deadline = System.currentTimeMillis() + 5_000;
+    while (PasswordHasher.costOf(storedHash(1)) != TARGET_COST && System.currentTimeMillis() < deadline) {
+      Thread.sleep(20);
+    }
+    assertEquals(TARGET_COST, PasswordHasher.costOf(storedHash(1)));
+    assertTrue(service.login(TestData.email(1), TestData.PASSWORD).isPresent());
+  }
+
+  @Test
+  void wrongPasswordDoesNotUpgradeHash() throws Exception {
+    assertTrue(service.login(TestData.email(2), "wrong").isEmpty());
+
+    Thread.sleep(100);
+    assertEquals(TestData.PASSWORD_HASH, storedHash(2));
+  }
+
+  @Test
+  void cancellingOrdersInBatchReleasesPickupSlots() throws Exception {
+    LocalDateTime pickupTime = upcomingSlot();
+    Order large = order(1, pickupTime, 2);
+    Order small = order(2, pickupTime, 1);
+    limitedService.placeOrder(1, large);
+    limitedService.placeOrder(2, small);
+    assertFalse(limitedSlots.tryReserve(pickupTime, 1));
+
+    // UPDATE ... RETURNING с временем получения и позициями и учет в агрегатах, без повторного чтения заказов
+    assertEquals(2, RoundTrips.count(() ->
+            limitedService.processOrdersFinalization(List.of(large.getOrderId(), small.getOrderId()), false)));
+
+    assertTrue(limitedSlots.tryReserve(pickupTime, SLOT_CAPACITY));
+  }
+
+  @Test
+  void cancellingSingleOrderReleasesPickupSlot() {
+    LocalDateTime pickupTime = upcomingSlot();
+    Order order = order(1, pickupTime, SLOT_CAPACITY);
+    limitedService.placeOrder(1, order);
+    assertFalse(limitedSlots.tryReserve(pickupTime, 1));
+
+    limitedService.processOrderFinalization(order.getOrderId(), false);
+
+    assertTrue(limitedSlots.tryReserve(pickupTime, SLOT_CAPACITY));
+  }
+
+  @Test
+  void completingOrderKeepsPickupSlot() {
+    LocalDateTime pickupTime = upcomingSlot();
+    Order order = order(1, pickupTime, SLOT_CAPACITY);
+    limitedService.placeOrder(1, order);
+    limitedService.markOrderPaid(order.getOrderId());
+
+    limitedService.processOrderFinalization(order.getOrderId(), true);
+
+    assertFalse(limitedSlots.tryReserve(pickupTime, 1));
+  }
+
+  @Test
+  void pastPickupTimeIsRejected() throws Exception {
+    Order order = order(1, LocalDateTime.now().minusMinutes(1), 1);
+
+    assertThrows(CafeException.class, () -> limitedService.placeOrder(1, order));
+    assertEquals(0, TestDatabase.countRows("orders"));
+  }
+
+  private Order order(long userId, LocalDateTime pickupTime, int quantity) {
+    MenuItem menuItem = menuItemDao.findById(1L).orElseThrow();
+    return new Order(userId, new ArrayList<>(List.of(new OrderItem(menuItem, quantity))), pickupTime, PaymentMethod.CASH);
+  }
+
+  /** @return начало следующего часа: будущее время, совпадающее с началом слота. */
+  private static LocalDateTime upcomingSlot() {
+    return LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+  }
+
+  static String storedHash(long userId) throws Exception {
+    try (Connection conn = TestDatabase.connection();
+         PreparedStatement ps = conn.prepareStatement("SELECT password FROM users WHERE user_id = ?")) {
+      ps.setLong(1, userId);
+      try (ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        return rs.getString(1);
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package com.assxmblxr.cafe.support;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+
+/**
+ * Читает SQL-константы DAO, чтобы тесты проверяли ровно те запросы, которые выполняет приложение.
+ *
+ * @author assxmblxr
+ */
+public class DaoSql {
+  private DaoSql() {}
+
+  /**
+   * @param dao  класс DAO.
+   * @param name имя поля с SQL; нестатические поля читаются у экземпляра, созданного конструктором без аргументов.
+   * @return текст SQL.
+   */
+  public static String of(Class<?> dao, String name) {
+    try {
+      Field field = dao.getDeclaredField(name);
+      field.setAccessible(true);
+      Object owner = Modifier.isStatic(field.getModifiers()) ? null : dao.getDeclaredConstructor().newInstance();
+      return (String) field.get(owner);
+    } catch (ReflectiveOperationException e) {
+      throw new IllegalArgumentException("No SQL constant " + dao.getSimpleName() + "." + name, e);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package com.assxmblxr.cafe.support;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Минимальные заглушки Servlet API на динамических прокси для тестов команд и сервлетов без контейнера.
+ * Поддержаны только методы, которые вызывает код приложения; остальные возвращают значения по умолчанию.
+ *
+ * @author assxmblxr
+ */
+public class FakeHttp {
+  private FakeHttp() {}
+
+  /** @return новая сессия с атрибутами в памяти. */
+  public static HttpSession session() {
+    Map<String, Object> attributes = new HashMap<>();
+    return (HttpSession) Proxy.newProxyInstance(FakeHttp.class.getClassLoader(), new Class<?>[]{HttpSession.class},
+            (proxy, method, args) -> switch (method.getName()) {
+              case "getAttribute" -> attributes.get((String) args[0]);
+              case "setAttribute" -> attributes.put((String) args[0], args[1]);
+              case "removeAttribute" -> attributes.remove((String) args[0]);
+              case "getAttributeNames" -> Collections.enumeration(attributes.keySet());
+              case "invalidate" -> {
+                attributes.clear();
+                yield null;
+              }
+              case "isNew" -> false;
+              case "getId" -> "test-session";
+              case "hashCode" -> System.identityHashCode(proxy);
+              case "equals" -> proxy == args[0];
+              case "toString" -> "FakeSession" + attributes;
+              default -> defaultValue(method.getReturnType());
+            });
+  }
+
+  /**
+   * @param servletPath путь сервлета, например {@code /metrics}.
+   * @param parameters  параметры запроса.
+   * @param session     сессия или {@code null}; если {@code null}, {@code getSession()} создает новую.
+   */
+  public static HttpServletRequest request(String servletPath, Map<String, String> parameters, HttpSession session) {
+    Map<String, Object> attributes = new HashMap<>();
+    HttpSession[] current = {session};
+    return (HttpServletRequest) Proxy.newProxyInstance(FakeHttp.class.getClassLoader(),
+            new Class<?>[]{HttpServletRequest.class},
+            (proxy, method, args) -> switch (method.getName()) {
+              case "getServletPath" -> servletPath;
+              case "getRequestURI" -> servletPath;
+              case "getMethod" -> "POST";
+              case "getParameter" -> parameters.get((String) args[0]);
+              case "getParameterMap" -> parameters;
+              case "getAttribute" -> attributes.get((String) args[0]);
+              case "setAttribute" -> attributes.put((String) args[0], args[1]);
+              case "removeAttribute" -> attributes.remove((String) args[0]);
+              case "getRemoteAddr" -> "127.0.0.1";
+              case "getSession" -> {
+                boolean create = args == null || (boolean) args[0];
+                if (current[0] == null && create) {
+                  current[0] = session();
+                }
+                yield current[0];
+              }
+              case "hashCode" -> System.identityHashCode(proxy);
+              case "equals" -> proxy == args[0];
+              case "toString" -> "FakeRequest " + servletPath;
+              default -> defaultValue(method.getReturnType());
+            });
+  }
+
+  private static Object defaultValue(Class<?> type) {
+    if (type == boolean.class) {
+      return false;
+    }
+    if (type == int.class) {
+      return 0;
+    }
+    if (type == long.class) {
+      return 0L;
+    }
+    return null;
+  }
+
+  /**
+   * Ответ, запоминающий статус, заголовки и тело.
+   */
+  public static final class Response {
+    private final StringWriter body = new StringWriter();
+    private final Map<String, String> headers = new HashMap<>();
+    private int status = HttpServletResponse.SC_OK;
+    private boolean committed;
+    private final HttpServletResponse proxy = (HttpServletResponse) Proxy.newProxyInstance(
+            FakeHttp.class.getClassLoader(), new Class<?>[]{HttpServletResponse.class},
+            (proxy, method, args) -> switch (method.getName()) {
+              case "setStatus" -> {
+                status = (int) args[0];
+                yield null;
+              }
+              case "sendError" -> {
+                status = (int) args[0];
+                committed = true;
+                yield null;
+              }
+              case "sendRedirect" -> {
+                status = HttpServletResponse.SC_FOUND;
+                headers.put("Location", (String) args[0]);
+                committed = true;
+                yield null;
+              }
+              case "setHeader", "addHeader" -> headers.put((String) args[0], (String) args[1]);
+              case "setContentType" -> headers.put("Content-Type", (String) args[0]);
+              case "getStatus" -> status;
+              case "getWriter" -> new PrintWriter(body, true);
+              case "isCommitted" -> committed;
+              case "hashCode" -> System.identityHashCode(proxy);
+              case "equals" -> proxy == args[0];
+              default -> defaultValue(method.getReturnType());
+            });
+
+    public HttpServletResponse proxy() { return proxy; }
+
+    public int getStatus() { return status; }
+
+    public String getHeader(String name) { return headers.get(name); }
+
+    public String getBody() { return body.toString(); }
+  }
+}
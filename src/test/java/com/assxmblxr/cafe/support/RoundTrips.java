@@ -0,0 +1,51 @@
+package com.assxmblxr.cafe.support;
+
+import com.assxmblxr.cafe.util.StatementStats;
+
+import java.util.concurrent.Callable;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Замер обращений к базе для тестов: сколько SQL-выражений выполнил код и сколько времени это заняло.
+ * Считаются только обращения через соединения {@code DatabaseUtil} в текущем потоке.
+ *
+ * @author assxmblxr
+ */
+public class RoundTrips {
+  private RoundTrips() {}
+
+  public static <T> Result<T> measure(Callable<T> action) throws Exception {
+    long start = System.nanoTime();
+    try (StatementStats.Scope scope = StatementStats.begin()) {
+      T value = action.call();
+      return new Result<>(value, scope.getStatements(), System.nanoTime() - start);
+    }
+  }
+
+  /** @return количество обращений к базе, сделанных действием. */
+  public static long count(Callable<?> action) throws Exception {
+    return measure(action).statements();
+  }
+
+  /**
+   * Проверяет бюджет обращений: падает, если действие сделало больше {@code budget} обращений к базе.
+   * Фактическое количество и время печатаются, чтобы их можно было сравнить между изменениями.
+   *
+   * @param name имя действия в отчете.
+   */
+  public static <T> Result<T> assertWithinBudget(String name, long budget, Callable<T> action) throws Exception {
+    Result<T> result = measure(action);
+    System.out.printf("%-28s statements=%d budget=%d time=%.2f ms%n",
+            name, result.statements(), budget, result.nanos() / 1_000_000.0);
+    assertTrue(result.statements() <= budget,
+            () -> name + " made " + result.statements() + " statements, budget is " + budget);
+    return result;
+  }
+
+  /**
+   * @param statements количество обращений к базе.
+   * @param nanos      полное время действия в наносекундах.
+   */
+  public record Result<T>(T value, long statements, long nanos) {}
+}
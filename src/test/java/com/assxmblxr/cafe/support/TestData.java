@@ -0,0 +1,97 @@
+package com.assxmblxr.cafe.support;
+
+import org.mindrot.jbcrypt.BCrypt;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Генератор тестовых данных: пользователи, меню и заказы создаются на стороне базы через
+ * {@code generate_series}, поэтому заполнение сотен тысяч строк занимает секунды.
+ * <p>
+ * Данные детерминированы ({@code setseed}): пользователь {@code i} имеет email {@code user<i>@test.local}
+ * и пароль {@link #PASSWORD}; заказы распределены по последним {@link #ORDER_DAYS} дням и всем статусам,
+ * суммы заказов пересчитываются по позициям.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+public class TestData {
+  public static final String PASSWORD = "password";
+  /** Хеш {@link #PASSWORD} с минимальной стоимостью BCrypt, чтобы генерация не упиралась в хеширование. */
+  public static final String PASSWORD_HASH = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+  public static final int ORDER_DAYS = 30;
+
+  private static final String INSERT_USERS = """
+          INSERT INTO users (name, email, account_balance, role, password)
+          SELECT 'User ' || i, 'user' || i || '@test.local', 1000, 'CLIENT', ?
+          FROM generate_series(1, ?) i""";
+  private static final String INSERT_MENU = """
+          INSERT INTO menu_items (name, description, price, is_available)
+          SELECT 'Item ' || lpad(i::text, 5, '0'), 'Description of item ' || i, 50 + (i * 37) % 450, i % 10 <> 0
+          FROM generate_series(1, ?) i""";
+  private static final String INSERT_ORDERS = """
+          INSERT INTO orders (user_id, total_price, pickup_time, payment_method, status, created_at)
+          SELECT u.user_id, 0, t.created_at + interval '30 minutes',
+                 (ARRAY['CASH', 'ACCOUNT'])[1 + t.i % 2],
+                 (ARRAY['NEW', 'PAID', 'COMPLETED', 'COMPLETED', 'CANCELLED'])[1 + t.i % 5],
+                 t.created_at
+          FROM (SELECT i, now()::timestamp - random() * (? * interval '1 day') AS created_at
+                FROM generate_series(1, ?) i) t
+          JOIN users u ON u.user_id = 1 + (t.i * 7919) % (SELECT count(*) FROM users)""";
+  private static final String INSERT_ORDER_ITEMS = """
+          INSERT INTO order_items (order_id, menu_item_id, quantity, unit_price)
+          SELECT DISTINCT ON (o.order_id, m.menu_item_id) o.order_id, m.menu_item_id, 1 + (o.order_id + k) % 3, m.price
+          FROM orders o
+          CROSS JOIN generate_series(1, ?) k
+          JOIN menu_items m ON m.menu_item_id = 1 + (o.order_id * 31 + k * 17) % (SELECT count(*) FROM menu_items)""";
+  private static final String UPDATE_TOTALS = """
+          UPDATE orders o SET total_price = t.total
+          FROM (SELECT order_id, SUM(quantity * unit_price) AS total
+                FROM order_items
+                GROUP BY order_id) t
+          WHERE t.order_id = o.order_id""";
+
+  private TestData() {}
+
+  /**
+   * Заполняет базу и обновляет статистику планировщика.
+   *
+   * @param itemsPerOrder максимальное количество позиций в заказе (повторы позиций схлопываются).
+   */
+  public static void generate(Connection conn, int users, int menuItems, int orders, int itemsPerOrder)
+          throws SQLException {
+    try (Statement st = conn.createStatement()) {
+      st.execute("SELECT setseed(0.42)");
+    }
+    try (PreparedStatement ps = conn.prepareStatement(INSERT_USERS)) {
+      ps.setString(1, PASSWORD_HASH);
+      ps.setInt(2, users);
+      ps.executeUpdate();
+    }
+    try (PreparedStatement ps = conn.prepareStatement(INSERT_MENU)) {
+      ps.setInt(1, menuItems);
+      ps.executeUpdate();
+    }
+    try (PreparedStatement ps = conn.prepareStatement(INSERT_ORDERS)) {
+      ps.setInt(1, ORDER_DAYS);
+      ps.setInt(2, orders);
+      ps.executeUpdate();
+    }
+    try (PreparedStatement ps = conn.prepareStatement(INSERT_ORDER_ITEMS)) {
+      ps.setInt(1, itemsPerOrder);
+      ps.executeUpdate();
+    }
+    try (Statement st = conn.createStatement()) {
+      st.executeUpdate(UPDATE_TOTALS);
+      st.execute("ANALYZE");
+    }
+  }
+
+  /** @return email пользователя с номером {@code i}, начиная с 1. */
+  public static String email(int i) {
+    return "user" + i + "@test.local";
+  }
+}
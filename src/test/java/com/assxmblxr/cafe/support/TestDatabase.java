@@ -0,0 +1,131 @@
+package com.assxmblxr.cafe.support;
+
+import com.assxmblxr.cafe.util.DatabaseUtil;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.extension.BeforeAllCallback;
+import org.junit.jupiter.api.extension.BeforeEachCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Расширение JUnit 5 для тестов, которым нужна настоящая база PostgreSQL.
+ * <p>
+ * База берется из {@code -Dcafe.test.jdbcUrl} (с {@code cafe.test.username} и {@code cafe.test.password}),
+ * а если она не задана - запускается встроенный PostgreSQL. Тесты работают в отдельной схеме
+ * {@code cafe_test}, которая пересоздается при первом обращении; схему строят миграции приложения.
+ * Перед каждым тестом таблицы очищаются. Учет обращений ({@code db.statementStats.enabled})
+ * в тестах включен. Если базу получить не удалось, тесты падают; с {@code -Dcafe.test.requireDb=false}
+ * они пропускаются.
+ * </p>
+ *
+ * @author assxmblxr
+ */
+@Slf4j
+public class TestDatabase implements BeforeAllCallback, BeforeEachCallback {
+  private static final String SCHEMA = "cafe_test";
+  private static final String TRUNCATE = """
+          TRUNCATE order_items, orders, menu_items, users, sales_daily, sales_hourly, sales_item_daily
+          RESTART IDENTITY CASCADE""";
+
+  private static String jdbcUrl;
+  private static String username;
+  private static String password;
+  private static String unavailableReason;
+  private static boolean started;
+
+  @Override
+  public void beforeAll(ExtensionContext context) {
+    start();
+    if (unavailableReason != null && Boolean.parseBoolean(System.getProperty("cafe.test.requireDb", "true"))) {
+      throw new IllegalStateException("PostgreSQL is not available: " + unavailableReason);
+    }
+    assumeTrue(unavailableReason == null, () -> "PostgreSQL is not available: " + unavailableReason);
+  }
+
+  @Override
+  public void beforeEach(ExtensionContext context) throws SQLException {
+    try (Connection conn = connection(); Statement st = conn.createStatement()) {
+      st.execute(TRUNCATE);
+    }
+  }
+
+  /**
+   * Открывает соединение с тестовой схемой в обход пула и учета обращений.
+   */
+  public static Connection connection() throws SQLException {
+    return connection(new Properties());
+  }
+
+  /**
+   * @param driverProperties дополнительные свойства PgJDBC, например {@code prepareThreshold}.
+   */
+  public static Connection connection(Properties driverProperties) throws SQLException {
+    Properties props = new Properties();
+    props.putAll(driverProperties);
+    props.setProperty("user", username);
+    props.setProperty("password", password);
+    return DriverManager.getConnection(jdbcUrl, props);
+  }
+
+  /** @return количество строк в таблице тестовой схемы. */
+  public static long countRows(String table) throws SQLException {
+    try (Connection conn = connection();
+         Statement st = conn.createStatement();
+         ResultSet rs = st.executeQuery("SELECT count(*) FROM " + table)) {
+      rs.next();
+      return rs.getLong(1);
+    }
+  }
+
+  private static synchronized void start() {
+    if (started) {
+      return;
+    }
+    started = true;
+    String baseUrl = System.getProperty("cafe.test.jdbcUrl");
+    username = System.getProperty("cafe.test.username", "postgres");
+    password = System.getProperty("cafe.test.password", "");
+    try {
+      if (baseUrl == null) {
+        baseUrl = startEmbedded();
+      }
+      try (Connection conn = DriverManager.getConnection(baseUrl, username, password);
+           Statement st = conn.createStatement()) {
+        st.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        st.execute("CREATE SCHEMA " + SCHEMA);
+      }
+    } catch (Exception e) {
+      log.warn("PostgreSQL for tests could not be started", e);
+      unavailableReason = e.toString();
+      return;
+    }
+    jdbcUrl = baseUrl + (baseUrl.contains("?") ? "&" : "?") + "currentSchema=" + SCHEMA;
+    System.setProperty("db.jdbcUrl", jdbcUrl);
+    System.setProperty("db.username", username);
+    System.setProperty("db.password", password);
+    System.setProperty("db.statementStats.enabled", "true");
+    // пул создается и миграции применяются при загрузке класса
+    DatabaseUtil.isHealthy();
+  }
+
+  private static String startEmbedded() throws Exception {
+    EmbeddedPostgres postgres = EmbeddedPostgres.builder().start();
+    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+      try {
+        postgres.close();
+      } catch (Exception e) {
+        log.warn("Failed to stop embedded PostgreSQL", e);
+      }
+    }));
+    return postgres.getJdbcUrl("postgres", "postgres");
+  }
+}
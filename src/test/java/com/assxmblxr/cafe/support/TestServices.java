@@ -0,0 +1,40 @@
+package com.assxmblxr.cafe.support;
+
+import com.assxmblxr.cafe.dao.OrderDao;
+import com.assxmblxr.cafe.dao.TransactionManager;
+import com.assxmblxr.cafe.dao.UserDao;
+import com.assxmblxr.cafe.dao.impl.SalesReportDaoImpl;
+import com.assxmblxr.cafe.service.OrderEventBus;
+import com.assxmblxr.cafe.service.PickupSlotScheduler;
+import com.assxmblxr.cafe.service.impl.UserServiceImpl;
+import com.assxmblxr.cafe.util.BloomFilter;
+import com.assxmblxr.cafe.util.PasswordHasher;
+
+/**
+ * Сборка сервисов для тестов с теми же зависимостями, что и в {@code MainServlet}.
+ *
+ * @author assxmblxr
+ */
+public class TestServices {
+  private TestServices() {}
+
+  /**
+   * @param pickupSlots календарь слотов выдачи; для тестов, которым он не важен, -
+   *                    {@link #unlimitedSlots(OrderDao)}.
+   */
+  public static UserServiceImpl userService(UserDao userDao, OrderDao orderDao, PasswordHasher passwordHasher,
+                                            PickupSlotScheduler pickupSlots) {
+    return new UserServiceImpl(userDao, orderDao, passwordHasher, new TransactionManager(), pickupSlots,
+            new OrderEventBus(64), new SalesReportDaoImpl(), BloomFilter.create(1_000, 0.01));
+  }
+
+  /** @return календарь слотов без ограничения емкости. */
+  public static PickupSlotScheduler unlimitedSlots(OrderDao orderDao) {
+    return new PickupSlotScheduler(orderDao, 5, 0, 12);
+  }
+
+  /** @return хешер с одним потоком и заданной стоимостью BCrypt. */
+  public static PasswordHasher hasher(int cost) {
+    return new PasswordHasher(1, 16, cost, 30_000);
+  }
+}
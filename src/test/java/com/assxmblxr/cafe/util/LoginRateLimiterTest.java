@@ -0,0 +1,41 @@
+package com.assxmblxr.cafe.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LoginRateLimiterTest {
+  private static final int MAX_ENTRIES = 10;
+
+  @Test
+  void fullLimiterRejectsNewKeysInsteadOfEvictingActiveWindows() {
+    LoginRateLimiter limiter = new LoginRateLimiter(2, 100, 60, MAX_ENTRIES);
+    for (int i = 0; i < MAX_ENTRIES; i++) {
+      assertTrue(limiter.tryAcquire("user" + i + "@test.local", null));
+    }
+
+    assertFalse(limiter.tryAcquire("new@test.local", null));
+    assertEquals(MAX_ENTRIES, limiter.getSize());
+    // счетчик уже отслеживаемого ключа не сброшен: вторая попытка проходит, третья упирается в лимит
+    assertTrue(limiter.tryAcquire("user0@test.local", null));
+    assertFalse(limiter.tryAcquire("user0@test.local", null));
+  }
+
+  @Test
+  void windowsWithoutAttemptsInCurrentPeriodAreEvicted() throws Exception {
+    LoginRateLimiter limiter = new LoginRateLimiter(2, 100, 1, MAX_ENTRIES);
+    for (int i = 0; i < MAX_ENTRIES; i++) {
+      assertTrue(limiter.tryAcquire("user" + i + "@test.local", null));
+    }
+    Thread.sleep(1_100);
+    assertTrue(limiter.tryAcquire("user0@test.local", null));
+    assertTrue(limiter.tryAcquire("user0@test.local", null));
+
+    assertTrue(limiter.tryAcquire("new@test.local", null));
+    assertEquals(MAX_ENTRIES, limiter.getSize());
+    // активный в текущем окне ключ сохранил счетчик
+    assertFalse(limiter.tryAcquire("user0@test.local", null));
+  }
+}
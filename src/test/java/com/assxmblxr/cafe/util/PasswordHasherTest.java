@@ -0,0 +1,42 @@
+package com.assxmblxr.cafe.util;
+
+import org.junit.jupiter.api.Test;
+import org.mindrot.jbcrypt.BCrypt;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTest {
+  private static final String PASSWORD = "password";
+
+  @Test
+  void costIsReadWithAndWithoutMinorVersion() {
+    assertEquals(10, PasswordHasher.costOf("$2a$10$abcdefghijklmnopqrstuv"));
+    assertEquals(12, PasswordHasher.costOf("$2$12$abcdefghijklmnopqrstuv"));
+    assertThrows(IllegalArgumentException.class, () -> PasswordHasher.costOf("plain"));
+  }
+
+  @Test
+  void unreadableCostNeedsRehashInsteadOfFailing() {
+    try (PasswordHasher hasher = new PasswordHasher(1, 4, 4, 5_000)) {
+      assertTrue(hasher.needsRehash("$2x$"));
+      assertFalse(hasher.needsRehash(BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4))));
+    }
+  }
+
+  @Test
+  void saturatedRehashQueueDoesNotShedVerification() {
+    String hash = BCrypt.hashpw(PASSWORD, BCrypt.gensalt(4));
+    try (PasswordHasher hasher = new PasswordHasher(1, 1, 12, 30_000, 2)) {
+      for (int i = 0; i < 10; i++) {
+        hasher.hashAsync(PASSWORD);
+      }
+
+      assertTrue(hasher.verify(PASSWORD, hash));
+      assertEquals(0, hasher.getRejectedCount());
+      assertTrue(hasher.getRehashDroppedCount() > 0);
+    }
+  }
+}
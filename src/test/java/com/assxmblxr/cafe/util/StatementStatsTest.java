@@ -0,0 +1,90 @@
+package com.assxmblxr.cafe.util;
+
+import com.assxmblxr.cafe.support.RoundTrips;
+import com.assxmblxr.cafe.support.TestData;
+import com.assxmblxr.cafe.support.TestDatabase;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@ExtendWith(TestDatabase.class)
+class StatementStatsTest {
+
+  @Test
+  void countsEachExecutedStatement() throws Exception {
+    long statements = RoundTrips.count(() -> {
+      try (Connection conn = DatabaseUtil.getConnection()) {
+        for (int i = 0; i < 3; i++) {
+          try (PreparedStatement ps = conn.prepareStatement("SELECT ?");
+               ResultSet rs = executeQuery(ps, i)) {
+            rs.next();
+          }
+        }
+      }
+      return null;
+    });
+    assertEquals(3, statements);
+  }
+
+  @Test
+  void nestedScopeAddsToOuter() throws Exception {
+    try (StatementStats.Scope outer = StatementStats.begin()) {
+      try (StatementStats.Scope inner = StatementStats.begin();
+           Connection conn = DatabaseUtil.getConnection();
+           PreparedStatement ps = conn.prepareStatement("SELECT 1")) {
+        ps.execute();
+        assertEquals(1, inner.getStatements());
+      }
+      assertEquals(1, outer.getStatements());
+    }
+  }
+
+  @Test
+  void countsCursorFetches() throws Exception {
+    long statements = RoundTrips.count(() -> {
+      try (Connection conn = DatabaseUtil.getConnection()) {
+        conn.setAutoCommit(false);
+        try (PreparedStatement ps = conn.prepareStatement("SELECT i FROM generate_series(1, 25) i")) {
+          ps.setFetchSize(10);
+          try (ResultSet rs = ps.executeQuery()) {
+            int rows = 0;
+            while (rs.next()) {
+              rows++;
+            }
+            assertEquals(25, rows);
+          }
+        }
+        conn.commit();
+      }
+      return null;
+    });
+    // запрос с первой порцией и две догрузки: строки 11-20 и 21-25
+    assertEquals(3, statements);
+  }
+
+  @Test
+  void generatedDataIsConsistent() throws Exception {
+    try (Connection conn = TestDatabase.connection()) {
+      TestData.generate(conn, 10, 20, 100, 3);
+      try (PreparedStatement ps = conn.prepareStatement("""
+              SELECT count(*) FROM orders o
+              WHERE total_price <> (SELECT SUM(oi.quantity * m.price) FROM order_items oi
+                                    JOIN menu_items m ON m.menu_item_id = oi.menu_item_id
+                                    WHERE oi.order_id = o.order_id)""");
+           ResultSet rs = ps.executeQuery()) {
+        rs.next();
+        assertEquals(0, rs.getLong(1));
+      }
+    }
+  }
+
+  private static ResultSet executeQuery(PreparedStatement ps, int value) throws Exception {
+    ps.setInt(1, value);
+    return ps.executeQuery();
+  }
+}